@@ -1,9 +1,12 @@
 package org.example.agent;
 
 import org.example.agent.manager.HeartbeatManager;
+import org.example.agent.manager.ReconnectManager;
 import org.example.agent.manager.RestartManager;
+import org.example.agent.util.SystemInfoUtil;
 import org.example.agent.websocket.SocketClientEndpoint;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
@@ -23,6 +26,7 @@ public class AgentApplication {
     private final ApplicationContext applicationContext;
     private final RestartManager restartManager;
     private final HeartbeatManager heartbeatManager;
+    private final ReconnectManager reconnectManager;
 
     @Value("${agent.name}")
     private String name;
@@ -30,17 +34,22 @@ public class AgentApplication {
     @Value("${socket.server.url}")
     private String socketServerUrl;
 
-    @Value("${socket.connect.max-retries}")
-    private int maxRetries;
+    @Value("${socket.reconnect.initial-delay-ms}")
+    private long reconnectInitialDelayMs;
 
-    @Value("${socket.connect.retry-delay-ms}")
-    private long retryDelayMs;
+    @Value("${socket.reconnect.max-delay-ms}")
+    private long reconnectMaxDelayMs;
 
-    public AgentApplication(SocketClientEndpoint socketClient, ApplicationContext applicationContext, RestartManager restartManager, HeartbeatManager heartbeatManager) {
+    @Value("${spring.main.web-application-type:none}")
+    private WebApplicationType webApplicationType;
+
+    public AgentApplication(SocketClientEndpoint socketClient, ApplicationContext applicationContext, RestartManager restartManager,
+                            HeartbeatManager heartbeatManager, ReconnectManager reconnectManager) {
         this.socketClient = socketClient;
         this.applicationContext = applicationContext;
         this.restartManager = restartManager;
         this.heartbeatManager = heartbeatManager;
+        this.reconnectManager = reconnectManager;
     }
 
     public static void main(String[] args) {
@@ -56,11 +65,15 @@ public class AgentApplication {
      * 不会阻塞应用启动
      */
     @EventListener(ApplicationReadyEvent.class)
-    public void connectToSocketServer() {
+    public void connectToSocketServer(ApplicationReadyEvent event) {
         try {
+            // 启动耗时和常驻内存，用于对比headless(NONE)与内嵌Web服务器(SERVLET)两种运行模式
+            log.info("Agent ready in {}ms (web application type: {}, resident memory: {}KB)",
+                    event.getTimeTaken() != null ? event.getTimeTaken().toMillis() : -1,
+                    webApplicationType, SystemInfoUtil.getResidentMemoryKb());
             log.info("Agent starting up: id={}, socket-server={}", name, socketServerUrl);
-            log.info("Attempting to connect to Socket service (max retries: {}, retry delay: {}ms)",
-                    maxRetries, retryDelayMs);
+            log.info("Attempting to connect to Socket service (reconnect backoff: {}ms ~ {}ms, unlimited retries)",
+                    reconnectInitialDelayMs, reconnectMaxDelayMs);
 
             // 设置应用上下文，用于处理关闭命令
             socketClient.setApplicationContext(applicationContext);
@@ -72,7 +85,10 @@ public class AgentApplication {
             // 设置SocketClientEndpoint到RestartManager，用于关闭WebSocket连接
             restartManager.setSocketClientEndpoint(socketClient);
 
-            socketClient.connectAsync(name, socketServerUrl, maxRetries, retryDelayMs);
+            // 设置SocketClientEndpoint到ReconnectManager，用于断线重连
+            reconnectManager.setSocketClientEndpoint(socketClient);
+
+            socketClient.connectAsync(name, socketServerUrl);
 
             log.info("Agent started successfully. Socket connection attempt started in background.");
         } catch (Exception e) {
@@ -0,0 +1,64 @@
+package org.example.agent.manager;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 命令去重器
+ * Socket在ack超时后会重新投递命令，按commandId记录最近收到的命令，保证同一命令只执行一次
+ * 重复投递的命令如果已经执行完成，返回缓存的执行结果供重新上报
+ * 只保留最近capacity条记录，超出后淘汰最早的记录
+ */
+@Component
+public class CommandDeduplicator {
+
+    private final Map<Long, CompletedCommand> recentCommands;
+
+    public CommandDeduplicator(@Value("${command.dedupe-capacity:1024}") int capacity) {
+        int maxEntries = Math.max(16, capacity);
+        this.recentCommands = new LinkedHashMap<>(maxEntries * 4 / 3 + 1) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CompletedCommand> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 记录收到的命令
+     *
+     * @param commandId 命令ID
+     * @return true表示首次收到，需要执行；false表示重复投递
+     */
+    public synchronized boolean markReceived(long commandId) {
+        if (recentCommands.containsKey(commandId)) {
+            return false;
+        }
+        recentCommands.put(commandId, null);
+        return true;
+    }
+
+    /**
+     * 记录命令执行结果
+     */
+    public synchronized void recordResult(long commandId, boolean success, String result) {
+        if (recentCommands.containsKey(commandId)) {
+            recentCommands.put(commandId, new CompletedCommand(success, result));
+        }
+    }
+
+    /**
+     * 获取已完成命令的执行结果
+     *
+     * @return 执行结果，命令仍在执行中或已被淘汰时返回null
+     */
+    public synchronized CompletedCommand getResult(long commandId) {
+        return recentCommands.get(commandId);
+    }
+
+    public record CompletedCommand(boolean success, String result) {
+    }
+}
@@ -0,0 +1,164 @@
+package org.example.agent.manager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 命令执行管理器
+ * Agent支持的命令(offline、restart、config)都是控制命令，在单个执行通道上按到达顺序串行执行，互不交错：
+ * 1. 命令在执行通道线程上运行，不阻塞WebSocket接收线程
+ * 2. 超过执行时限的命令被中断并按失败上报，迟到的结果被忽略
+ * 3. 超时命令不响应中断时，废弃当前通道线程并新建通道，排队中的命令按原顺序转入新通道，后续命令不会被卡住
+ * 每个命令执行结束后立即回调上报结果
+ */
+@Component
+public class CommandExecutionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandExecutionManager.class);
+
+    private final long timeoutMs;
+    private final ScheduledExecutorService timeoutScheduler;
+    private ExecutorService lane;
+    private int laneGeneration;
+
+    public CommandExecutionManager(@Value("${command.timeout-ms:60000}") long timeoutMs) {
+        this.timeoutMs = Math.max(1, timeoutMs);
+        this.lane = newLane();
+        this.timeoutScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "CommandTimeoutThread");
+            t.setDaemon(true);
+            return t;
+        });
+        log.info("CommandExecutionManager initialized (timeout: {}ms)", this.timeoutMs);
+    }
+
+    /**
+     * 提交命令执行
+     *
+     * @param commandId 命令ID，仅用于日志
+     * @param commandType 命令类型，仅用于日志
+     * @param task 命令执行逻辑，返回是否成功
+     * @param callback 执行结束（成功、失败或超时）后调用，每个命令只调用一次
+     */
+    public void submit(long commandId, String commandType, BooleanSupplier task, CompletionCallback callback) {
+        AtomicBoolean reported = new AtomicBoolean(false);
+        synchronized (this) {
+            try {
+                lane.execute(() -> {
+                    // 计时从开始执行算起，排队等待不计入执行时限
+                    Future<?> timeout = scheduleTimeout(commandId, commandType, callback, reported);
+                    try {
+                        runAndReport(commandId, commandType, task, callback, reported);
+                    } finally {
+                        timeout.cancel(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                log.error("Cannot submit command: id={}, type={}", commandId, commandType, e);
+                callback.onComplete(false, "Agent cannot schedule command");
+            }
+        }
+    }
+
+    /**
+     * 在当前通道线程上为正在执行的命令安排超时检查
+     */
+    private Future<?> scheduleTimeout(long commandId, String commandType,
+                                      CompletionCallback callback, AtomicBoolean reported) {
+        Thread worker = Thread.currentThread();
+        int generation;
+        synchronized (this) {
+            generation = laneGeneration;
+        }
+        return timeoutScheduler.schedule(() -> {
+            if (!reported.compareAndSet(false, true)) {
+                return;
+            }
+            log.warn("Command timed out after {}ms: id={}, type={}", timeoutMs, commandId, commandType);
+            worker.interrupt();
+            replaceLane(generation);
+            try {
+                callback.onComplete(false, "Command timed out after " + timeoutMs + "ms");
+            } catch (Exception e) {
+                log.error("Error reporting command timeout: id={}", commandId, e);
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 废弃超时命令占用的通道，排队中的命令按原顺序转入新通道
+     */
+    private synchronized void replaceLane(int generation) {
+        if (generation != laneGeneration) {
+            return;
+        }
+        ExecutorService stale = lane;
+        lane = newLane();
+        laneGeneration++;
+        List<Runnable> queued = stale.shutdownNow();
+        queued.forEach(lane::execute);
+        log.warn("Command lane replaced after timeout, {} queued commands moved", queued.size());
+    }
+
+    private void runAndReport(long commandId, String commandType, BooleanSupplier task,
+                              CompletionCallback callback, AtomicBoolean reported) {
+        long startNanos = System.nanoTime();
+        boolean success;
+        try {
+            success = task.getAsBoolean();
+        } catch (Exception e) {
+            log.error("Error executing command: id={}, type={}", commandId, commandType, e);
+            success = false;
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        if (!reported.compareAndSet(false, true)) {
+            // 已按超时上报，忽略迟到的结果
+            log.debug("Command finished after timeout was reported: id={}, type={}", commandId, commandType);
+            return;
+        }
+        log.info("Command finished: id={}, type={}, success={}, elapsed={}ms", commandId, commandType, success, elapsedMs);
+        try {
+            callback.onComplete(success, success ? "Command executed successfully" : "Command execution failed");
+        } catch (Exception e) {
+            log.error("Error reporting command result: id={}", commandId, e);
+        }
+    }
+
+    private static ExecutorService newLane() {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "CommandLane");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public synchronized void destroy() {
+        lane.shutdownNow();
+        timeoutScheduler.shutdownNow();
+        log.info("CommandExecutionManager destroyed");
+    }
+
+    /**
+     * 命令执行结束回调
+     */
+    @FunctionalInterface
+    public interface CompletionCallback {
+        void onComplete(boolean success, String result);
+    }
+}
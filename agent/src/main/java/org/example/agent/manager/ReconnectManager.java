@@ -0,0 +1,202 @@
+package org.example.agent.manager;
+
+import org.example.agent.websocket.SocketClientEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Socket重连管理器
+ * 负责在连接失败或断开后重新连接Socket服务，不设重试上限
+ * 重连间隔采用指数退避 + 全抖动（full jitter）：delay = random(0, min(max, initial * 2^attempt))
+ * Socket服务重启后，大量Agent的重连时间会被随机打散，避免同时涌入
+ * 握手被Socket准入控制拒绝（HTTP 503）时，至少等待overload-delay-ms后再重试
+ * 连接保持稳定stable-after-ms后才重置退避计数，建立后很快又断开的连接不会让退避回到初始值
+ */
+@Component
+public class ReconnectManager {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconnectManager.class);
+
+    private SocketClientEndpoint socketClient;
+
+    private final long initialDelayMs;
+    private final long maxDelayMs;
+    private final long overloadDelayMs;
+    private final long stableAfterMs;
+
+    private ScheduledExecutorService scheduler;
+    private final AtomicInteger attempt = new AtomicInteger(0);
+    private final AtomicBoolean reconnectScheduled = new AtomicBoolean(false);
+    /**
+     * 连接代数，每次连接建立或安排重连时递增，用于判断稳定期结束时是否仍是同一个连接
+     */
+    private final AtomicLong connectionGeneration = new AtomicLong(0);
+    private volatile boolean stopped = true;
+
+    public ReconnectManager(@Value("${socket.reconnect.initial-delay-ms:1000}") long initialDelayMs,
+                            @Value("${socket.reconnect.max-delay-ms:60000}") long maxDelayMs,
+                            @Value("${socket.reconnect.overload-delay-ms:10000}") long overloadDelayMs,
+                            @Value("${socket.reconnect.stable-after-ms:30000}") long stableAfterMs) {
+        this.initialDelayMs = Math.max(1, initialDelayMs);
+        this.maxDelayMs = Math.max(this.initialDelayMs, maxDelayMs);
+        this.overloadDelayMs = Math.max(0, overloadDelayMs);
+        this.stableAfterMs = Math.max(0, stableAfterMs);
+    }
+
+    /**
+     * 设置SocketClientEndpoint，用于发起连接
+     * 通过setter注入来避免循环依赖
+     */
+    public void setSocketClientEndpoint(SocketClientEndpoint socketClient) {
+        this.socketClient = socketClient;
+    }
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "SocketReconnectThread");
+            t.setDaemon(true);
+            return t;
+        });
+        log.info("ReconnectManager initialized (initial delay: {}ms, max delay: {}ms)", initialDelayMs, maxDelayMs);
+    }
+
+    /**
+     * 启动重连监督，立即发起首次连接
+     */
+    public void start() {
+        stopped = false;
+        attempt.set(0);
+        if (reconnectScheduled.compareAndSet(false, true)) {
+            scheduler.execute(this::attemptConnect);
+        }
+    }
+
+    /**
+     * 停止重连监督
+     * 主动关闭连接（下线、重启）时调用，之后的断开不会再触发重连
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * 连接建立成功后调用
+     * 连接保持stableAfterMs后仍未断开时才重置退避计数
+     */
+    public void onConnected() {
+        long generation = connectionGeneration.incrementAndGet();
+        scheduler.schedule(() -> {
+            if (connectionGeneration.get() == generation && socketClient.isConnected()) {
+                attempt.set(0);
+                log.debug("Connection stable for {}ms, reconnect backoff reset", stableAfterMs);
+            }
+        }, stableAfterMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 按退避策略安排一次重连
+     * 同一时刻最多只有一个待执行的重连任务
+     *
+     * @param reason 触发重连的原因，仅用于日志
+     */
+    public void scheduleReconnect(String reason) {
+        scheduleReconnect(reason, 0);
+    }
+
+    /**
+     * 按退避策略安排一次重连，等待时间不少于minDelayMs
+     *
+     * @param reason 触发重连的原因，仅用于日志
+     * @param minDelayMs 最小等待时间，单位毫秒
+     */
+    private void scheduleReconnect(String reason, long minDelayMs) {
+        if (stopped) {
+            log.debug("Reconnect supervisor stopped, ignoring reconnect request: {}", reason);
+            return;
+        }
+        if (!reconnectScheduled.compareAndSet(false, true)) {
+            log.debug("Reconnect already scheduled, ignoring: {}", reason);
+            return;
+        }
+
+        // 使等待中的稳定期检查失效
+        connectionGeneration.incrementAndGet();
+        int currentAttempt = attempt.getAndIncrement();
+        long delayMs = minDelayMs + computeBackoff(currentAttempt);
+        log.warn("Reconnecting to Socket service in {}ms (attempt {}, reason: {})", delayMs, currentAttempt + 1, reason);
+        scheduler.schedule(this::attemptConnect, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 计算第attempt次重连的等待时间（全抖动）
+     *
+     * @param attempt 已连续失败的次数，从0开始
+     * @return 等待时间，单位毫秒
+     */
+    long computeBackoff(int attempt) {
+        int exponent = Math.min(attempt, 30);
+        long ceiling = Math.min(maxDelayMs, initialDelayMs << exponent);
+        if (ceiling <= 0) {
+            ceiling = maxDelayMs;
+        }
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private void attemptConnect() {
+        reconnectScheduled.set(false);
+        if (stopped) {
+            return;
+        }
+        if (socketClient.isConnected()) {
+            log.debug("Already connected to Socket service, skipping reconnect");
+            return;
+        }
+
+        try {
+            socketClient.connect();
+        } catch (Exception e) {
+            if (isOverloadRejection(e)) {
+                // JSR-356客户端不暴露握手响应头，无法读取Retry-After，使用与Socket端默认值一致的配置
+                scheduleReconnect("rejected by admission control (503)", overloadDelayMs);
+            } else {
+                scheduleReconnect("connect failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 判断连接失败是否因为Socket握手准入控制返回了503
+     */
+    private boolean isOverloadRejection(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            String message = t.getMessage();
+            if (message != null && message.contains("[503]")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        stopped = true;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        log.info("ReconnectManager destroyed");
+    }
+}
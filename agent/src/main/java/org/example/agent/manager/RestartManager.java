@@ -1,30 +1,65 @@
 package org.example.agent.manager;
 
+import org.example.agent.AgentApplication;
 import org.example.agent.websocket.SocketClientEndpoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Agent重启管理器
  * 负责优雅地重启Agent应用，保留启动参数
- * 支持两种重启模式：
- * 1. 脚本模式 - 返回exit code=1，由外部脚本处理重启
- * 2. 进程模式 - 直接在JVM内部使用ProcessBuilder重新启动
+ * 通过agent.restart.mode选择重启方式：
+ * 1. connection - 只重建Socket连接和心跳，Spring容器和JVM保持不变，停机时间最短
+ * 2. context - 在当前JVM内关闭并重建Spring ApplicationContext，已加载的类和JIT编译结果得以保留
+ * 3. process - 使用ProcessBuilder启动新的JVM进程后退出当前进程，失败时退回脚本模式（exit code=1，由外部脚本处理重启）
+ * 重启完成（重新连接到Socket服务）后输出本次重启的停机时间
  */
 @Component
 public class RestartManager {
 
     private static final Logger log = LoggerFactory.getLogger(RestartManager.class);
-    
+
+    /**
+     * 进程模式下通过该系统属性把重启发起时间传给新进程
+     */
+    private static final String RESTART_REQUESTED_AT_PROPERTY = "agent.restart.requested-at";
+
+    /**
+     * Spring AOT开关，快速启动模式下与CDS训练运行保持一致
+     */
+    private static final String AOT_ENABLED_PROPERTY = "spring.aot.enabled";
+
+    /**
+     * 重启发起时间（毫秒时间戳），0表示没有进行中的重启
+     * 静态字段在context模式重建容器后仍然保留
+     */
+    private static volatile long restartRequestedAt = Long.getLong(RESTART_REQUESTED_AT_PROPERTY, 0L);
+    private static volatile String restartMode = System.getProperty(RESTART_REQUESTED_AT_PROPERTY) != null ? "process" : null;
+
+    private final String mode;
+    private final String cdsArchive;
     private SocketClientEndpoint socketClientEndpoint;
 
+    public RestartManager(@Value("${agent.restart.mode:process}") String mode,
+                          @Value("${agent.restart.cds-archive:}") String cdsArchive) {
+        this.mode = mode == null ? "process" : mode.trim().toLowerCase();
+        this.cdsArchive = cdsArchive == null ? "" : cdsArchive.trim();
+        if (!"connection".equals(this.mode) && !"context".equals(this.mode) && !"process".equals(this.mode)) {
+            log.warn("Unknown restart mode '{}', restart will use process mode", mode);
+        }
+    }
+
     /**
      * 设置SocketClientEndpoint，用于关闭WebSocket连接
      */
@@ -40,7 +75,7 @@ public class RestartManager {
      * @param delayMs 延迟多久后执行重启（毫秒），用于确保消息发送完成
      */
     public void restartAsync(ApplicationContext applicationContext, long delayMs) {
-        new Thread(() -> {
+        Thread restartThread = new Thread(() -> {
             try {
                 log.info("Waiting {}ms before restart to ensure messages are sent", delayMs);
                 Thread.sleep(delayMs);
@@ -50,16 +85,80 @@ public class RestartManager {
             }
             
             performRestart(applicationContext);
-        }, "AgentRestartThread").start();
+        }, "AgentRestartThread");
+        // context模式下旧容器关闭到新容器启动之间，由该线程维持JVM存活
+        restartThread.setDaemon(false);
+        restartThread.start();
+    }
+
+    /**
+     * 重启后首次连接到Socket服务时调用，输出本次重启的停机时间
+     */
+    public void onConnected() {
+        long requestedAt = restartRequestedAt;
+        if (requestedAt > 0) {
+            restartRequestedAt = 0;
+            log.info("Agent restart completed: mode={}, downtime={}ms", restartMode, System.currentTimeMillis() - requestedAt);
+        }
     }
 
     /**
      * 执行重启
-     * 支持两种模式：
-     * 1. 如果启动了脚本，使用exit code=1方式（脚本模式）
-     * 2. 否则直接使用ProcessBuilder重启（进程模式）
+     * connection和context模式在当前JVM内完成，其他情况使用进程模式
      */
     private void performRestart(ApplicationContext applicationContext) {
+        restartRequestedAt = System.currentTimeMillis();
+        restartMode = mode;
+        if ("connection".equals(mode)) {
+            restartConnection();
+            return;
+        }
+        if ("context".equals(mode) && applicationContext instanceof ConfigurableApplicationContext context) {
+            restartContext(context);
+            return;
+        }
+        restartMode = "process";
+        restartProcess(applicationContext);
+    }
+
+    /**
+     * 连接模式：只重建Socket连接和心跳
+     */
+    private void restartConnection() {
+        log.info("Performing connection restart of Agent");
+        if (socketClientEndpoint == null) {
+            log.warn("SocketClientEndpoint not set, cannot restart connection");
+            return;
+        }
+        socketClientEndpoint.restartConnection();
+    }
+
+    /**
+     * 容器模式：关闭当前ApplicationContext后在同一JVM内按原启动参数重新启动
+     * 调用线程为非守护线程，旧容器关闭期间JVM不会退出
+     */
+    private void restartContext(ConfigurableApplicationContext context) {
+        try {
+            log.info("Performing in-process context restart of Agent application");
+            if (socketClientEndpoint != null) {
+                socketClientEndpoint.close();
+                log.info("WebSocket connection closed");
+            }
+            context.close();
+            SpringApplication.run(AgentApplication.class, getBootArgsArray());
+        } catch (Exception e) {
+            log.error("In-process context restart failed, falling back to process restart", e);
+            restartMode = "process";
+            restartProcess(null);
+        }
+    }
+
+    /**
+     * 进程模式：
+     * 1. 直接使用ProcessBuilder重启
+     * 2. 失败时使用exit code=1方式（脚本模式）
+     */
+    private void restartProcess(ApplicationContext applicationContext) {
         try {
             log.info("Performing restart of Agent application");
             
@@ -109,8 +208,13 @@ public class RestartManager {
             // 获取启动参数
             String bootArgs = getBootArgs();
             
-            // 获取Agent JAR路径
-            String agentJar = getAgentJarPath();
+            // 使用CDS归档时必须启动训练归档时的解压布局，否则类路径不匹配，JVM会拒绝归档
+            String cdsArchivePath = resolveCdsArchive();
+            String agentJar = cdsArchivePath != null ? getExtractedJarPath(cdsArchivePath) : null;
+            if (agentJar == null) {
+                cdsArchivePath = null;
+                agentJar = getAgentJarPath();
+            }
             if (agentJar == null || agentJar.isEmpty()) {
                 log.warn("Cannot determine Agent JAR path, ProcessBuilder restart not available");
                 log.warn("Please ensure the agent is packaged as a JAR file");
@@ -135,19 +239,18 @@ public class RestartManager {
             List<String> command = new ArrayList<>();
             command.add(javaExe);
             
-            // 添加JVM参数
+            // 沿用当前进程的JVM参数（堆大小、CDS归档、AOT开关等）
+            command.addAll(getJvmArgs(cdsArchivePath));
+
+            // 添加JVM参数，新进程据此计算本次重启的停机时间
+            command.add("-D" + RESTART_REQUESTED_AT_PROPERTY + "=" + restartRequestedAt);
             command.add("-jar");
             command.add(agentJar);
             
             // 添加启动参数
             if (bootArgs != null && !bootArgs.isEmpty()) {
                 // 将启动参数按空格分割并添加
-                String[] args = bootArgs.split("\\s+");
-                for (String arg : args) {
-                    if (!arg.isEmpty()) {
-                        command.add(arg);
-                    }
-                }
+                command.addAll(Arrays.asList(getBootArgsArray()));
             }
             
             log.info("Restarting Agent with ProcessBuilder: {}", String.join(" ", command));
@@ -196,6 +299,78 @@ public class RestartManager {
         }
     }
 
+    /**
+     * 获取新进程使用的JVM参数
+     * 沿用当前进程的启动参数，去掉调试代理、上一次重启的时间戳和原有的CDS归档参数
+     * 使用CDS归档时为快速启动模式：追加-XX:SharedArchiveFile和-Dspring.aot.enabled=true，
+     * 与训练运行的参数一致，新进程直接映射已预解析的类并使用AOT生成的Bean定义
+     *
+     * @param cdsArchivePath 新进程使用的CDS归档，null表示不使用
+     * @return JVM参数列表
+     */
+    private List<String> getJvmArgs(String cdsArchivePath) {
+        List<String> jvmArgs = new ArrayList<>();
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (arg.startsWith("-agentlib:") || arg.startsWith("-javaagent:")
+                    || arg.startsWith("-D" + RESTART_REQUESTED_AT_PROPERTY + "=")
+                    || arg.startsWith("-XX:ArchiveClassesAtExit")
+                    || arg.startsWith("-XX:SharedArchiveFile")) {
+                continue;
+            }
+            if (cdsArchivePath != null && arg.startsWith("-D" + AOT_ENABLED_PROPERTY + "=")) {
+                continue;
+            }
+            jvmArgs.add(arg);
+        }
+
+        if (cdsArchivePath != null) {
+            jvmArgs.add("-XX:SharedArchiveFile=" + cdsArchivePath);
+            jvmArgs.add("-D" + AOT_ENABLED_PROPERTY + "=true");
+            log.info("Restarting in fast-startup mode with CDS archive: {}", cdsArchivePath);
+        }
+        return jvmArgs;
+    }
+
+    /**
+     * 确定新进程使用的CDS归档
+     * 当前进程已使用归档时沿用，否则使用agent.restart.cds-archive配置的归档
+     *
+     * @return 归档文件路径，不使用归档时返回null
+     */
+    private String resolveCdsArchive() {
+        String archive = cdsArchive;
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (arg.startsWith("-XX:SharedArchiveFile=")) {
+                archive = arg.substring("-XX:SharedArchiveFile=".length());
+            }
+        }
+        if (archive.isEmpty()) {
+            return null;
+        }
+        if (!new File(archive).isFile()) {
+            log.warn("CDS archive not found, restarting without it: {}", archive);
+            return null;
+        }
+        return archive;
+    }
+
+    /**
+     * 获取CDS归档训练时使用的解压JAR
+     * mvn -Pfast-startup package将JAR解压到归档同目录的agent子目录下，训练运行和快速启动都使用该JAR
+     *
+     * @param cdsArchivePath CDS归档路径
+     * @return 解压后的JAR路径，找不到时返回null（新进程不使用归档）
+     */
+    private String getExtractedJarPath(String cdsArchivePath) {
+        File extractedDir = new File(new File(cdsArchivePath).getAbsoluteFile().getParentFile(), "agent");
+        File[] files = extractedDir.listFiles((dir, name) -> name.startsWith("agent-") && name.endsWith(".jar"));
+        if (files == null || files.length == 0) {
+            log.warn("Extracted Agent JAR not found in {}, restarting without CDS archive", extractedDir);
+            return null;
+        }
+        return files[0].getAbsolutePath();
+    }
+
     /**
      * 获取Agent JAR文件路径
      * 优先级：
@@ -305,6 +480,19 @@ public class RestartManager {
         return bootArgs;
     }
 
+    /**
+     * 获取按空格分割后的启动参数
+     */
+    private static String[] getBootArgsArray() {
+        String bootArgs = getBootArgs();
+        if (bootArgs.isEmpty()) {
+            return new String[0];
+        }
+        return Arrays.stream(bootArgs.split("\\s+"))
+                .filter(arg -> !arg.isEmpty())
+                .toArray(String[]::new);
+    }
+
     /**
      * 保存启动参数
      * 
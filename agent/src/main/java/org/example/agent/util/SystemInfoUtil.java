@@ -5,6 +5,8 @@ import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryUsage;
 import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -113,6 +115,29 @@ public class SystemInfoUtil {
         return memoryInfo;
     }
 
+    /**
+     * 获取当前进程的常驻内存(RSS)
+     * 读取/proc/self/status中的VmRSS，仅Linux可用
+     *
+     * @return 常驻内存大小(KB)，无法获取时返回-1
+     */
+    public static long getResidentMemoryKb() {
+        Path status = Path.of("/proc/self/status");
+        if (!Files.isReadable(status)) {
+            return -1;
+        }
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.substring("VmRSS:".length()).replace("kB", "").trim());
+                }
+            }
+        } catch (Exception e) {
+            return -1;
+        }
+        return -1;
+    }
+
     /**
      * 获取 CPU使用信息
      */
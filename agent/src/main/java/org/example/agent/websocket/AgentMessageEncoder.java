@@ -0,0 +1,95 @@
+package org.example.agent.websocket;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.example.agent.websocket.message.CommandAckMessage;
+import org.example.agent.websocket.message.CommandResultMessage;
+import org.example.agent.websocket.message.ConfigQueryMessage;
+import org.example.agent.websocket.message.HeartbeatMessage;
+import org.example.agent.websocket.message.StatusMessage;
+import org.springframework.web.socket.TextMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Agent出站消息编码器
+ * 每种消息类型使用预先构建的ObjectWriter（序列化器只解析一次），消息信封是record，不再为每次发送构造HashMap；
+ * 序列化结果写入线程私有、可复用的字节缓冲区，省去每次扩容的临时缓冲区
+ * 每次发送仍会分配一个payload字符串：JSR-356客户端只提供sendText(String)，TextMessage在发送时总要转成String；
+ * 状态消息中的status仍是SystemInfoUtil每次采集生成的Map
+ */
+public class AgentMessageEncoder {
+
+    /**
+     * 缓冲区超过该大小后不再复用，避免偶发的大消息长期占用内存
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<ReusableBuffer> BUFFER = ThreadLocal.withInitial(() -> new ReusableBuffer(1024));
+
+    private final ObjectWriter heartbeatWriter;
+    private final ObjectWriter statusWriter;
+    private final ObjectWriter commandResultWriter;
+    private final ObjectWriter configQueryWriter;
+    private final ObjectWriter commandAckWriter;
+
+    public AgentMessageEncoder(ObjectMapper objectMapper) {
+        ObjectWriter base = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.heartbeatWriter = base.forType(HeartbeatMessage.class);
+        this.statusWriter = base.forType(StatusMessage.class);
+        this.commandResultWriter = base.forType(CommandResultMessage.class);
+        this.configQueryWriter = base.forType(ConfigQueryMessage.class);
+        this.commandAckWriter = base.forType(CommandAckMessage.class);
+    }
+
+    public TextMessage encode(HeartbeatMessage message) throws IOException {
+        return write(heartbeatWriter, message);
+    }
+
+    public TextMessage encode(StatusMessage message) throws IOException {
+        return write(statusWriter, message);
+    }
+
+    public TextMessage encode(CommandResultMessage message) throws IOException {
+        return write(commandResultWriter, message);
+    }
+
+    public TextMessage encode(ConfigQueryMessage message) throws IOException {
+        return write(configQueryWriter, message);
+    }
+
+    public TextMessage encode(CommandAckMessage message) throws IOException {
+        return write(commandAckWriter, message);
+    }
+
+    private TextMessage write(ObjectWriter writer, Object message) throws IOException {
+        ReusableBuffer buffer = BUFFER.get();
+        buffer.reset();
+        try {
+            writer.writeValue(buffer, message);
+            // 缓冲区会被下一次发送复用，字节必须拷出；直接拷成String，避免发送时再从byte[]解码一次
+            return new TextMessage(buffer.toString(StandardCharsets.UTF_8));
+        } finally {
+            if (buffer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+                BUFFER.remove();
+            }
+        }
+    }
+
+    /**
+     * 可复用的字节缓冲区，reset后保留已分配的数组
+     */
+    private static class ReusableBuffer extends ByteArrayOutputStream {
+
+        private ReusableBuffer(int size) {
+            super(size);
+        }
+
+        private int capacity() {
+            return buf.length;
+        }
+    }
+}
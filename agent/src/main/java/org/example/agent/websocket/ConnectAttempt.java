@@ -0,0 +1,101 @@
+package org.example.agent.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.WebSocketClient;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单次WebSocket连接尝试
+ * 握手超时后本次尝试被放弃，但底层握手不会因Future取消而中止，仍可能在之后完成：
+ * 1. 超时放弃与握手完成通过状态CAS互斥，只有先到的一方生效
+ * 2. 放弃后才完成的握手不交给处理器，会话立即关闭，不会与重连线程的下一次尝试同时持有两个连接
+ * 3. 被放弃会话的消息、错误和关闭回调都不再转发，不会触发额外的重连
+ */
+final class ConnectAttempt extends WebSocketHandlerDecorator {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectAttempt.class);
+
+    private static final int PENDING = 0;
+    private static final int ESTABLISHED = 1;
+    private static final int ABANDONED = 2;
+
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+
+    private ConnectAttempt(WebSocketHandler delegate) {
+        super(delegate);
+    }
+
+    /**
+     * 连接并等待握手完成
+     *
+     * @throws TimeoutException 握手未在时限内完成，本次尝试已放弃
+     */
+    static void connect(WebSocketClient client, WebSocketHandler handler, String url, long timeoutMs) throws Exception {
+        ConnectAttempt attempt = new ConnectAttempt(handler);
+        // execute返回的Future在afterConnectionEstablished执行完毕后才完成
+        CompletableFuture<WebSocketSession> future = client.execute(attempt, url);
+        try {
+            future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (!attempt.state.compareAndSet(PENDING, ABANDONED)) {
+                // 握手在超时的同时完成并已交给处理器，按连接成功处理
+                log.debug("Handshake completed at connect timeout, keeping session");
+                return;
+            }
+            future.cancel(false);
+            throw e;
+        }
+    }
+
+    @Override
+    public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
+        if (!state.compareAndSet(PENDING, ESTABLISHED)) {
+            log.warn("Handshake completed after connect timeout, closing session {}", session.getId());
+            closeQuietly(session);
+            return;
+        }
+        super.afterConnectionEstablished(session);
+    }
+
+    @Override
+    public void handleMessage(@NonNull WebSocketSession session, @NonNull WebSocketMessage<?> message) throws Exception {
+        if (state.get() == ESTABLISHED) {
+            super.handleMessage(session, message);
+        }
+    }
+
+    @Override
+    public void handleTransportError(@NonNull WebSocketSession session, @NonNull Throwable exception) throws Exception {
+        if (state.get() == ESTABLISHED) {
+            super.handleTransportError(session, exception);
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus closeStatus) throws Exception {
+        if (state.get() == ESTABLISHED) {
+            super.afterConnectionClosed(session, closeStatus);
+        } else {
+            log.debug("Abandoned session closed: {}", session.getId());
+        }
+    }
+
+    private static void closeQuietly(WebSocketSession session) {
+        try {
+            session.close(CloseStatus.GOING_AWAY);
+        } catch (Exception e) {
+            log.debug("Error closing abandoned session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+}
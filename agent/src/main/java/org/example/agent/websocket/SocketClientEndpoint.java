@@ -2,11 +2,20 @@ package org.example.agent.websocket;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.agent.manager.CommandDeduplicator;
+import org.example.agent.manager.CommandExecutionManager;
 import org.example.agent.manager.ConfigManager;
 import org.example.agent.manager.HeartbeatManager;
+import org.example.agent.manager.ReconnectManager;
 import org.example.agent.manager.RestartManager;
+import org.example.agent.websocket.message.CommandAckMessage;
+import org.example.agent.websocket.message.CommandResultMessage;
+import org.example.agent.websocket.message.ConfigQueryMessage;
+import org.example.agent.websocket.message.HeartbeatMessage;
+import org.example.agent.websocket.message.StatusMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.context.ApplicationContext;
 import org.springframework.lang.NonNull;
@@ -16,38 +25,70 @@ import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.client.WebSocketClient;
 import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.lang.management.ManagementFactory;
 import java.util.Map;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Agent通过此客户端连接到Socket服务，保持长连接
  * 接收Socket推送的命令并执行
+ * 收到命令后立即回复command_ack，命令交给CommandExecutionManager在执行通道上串行执行，不阻塞WebSocket接收线程
+ * 心跳、状态上报、命令确认和结果可能由不同线程同时发送，出站消息经ConcurrentWebSocketSessionDecorator串行写出
  */
 @Component
 public class SocketClientEndpoint extends TextWebSocketHandler {
 
     private static final Logger log = LoggerFactory.getLogger(SocketClientEndpoint.class);
     private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final AgentMessageEncoder messageEncoder = new AgentMessageEncoder(objectMapper);
+    private static final int SEND_TIME_LIMIT_MS = 10000;
+    private static final int SEND_BUFFER_SIZE_LIMIT = 512 * 1024;
+    /**
+     * 每个JVM只记录一次首次连接和首次心跳的耗时，context模式重启后不再重复记录
+     */
+    private static final AtomicBoolean firstHeartbeatSent = new AtomicBoolean(false);
+    private static final AtomicBoolean firstConnectionEstablished = new AtomicBoolean(false);
 
-    private WebSocketSession session;
+    /**
+     * 串行发送装饰后的会话，所有出站消息都经过它发送
+     */
+    private volatile WebSocketSession session;
+    /**
+     * 底层原始会话，用于识别关闭回调属于哪个连接
+     */
+    private volatile WebSocketSession rawSession;
+    /**
+     * 由本端主动关闭的会话，其关闭回调不再触发重连
+     * 重建连接时旧会话的关闭回调可能晚于新一轮连接开始到达，不能据此再安排一次重连
+     */
+    private volatile WebSocketSession retiredSession;
     private String agentId;
     private String socketServerUrl;
     private volatile boolean connected = false;
+    private volatile boolean closedByClient = false;
     private ApplicationContext applicationContext;
     private final ConfigManager configManager;
     private final RestartManager restartManager;
+    private final ReconnectManager reconnectManager;
+    private final CommandDeduplicator commandDeduplicator;
+    private final CommandExecutionManager commandExecutionManager;
     private HeartbeatManager heartbeatManager;
 
-    private final CountDownLatch connectLatch = new CountDownLatch(1);
+    @Value("${socket.connect.timeout-ms:5000}")
+    private long connectTimeoutMs;
 
-    public SocketClientEndpoint(ConfigManager configManager, RestartManager restartManager) {
+    public SocketClientEndpoint(ConfigManager configManager, RestartManager restartManager,
+                                ReconnectManager reconnectManager, CommandDeduplicator commandDeduplicator,
+                                CommandExecutionManager commandExecutionManager) {
         this.configManager = configManager;
         this.restartManager = restartManager;
+        this.reconnectManager = reconnectManager;
+        this.commandDeduplicator = commandDeduplicator;
+        this.commandExecutionManager = commandExecutionManager;
     }
 
     /**
@@ -66,78 +107,53 @@ public class SocketClientEndpoint extends TextWebSocketHandler {
     }
 
     /**
-     * 异步连接到Socket服务，支持重试
+     * 异步连接到Socket服务
+     * 连接失败或之后断开时，由ReconnectManager按指数退避持续重连
      * @param agentId Agent 标识
      * @param socketServerUrl Socket 服务地址
-     * @param maxRetries 最大重试次数
-     * @param retryDelayMs 重试延迟(毫秒)
      */
-    public void connectAsync(String agentId, String socketServerUrl, int maxRetries, long retryDelayMs) {
-        new Thread(() -> {
-            this.agentId = agentId;
-            this.socketServerUrl = socketServerUrl;
-            
-            int attempt = 0;
-            while (!connected && attempt < maxRetries) {
-                try {
-                    attemptConnect();
-                    break;
-                } catch (Exception e) {
-                    attempt++;
-                    if (attempt < maxRetries) {
-                        log.warn("Failed to connect to Socket (attempt {}/{}), retrying in {}ms: {}", 
-                                attempt, maxRetries, retryDelayMs, e.getMessage());
-                        try {
-                            Thread.sleep(retryDelayMs);
-                        } catch (InterruptedException ie) {
-                            log.error("Interrupted while waiting for retry", ie);
-                            Thread.currentThread().interrupt();
-                            break;
-                        }
-                    } else {
-                        log.error("Failed to connect to Socket after {} attempts: {}", maxRetries, e.getMessage());
-                    }
-                }
-            }
-        }, "SocketConnectorThread").start();
+    public void connectAsync(String agentId, String socketServerUrl) {
+        this.agentId = agentId;
+        this.socketServerUrl = socketServerUrl;
+        this.closedByClient = false;
+        reconnectManager.start();
     }
 
     /**
      * 同步连接到Socket服务，有超时控制
+     * 由ReconnectManager的重连线程调用；超时后才完成的握手由ConnectAttempt关闭，不会覆盖当前会话
      */
-    private void attemptConnect() throws Exception {
+    public void connect() throws Exception {
         String wsUrl = socketServerUrl.replace("http", "ws") + "/ws/agent/" + agentId;
         log.info("Attempting to connect to Socket service: {}", wsUrl);
-        
-        WebSocketClient client = new StandardWebSocketClient();
-        this.session = client.execute(this, wsUrl).get(5, TimeUnit.SECONDS);
 
-        try {
-            boolean success = connectLatch.await(5, TimeUnit.SECONDS);
-            if (!success) {
-                log.warn("WebSocket connection timeout");
-                throw new Exception("Connection timeout");
-            }
-        } catch (InterruptedException e) {
-            log.error("Interrupted while waiting for WebSocket connection", e);
-            Thread.currentThread().interrupt();
-            throw e;
-        }
+        WebSocketClient client = new StandardWebSocketClient();
+        // 会话在afterConnectionEstablished回调中保存
+        ConnectAttempt.connect(client, this, wsUrl, connectTimeoutMs);
     }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) {
-        this.session = session;
+        this.rawSession = session;
+        this.session = new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, SEND_BUFFER_SIZE_LIMIT);
         this.connected = true;
         log.info("Connected to Socket service. Session: {}", session.getId());
+        if (firstConnectionEstablished.compareAndSet(false, true)) {
+            long sinceJvmStart = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+            log.info("Time to first connection: {}ms since JVM start", sinceJvmStart);
+        }
         
         // 连接成功后，启动心跳定时任务
         heartbeatManager.startHeartbeat();
         
+        // 连接成功后，重置重连退避计数
+        reconnectManager.onConnected();
+
+        // 如果是重启后的首次连接，输出停机时间
+        restartManager.onConnected();
+
         // 连接成功后，异步查询Server上保存的同步频率配置
         querySyncFrequencyAsync();
-        
-        connectLatch.countDown();
     }
 
     /**
@@ -167,14 +183,7 @@ public class SocketClientEndpoint extends TextWebSocketHandler {
                 return;
             }
             
-            Map<String, Object> queryMessage = new HashMap<>();
-            queryMessage.put("type", "query_config");
-            queryMessage.put("agentId", agentId);
-            queryMessage.put("configType", "syncFrequency");
-            queryMessage.put("timestamp", System.currentTimeMillis());
-            
-            String messageJson = objectMapper.writeValueAsString(queryMessage);
-            session.sendMessage(new TextMessage(messageJson));
+            session.sendMessage(messageEncoder.encode(ConfigQueryMessage.of(agentId, "syncFrequency")));
             log.info("Sync frequency query sent to Socket service (agentId: {})", agentId);
         } catch (Exception e) {
             log.error("Error querying sync frequency", e);
@@ -210,11 +219,21 @@ public class SocketClientEndpoint extends TextWebSocketHandler {
 
     @Override
     public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status) {
+        if (session == retiredSession || (this.rawSession != null && this.rawSession != session)) {
+            // 主动关闭的连接或旧连接的关闭回调，状态已在close()中处理或当前已有新连接，忽略
+            log.debug("Stale session closed: {}", session.getId());
+            return;
+        }
         this.connected = false;
         log.info("Disconnected from Socket service. Reason: {}", status);
         
         // 连接关闭时停止心跳
         heartbeatManager.stopHeartbeat();
+
+        // 非主动关闭时，按退避策略重新连接
+        if (!closedByClient) {
+            reconnectManager.scheduleReconnect("connection closed: " + status);
+        }
     }
 
     @Override
@@ -252,6 +271,8 @@ public class SocketClientEndpoint extends TextWebSocketHandler {
 
     /**
      * 处理来自 Socket 的命令
+     * 先回复投递确认，再按commandId去重，首次收到的命令交给CommandExecutionManager执行
+     * 重复投递的命令不会再次执行，如果已经执行完成则重新上报结果
      */
     private void handleCommand(JsonNode messageObj) {
         try {
@@ -267,20 +288,42 @@ public class SocketClientEndpoint extends TextWebSocketHandler {
 
             log.info("Received command: id={}, type={}, content={}", commandId, commandType, commandContent);
 
-            // 执行命令
-            boolean success = executeCommand(commandType, commandContent);
-
-            // 如果有commandId，发送命令执行结果
             if (commandId > 0) {
-                sendCommandResult(commandId, success, "Command executed successfully");
-            } else {
-                log.debug("No commandId provided, skipping result reporting");
+                sendCommandAck(commandId);
+                if (!commandDeduplicator.markReceived(commandId)) {
+                    CommandDeduplicator.CompletedCommand completed = commandDeduplicator.getResult(commandId);
+                    if (completed != null) {
+                        log.info("Duplicate command delivery, resending result: id={}", commandId);
+                        sendCommandResult(commandId, completed.success(), completed.result());
+                    } else {
+                        log.info("Duplicate command delivery, command still executing: id={}", commandId);
+                    }
+                    return;
+                }
             }
+
+            final long id = commandId;
+            commandExecutionManager.submit(id, commandType,
+                    () -> executeCommand(commandType, commandContent),
+                    (success, result) -> reportCommandResult(id, success, result));
         } catch (Exception e) {
             log.error("Error handling command", e);
         }
     }
 
+    /**
+     * 命令执行结束后上报结果（在命令执行通道的线程中调用）
+     */
+    private void reportCommandResult(long commandId, boolean success, String result) {
+        // 如果有commandId，发送命令执行结果
+        if (commandId > 0) {
+            commandDeduplicator.recordResult(commandId, success, result);
+            sendCommandResult(commandId, success, result);
+        } else {
+            log.debug("No commandId provided, skipping result reporting");
+        }
+    }
+
     /**
      * 执行命令 - 根据命令类型分配处理
      */
@@ -406,19 +449,30 @@ public class SocketClientEndpoint extends TextWebSocketHandler {
                 return;
             }
             
-            Map<String, Object> heartbeat = new HashMap<>();
-            heartbeat.put("type", "heartbeat");
-            heartbeat.put("agentId", agentId);
-            heartbeat.put("timestamp", System.currentTimeMillis());
-            
-            String messageJson = objectMapper.writeValueAsString(heartbeat);
-            session.sendMessage(new TextMessage(messageJson));
+            session.sendMessage(messageEncoder.encode(HeartbeatMessage.of(agentId)));
             log.info("Heartbeat sent to Socket service (agentId: {})", agentId);
-        } catch (IOException e) {
+        } catch (Exception e) {
             log.error("Error sending heartbeat", e);
         }
     }
 
+    /**
+     * 发送命令投递确认
+     */
+    private void sendCommandAck(long commandId) {
+        try {
+            if (!isConnected()) {
+                log.warn("Cannot send command ack: not connected to Socket");
+                return;
+            }
+
+            session.sendMessage(messageEncoder.encode(CommandAckMessage.of(commandId)));
+            log.debug("Command ack sent: id={}", commandId);
+        } catch (Exception e) {
+            log.error("Error sending command ack", e);
+        }
+    }
+
     /**
      * 发送命令执行结果
      */
@@ -429,17 +483,9 @@ public class SocketClientEndpoint extends TextWebSocketHandler {
                 return;
             }
             
-            Map<String, Object> resultMessage = new HashMap<>();
-            resultMessage.put("type", "command_result");
-            resultMessage.put("commandId", commandId);
-            resultMessage.put("success", success);
-            resultMessage.put("result", result);
-            resultMessage.put("timestamp", System.currentTimeMillis());
-            
-            String messageJson = objectMapper.writeValueAsString(resultMessage);
-            session.sendMessage(new TextMessage(messageJson));
+            session.sendMessage(messageEncoder.encode(CommandResultMessage.of(commandId, success, result)));
             log.info("Command result sent: id={}, success={}", commandId, success);
-        } catch (IOException e) {
+        } catch (Exception e) {
             log.error("Error sending command result", e);
         }
     }
@@ -454,16 +500,14 @@ public class SocketClientEndpoint extends TextWebSocketHandler {
                 return;
             }
             
-            Map<String, Object> statusMessage = new HashMap<>();
-            statusMessage.put("type", "status");
-            statusMessage.put("agentId", agentId);
-            statusMessage.put("status", statusData);
-            statusMessage.put("timestamp", System.currentTimeMillis());
-            
-            String messageJson = objectMapper.writeValueAsString(statusMessage);
-            session.sendMessage(new TextMessage(messageJson));
+            session.sendMessage(messageEncoder.encode(StatusMessage.of(agentId, statusData)));
             log.debug("Status reported to Socket");
-        } catch (IOException e) {
+            if (firstHeartbeatSent.compareAndSet(false, true)) {
+                // 启动耗时基准：JVM启动到首次心跳（状态上报）发出，包含一个心跳间隔
+                long sinceJvmStart = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+                log.info("Time to first heartbeat: {}ms since JVM start", sinceJvmStart);
+            }
+        } catch (Exception e) {
             log.error("Error reporting status", e);
         }
     }
@@ -475,13 +519,33 @@ public class SocketClientEndpoint extends TextWebSocketHandler {
         return connected && session != null && session.isOpen();
     }
 
+    /**
+     * 重建Socket连接
+     * 关闭当前连接和心跳后立即重新连接，Spring容器和其他组件保持不变
+     */
+    public void restartConnection() {
+        log.info("Restarting Socket connection");
+        close();
+        connectAsync(agentId, socketServerUrl);
+    }
+
     /**
      * 关闭 WebSocket连接
+     * 主动关闭后不再自动重连
      */
     public void close() {
+        closedByClient = true;
+        reconnectManager.stop();
+        // 连接状态在这里直接清理，被关闭会话的关闭回调将被忽略
+        retiredSession = rawSession;
+        connected = false;
+        if (heartbeatManager != null) {
+            heartbeatManager.stopHeartbeat();
+        }
+        WebSocketSession closing = session;
         try {
-            if (session != null && session.isOpen()) {
-                session.close(CloseStatus.NORMAL);
+            if (closing != null && closing.isOpen()) {
+                closing.close(CloseStatus.NORMAL);
             }
         } catch (IOException e) {
             log.error("Error closing WebSocket connection", e);
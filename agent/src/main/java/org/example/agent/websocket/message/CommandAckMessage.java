@@ -0,0 +1,12 @@
+package org.example.agent.websocket.message;
+
+/**
+ * 命令投递确认消息
+ * 收到命令后立即发送，与执行结果相互独立
+ */
+public record CommandAckMessage(String type, long commandId, long timestamp) {
+
+    public static CommandAckMessage of(long commandId) {
+        return new CommandAckMessage("command_ack", commandId, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.agent.websocket.message;
+
+/**
+ * 命令执行结果消息
+ */
+public record CommandResultMessage(String type, long commandId, boolean success, String result, long timestamp) {
+
+    public static CommandResultMessage of(long commandId, boolean success, String result) {
+        return new CommandResultMessage("command_result", commandId, success, result, System.currentTimeMillis());
+    }
+}
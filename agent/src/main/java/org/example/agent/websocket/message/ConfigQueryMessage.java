@@ -0,0 +1,11 @@
+package org.example.agent.websocket.message;
+
+/**
+ * 配置查询消息
+ */
+public record ConfigQueryMessage(String type, String agentId, String configType, long timestamp) {
+
+    public static ConfigQueryMessage of(String agentId, String configType) {
+        return new ConfigQueryMessage("query_config", agentId, configType, System.currentTimeMillis());
+    }
+}
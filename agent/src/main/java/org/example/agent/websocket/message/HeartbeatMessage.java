@@ -0,0 +1,11 @@
+package org.example.agent.websocket.message;
+
+/**
+ * 心跳消息
+ */
+public record HeartbeatMessage(String type, String agentId, long timestamp) {
+
+    public static HeartbeatMessage of(String agentId) {
+        return new HeartbeatMessage("heartbeat", agentId, System.currentTimeMillis());
+    }
+}
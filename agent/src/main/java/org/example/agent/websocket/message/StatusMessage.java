@@ -0,0 +1,13 @@
+package org.example.agent.websocket.message;
+
+import java.util.Map;
+
+/**
+ * 状态上报消息，status为系统信息（磁盘、内存、CPU）
+ */
+public record StatusMessage(String type, String agentId, Map<String, Object> status, long timestamp) {
+
+    public static StatusMessage of(String agentId, Map<String, Object> status) {
+        return new StatusMessage("status", agentId, status, System.currentTimeMillis());
+    }
+}
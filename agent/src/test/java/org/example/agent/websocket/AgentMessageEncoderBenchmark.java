@@ -0,0 +1,98 @@
+package org.example.agent.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.agent.websocket.message.HeartbeatMessage;
+import org.example.agent.websocket.message.StatusMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agent出站消息序列化基准测试
+ * 对比原先每次发送构造HashMap + writeValueAsString的方式与AgentMessageEncoder，
+ * 使用GC profiler观察每次操作的分配字节数（gc.alloc.rate.norm）
+ * 运行方式：在agent模块执行 mvn test-compile 后运行本类的main方法
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgentMessageEncoderBenchmark {
+
+    private static final String AGENT_ID = "agent-benchmark-01";
+
+    private ObjectMapper objectMapper;
+    private AgentMessageEncoder encoder;
+    private Map<String, Object> statusData;
+
+    @Setup
+    public void setup() {
+        objectMapper = new ObjectMapper();
+        encoder = new AgentMessageEncoder(objectMapper);
+
+        statusData = new HashMap<>();
+        statusData.put("hostname", "benchmark-host");
+        statusData.put("ipAddress", "10.0.0.1");
+        statusData.put("cpuUsage", 37.5);
+        statusData.put("memoryUsage", 62.25);
+        statusData.put("diskUsage", 48.0);
+        statusData.put("osName", "Linux");
+        statusData.put("javaVersion", "21");
+    }
+
+    @Benchmark
+    public TextMessage heartbeatLegacy() throws Exception {
+        Map<String, Object> heartbeat = new HashMap<>();
+        heartbeat.put("type", "heartbeat");
+        heartbeat.put("agentId", AGENT_ID);
+        heartbeat.put("timestamp", System.currentTimeMillis());
+        return new TextMessage(objectMapper.writeValueAsString(heartbeat));
+    }
+
+    @Benchmark
+    public TextMessage heartbeatEncoder() throws Exception {
+        return encoder.encode(HeartbeatMessage.of(AGENT_ID));
+    }
+
+    @Benchmark
+    public TextMessage statusLegacy() throws Exception {
+        Map<String, Object> statusMessage = new HashMap<>();
+        statusMessage.put("type", "status");
+        statusMessage.put("agentId", AGENT_ID);
+        statusMessage.put("status", statusData);
+        statusMessage.put("timestamp", System.currentTimeMillis());
+        return new TextMessage(objectMapper.writeValueAsString(statusMessage));
+    }
+
+    @Benchmark
+    public TextMessage statusEncoder() throws Exception {
+        return encoder.encode(StatusMessage.of(AGENT_ID, statusData));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(AgentMessageEncoderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.agent.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.WebSocketClient;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class ConnectAttemptTests {
+
+    private final WebSocketHandler endpoint = mock(WebSocketHandler.class);
+    private final WebSocketSession session = mock(WebSocketSession.class);
+
+    @Test
+    void handshakeCompletingAfterTimeoutIsClosed() throws Exception {
+        StubClient client = new StubClient();
+
+        assertThrows(TimeoutException.class, () -> ConnectAttempt.connect(client, endpoint, "ws://socket", 20));
+        assertTrue(client.future.isCancelled());
+
+        // 握手在超时之后才完成：会话被关闭，不交给端点，其关闭回调也不会触发重连
+        client.handler.afterConnectionEstablished(session);
+        client.handler.afterConnectionClosed(session, CloseStatus.GOING_AWAY);
+
+        verify(session).close(CloseStatus.GOING_AWAY);
+        verify(endpoint, never()).afterConnectionEstablished(any());
+        verify(endpoint, never()).afterConnectionClosed(any(), any());
+    }
+
+    @Test
+    void handshakeWithinTimeoutReachesEndpoint() throws Exception {
+        StubClient client = new StubClient();
+        client.completeImmediately = session;
+
+        ConnectAttempt.connect(client, endpoint, "ws://socket", 1000);
+        client.handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+
+        verify(endpoint).afterConnectionEstablished(session);
+        verify(endpoint).afterConnectionClosed(session, CloseStatus.NORMAL);
+        verify(session, never()).close(any());
+    }
+
+    /**
+     * 只记录处理器的客户端，握手由测试代为完成
+     */
+    private static final class StubClient implements WebSocketClient {
+
+        private final CompletableFuture<WebSocketSession> future = new CompletableFuture<>();
+        private WebSocketHandler handler;
+        private WebSocketSession completeImmediately;
+
+        @Override
+        public CompletableFuture<WebSocketSession> execute(WebSocketHandler handler, String uriTemplate,
+                                                           Object... uriVariables) {
+            this.handler = handler;
+            if (completeImmediately != null) {
+                try {
+                    handler.afterConnectionEstablished(completeImmediately);
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                    return future;
+                }
+                future.complete(completeImmediately);
+            }
+            return future;
+        }
+
+        @Override
+        public CompletableFuture<WebSocketSession> execute(WebSocketHandler handler, WebSocketHttpHeaders headers,
+                                                           URI uri) {
+            return execute(handler, uri.toString());
+        }
+    }
+}
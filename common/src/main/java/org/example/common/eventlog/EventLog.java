@@ -0,0 +1,413 @@
+package org.example.common.eventlog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 嵌入式追加写事件日志（写端）
+ * 日志由若干固定大小的内存映射段文件组成，记录按偏移量寻址，无需外部消息中间件：
+ * - 追加只是一次内存拷贝，不经过系统调用
+ * - 后台线程按固定间隔批量force刷盘，崩溃时最多丢失一个刷盘间隔内的记录；force在锁外执行，不阻塞追加
+ * - 下一个段由后台线程提前预分配，段写满后滚动只需一次rename
+ * - 启动时扫描最后一个段，校验CRC并截断不完整的尾部记录
+ * 同一目录只能有一个写端；读端见{@link EventLogReader}，可以在其他进程中
+ *
+ * 保留策略（滚动后在后台线程执行）：
+ * - 段数超过maxSegments时，删除所有已登记消费者都已提交越过的最早段
+ * - 仍有消费者未读完的段继续保留并记WARN；消费者以consumers/名称.offset登记，
+ *   停用的消费者必须删除其offset文件，否则会一直为它保留段
+ * - 段数达到maxRetainedSegments硬上限时，不再等待落后的消费者，强制删除最早段并记ERROR，
+ *   落后消费者下次读取时跳到最早的可用段，被删除段中未消费的记录丢失，计入forcedDeletedSegments
+ */
+public final class EventLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(EventLog.class);
+    private static final String OFFSET_SUFFIX = ".offset";
+
+    private final Path dir;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final int maxRetainedSegments;
+    private final Deque<LogSegment> segments = new ArrayDeque<>();
+    private final ScheduledExecutorService flusher;
+    private final ExecutorService preallocator;
+    /**
+     * 已滚动但尚未刷盘的段，由下一次flush在锁外force
+     */
+    private final List<LogSegment> sealed = new ArrayList<>();
+
+    private LogSegment active;
+    private CompletableFuture<Path> nextSegment;
+    private long nextSegmentBase = -1;
+    private int position;
+    private boolean dirty;
+    private boolean closed;
+    private long forcedDeletedSegments;
+
+    private EventLog(Path dir, int segmentSize, int maxSegments, int maxRetainedSegments) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.maxRetainedSegments = Math.max(maxSegments, maxRetainedSegments);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "EventLogFlusher");
+            t.setDaemon(true);
+            return t;
+        });
+        this.preallocator = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "EventLogPreallocator");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 打开（或创建）事件日志
+     *
+     * @param dir 日志目录
+     * @param segmentSize 段文件大小（字节），按4字节对齐
+     * @param flushIntervalMs 批量刷盘间隔（毫秒）
+     * @param maxSegments 保留的段数，超出的最早段在所有消费者读完后删除
+     * @param maxRetainedSegments 为落后消费者保留的段数硬上限，达到后强制删除最早段
+     */
+    public static EventLog open(Path dir, int segmentSize, long flushIntervalMs,
+                                int maxSegments, int maxRetainedSegments) throws IOException {
+        Files.createDirectories(dir);
+        EventLog eventLog = new EventLog(dir, Math.max(64 * 1024, segmentSize & ~3),
+                Math.max(2, maxSegments), maxRetainedSegments);
+        eventLog.recover();
+        eventLog.preallocator.execute(eventLog::enforceRetention);
+        long interval = Math.max(1, flushIntervalMs);
+        eventLog.flusher.scheduleWithFixedDelay(eventLog::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        return eventLog;
+    }
+
+    /**
+     * 追加一条记录
+     *
+     * @return 记录的偏移量
+     * @throws IllegalArgumentException 记录超过单个段的容量
+     */
+    public synchronized long append(byte[] payload) {
+        if (closed) {
+            throw new IllegalStateException("Event log is closed");
+        }
+        int size = LogSegment.recordSize(payload.length);
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Record too large for segment: " + payload.length + " bytes");
+        }
+        if (position + size > active.capacity()) {
+            roll();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int recordPosition = position;
+        active.write(recordPosition, payload, (int) crc.getValue());
+        position += size;
+        dirty = true;
+        return active.baseOffset() + recordPosition;
+    }
+
+    public long append(String payload) {
+        return append(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 下一条记录将写入的偏移量
+     */
+    public synchronized long endOffset() {
+        return active.baseOffset() + position;
+    }
+
+    /**
+     * 立即刷盘
+     * 锁内只取出需要刷盘的段，force在锁外执行，刷盘期间追加不受影响；调用前已追加的记录在返回时已落盘
+     */
+    public void flush() {
+        List<LogSegment> toForce;
+        synchronized (this) {
+            if (closed || (!dirty && sealed.isEmpty())) {
+                return;
+            }
+            toForce = new ArrayList<>(sealed);
+            sealed.clear();
+            if (dirty) {
+                toForce.add(active);
+                dirty = false;
+            }
+        }
+        for (LogSegment segment : toForce) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        flusher.shutdownNow();
+        preallocator.shutdownNow();
+        log.info("Event log closed at offset {}", active.baseOffset() + position);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("Event log flush failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 滚动到下一个段，调用方需持有锁
+     * 写满的段交给刷盘线程force；下一个段通常已预分配完成，这里只做rename和映射
+     */
+    private void roll() {
+        if (position + 4 <= active.capacity()) {
+            active.writeEndMarker(position);
+        }
+        sealed.add(active);
+        long baseOffset = active.endOffset();
+        try {
+            active = LogSegment.activate(dir, takePrepared(baseOffset), baseOffset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create event log segment", e);
+        }
+        segments.addLast(active);
+        position = 0;
+        dirty = true;
+        prepareNext();
+        preallocator.execute(this::enforceRetention);
+    }
+
+    /**
+     * 获取事件日志状态：段数、保留情况、强制删除次数和各消费者的提交位置与积压
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long end;
+        synchronized (this) {
+            end = active.baseOffset() + position;
+            stats.put("endOffset", end);
+            stats.put("segments", segments.size());
+            stats.put("retainedForConsumers", Math.max(0, segments.size() - maxSegments));
+            stats.put("forcedDeletedSegments", forcedDeletedSegments);
+        }
+        stats.put("maxSegments", maxSegments);
+        stats.put("maxRetainedSegments", maxRetainedSegments);
+        Map<String, Map<String, Long>> consumers = new LinkedHashMap<>();
+        readConsumerOffsets().forEach((name, offset) -> {
+            Map<String, Long> consumer = new LinkedHashMap<>();
+            consumer.put("offset", offset);
+            consumer.put("lag", Math.max(0, end - offset));
+            consumers.put(name, consumer);
+        });
+        stats.put("consumers", consumers);
+        return stats;
+    }
+
+    /**
+     * 执行保留策略，在后台线程上运行，读取消费者offset文件和删除段文件都不占用追加锁
+     */
+    private void enforceRetention() {
+        Map<String, Long> consumers = null;
+        while (true) {
+            LogSegment oldest;
+            int count;
+            synchronized (this) {
+                count = segments.size();
+                if (closed || count <= maxSegments) {
+                    return;
+                }
+                oldest = segments.peekFirst();
+            }
+            if (consumers == null) {
+                consumers = readConsumerOffsets();
+            }
+            List<String> lagging = new ArrayList<>();
+            for (Map.Entry<String, Long> consumer : consumers.entrySet()) {
+                if (consumer.getValue() < oldest.endOffset()) {
+                    lagging.add(consumer.getKey());
+                }
+            }
+            if (!lagging.isEmpty() && count <= maxRetainedSegments) {
+                log.warn("Retaining event log segment {} for lagging consumers {} ({} segments, hard limit {})",
+                        oldest.path().getFileName(), lagging, count, maxRetainedSegments);
+                return;
+            }
+
+            synchronized (this) {
+                if (segments.peekFirst() != oldest) {
+                    return;
+                }
+                segments.pollFirst();
+                if (!lagging.isEmpty()) {
+                    forcedDeletedSegments++;
+                }
+            }
+            if (!lagging.isEmpty()) {
+                log.error("Event log reached {} retained segments, deleting {} not yet consumed by {}",
+                        maxRetainedSegments, oldest.path().getFileName(), lagging);
+            }
+            try {
+                Files.deleteIfExists(oldest.path());
+                log.info("Deleted event log segment {}", oldest.path().getFileName());
+            } catch (IOException e) {
+                log.warn("Cannot delete event log segment {}: {}", oldest.path(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 读取consumers目录下各消费者已提交的偏移量，无法解析的按0处理，即保留全部段
+     */
+    private Map<String, Long> readConsumerOffsets() {
+        Map<String, Long> offsets = new TreeMap<>();
+        Path consumersDir = dir.resolve("consumers");
+        if (!Files.isDirectory(consumersDir)) {
+            return offsets;
+        }
+        try (Stream<Path> files = Files.list(consumersDir)) {
+            for (Path file : files.filter(p -> p.getFileName().toString().endsWith(OFFSET_SUFFIX)).toList()) {
+                String name = file.getFileName().toString();
+                name = name.substring(0, name.length() - OFFSET_SUFFIX.length());
+                try {
+                    offsets.put(name, Long.parseLong(Files.readString(file, StandardCharsets.UTF_8).trim()));
+                } catch (IOException | NumberFormatException e) {
+                    log.warn("Cannot read offset of event log consumer '{}': {}", name, e.getMessage());
+                    offsets.put(name, 0L);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Cannot list event log consumers in {}: {}", consumersDir, e.getMessage());
+        }
+        return offsets;
+    }
+
+    /**
+     * 在后台预分配当前段之后的下一个段，调用方需持有锁
+     */
+    private void prepareNext() {
+        long baseOffset = active.endOffset();
+        nextSegmentBase = baseOffset;
+        nextSegment = CompletableFuture.supplyAsync(() -> {
+            try {
+                return LogSegment.prepare(dir, baseOffset, segmentSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, preallocator);
+    }
+
+    /**
+     * 取出预分配好的段文件，预分配尚未完成时等待，预分配失败时同步重新分配
+     */
+    private Path takePrepared(long baseOffset) throws IOException {
+        CompletableFuture<Path> prepared = nextSegment;
+        nextSegment = null;
+        if (prepared != null && nextSegmentBase == baseOffset) {
+            try {
+                return prepared.join();
+            } catch (CompletionException e) {
+                log.warn("Event log segment preallocation failed, allocating inline: {}", e.getCause().getMessage());
+            }
+        }
+        return LogSegment.prepare(dir, baseOffset, segmentSize);
+    }
+
+    /**
+     * 打开已有段，定位最后一个段的写入位置
+     */
+    private void recover() throws IOException {
+        // 上次运行预分配但未启用的段文件
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.filter(p -> p.getFileName().toString().endsWith(LogSegment.TMP_SUFFIX)).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        List<Long> baseOffsets = LogSegment.listBaseOffsets(dir);
+        if (baseOffsets.isEmpty()) {
+            active = LogSegment.create(dir, 0, segmentSize);
+            segments.addLast(active);
+            position = 0;
+            prepareNext();
+            log.info("Event log created at {}", dir);
+            return;
+        }
+
+        for (long baseOffset : baseOffsets) {
+            segments.addLast(LogSegment.openWritable(LogSegment.pathOf(dir, baseOffset), baseOffset));
+        }
+        active = segments.peekLast();
+        position = scanEnd(active);
+        if (position < 0) {
+            // 最后一个段已写入结束标记，从新段开始
+            position = active.capacity();
+            roll();
+        } else {
+            prepareNext();
+        }
+        log.info("Event log opened at {} ({} segments, end offset {})",
+                dir, segments.size(), active.baseOffset() + position);
+    }
+
+    /**
+     * 扫描段中有效记录的末尾位置，遇到CRC不匹配或越界的记录时截断
+     *
+     * @return 末尾位置，段已结束时返回-1
+     */
+    private static int scanEnd(LogSegment segment) {
+        int pos = 0;
+        CRC32 crc = new CRC32();
+        while (pos + LogSegment.HEADER_SIZE <= segment.capacity()) {
+            int length = segment.readLength(pos);
+            if (length == 0) {
+                return pos;
+            }
+            if (length == LogSegment.END_OF_SEGMENT) {
+                return -1;
+            }
+            int size = LogSegment.recordSize(length);
+            if (length < 0 || pos + size > segment.capacity()) {
+                log.warn("Truncating corrupt event log record at {}:{}", segment.path().getFileName(), pos);
+                segment.clearFrom(pos);
+                return pos;
+            }
+            crc.reset();
+            crc.update(segment.readPayload(pos, length));
+            if ((int) crc.getValue() != segment.readCrc(pos)) {
+                log.warn("Truncating torn event log record at {}:{}", segment.path().getFileName(), pos);
+                segment.clearFrom(pos);
+                return pos;
+            }
+            pos += size;
+        }
+        return pos;
+    }
+}
@@ -0,0 +1,185 @@
+package org.example.common.eventlog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 事件日志读端（消费者）
+ * 每个消费者按自己的进度读取，已提交的偏移量保存在日志目录下的consumers/名称.offset中，重启后从该位置继续
+ * 提交在处理完成之后进行，崩溃时最后一批记录可能被重复消费，消费逻辑需要幂等
+ * 读端只读映射段文件，可以与写端运行在不同进程中；写端按已提交的偏移量保留段，
+ * 读端仍落后于段保留范围时（写端达到保留硬上限）跳到最早的可用段
+ * 停用的消费者需要删除其offset文件，否则写端会一直为它保留段直到硬上限
+ * 单个读端实例不是线程安全的
+ */
+public final class EventLogReader implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(EventLogReader.class);
+
+    private final Path dir;
+    private final String consumerName;
+    private final Path offsetFile;
+
+    private LogSegment segment;
+    private long position;
+
+    private EventLogReader(Path dir, String consumerName, long position) {
+        this.dir = dir;
+        this.consumerName = consumerName;
+        this.offsetFile = dir.resolve("consumers").resolve(consumerName + ".offset");
+        this.position = position;
+    }
+
+    /**
+     * 打开消费者，从上次提交的偏移量继续读取
+     */
+    public static EventLogReader open(Path dir, String consumerName) throws IOException {
+        Files.createDirectories(dir.resolve("consumers"));
+        EventLogReader reader = new EventLogReader(dir, consumerName, 0);
+        if (Files.exists(reader.offsetFile)) {
+            reader.position = Long.parseLong(Files.readString(reader.offsetFile, StandardCharsets.UTF_8).trim());
+        } else {
+            // 首次打开即登记消费者，写端的保留策略从此为它保留未读的段
+            reader.commit(0);
+        }
+        log.info("Event log consumer '{}' opened at offset {}", consumerName, reader.position);
+        return reader;
+    }
+
+    /**
+     * 读取最多maxRecords条新记录，没有新记录时返回空列表
+     */
+    public List<EventRecord> poll(int maxRecords) throws IOException {
+        List<EventRecord> records = new ArrayList<>();
+        CRC32 crc = new CRC32();
+        while (records.size() < maxRecords) {
+            if (segment == null && !locateSegment()) {
+                break;
+            }
+            int pos = (int) (position - segment.baseOffset());
+            if (pos + LogSegment.HEADER_SIZE > segment.capacity()) {
+                if (!moveToNextSegment()) {
+                    break;
+                }
+                continue;
+            }
+            int length = segment.readLength(pos);
+            if (length == 0) {
+                break;
+            }
+            if (length == LogSegment.END_OF_SEGMENT) {
+                if (!moveToNextSegment()) {
+                    break;
+                }
+                continue;
+            }
+
+            int size = LogSegment.recordSize(length);
+            byte[] payload = length > 0 && pos + size <= segment.capacity() ? segment.readPayload(pos, length) : null;
+            if (payload != null) {
+                crc.reset();
+                crc.update(payload);
+            }
+            if (payload == null || (int) crc.getValue() != segment.readCrc(pos)) {
+                log.error("Corrupt event log record at offset {}, skipping rest of segment {}",
+                        position, segment.path().getFileName());
+                if (!moveToNextSegment()) {
+                    break;
+                }
+                continue;
+            }
+            records.add(new EventRecord(position, position + size, payload));
+            position += size;
+        }
+        return records;
+    }
+
+    /**
+     * 提交消费进度，之后重启从offset继续读取
+     *
+     * @param offset 下一条待处理记录的偏移量，通常为最后处理记录的nextOffset
+     */
+    public void commit(long offset) throws IOException {
+        Path tmp = offsetFile.resolveSibling(consumerName + ".offset.tmp");
+        Files.writeString(tmp, Long.toString(offset), StandardCharsets.UTF_8);
+        Files.move(tmp, offsetFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 当前读取位置
+     */
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public void close() {
+        segment = null;
+    }
+
+    /**
+     * 查找包含当前读取位置的段
+     *
+     * @return 是否找到
+     */
+    private boolean locateSegment() throws IOException {
+        List<Long> baseOffsets = LogSegment.listBaseOffsets(dir);
+        if (baseOffsets.isEmpty()) {
+            return false;
+        }
+        if (position < baseOffsets.get(0)) {
+            log.warn("Consumer '{}' offset {} is older than retained log, skipping to {}",
+                    consumerName, position, baseOffsets.get(0));
+            position = baseOffsets.get(0);
+        }
+        for (int i = baseOffsets.size() - 1; i >= 0; i--) {
+            long baseOffset = baseOffsets.get(i);
+            if (baseOffset <= position) {
+                LogSegment candidate = LogSegment.openReadOnly(LogSegment.pathOf(dir, baseOffset), baseOffset);
+                if (position < candidate.endOffset()) {
+                    segment = candidate;
+                    return true;
+                }
+                if (i + 1 < baseOffsets.size()) {
+                    // 当前位置恰好在段末尾，从下一个段开始
+                    position = baseOffsets.get(i + 1);
+                    return locateSegment();
+                }
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 切换到下一个段，写端尚未创建下一个段时保持当前位置
+     *
+     * @return 是否切换成功
+     */
+    private boolean moveToNextSegment() throws IOException {
+        long nextBase = segment.endOffset();
+        Path next = LogSegment.pathOf(dir, nextBase);
+        if (!Files.exists(next)) {
+            List<Long> baseOffsets = LogSegment.listBaseOffsets(dir);
+            if (!baseOffsets.isEmpty() && baseOffsets.get(0) > nextBase) {
+                // 下一个段已被保留策略删除
+                segment = null;
+                return locateSegment();
+            }
+            return false;
+        }
+        segment = LogSegment.openReadOnly(next, nextBase);
+        position = nextBase;
+        return true;
+    }
+}
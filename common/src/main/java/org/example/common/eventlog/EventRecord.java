@@ -0,0 +1,17 @@
+package org.example.common.eventlog;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 事件日志中的一条记录
+ *
+ * @param offset 记录在日志中的偏移量
+ * @param nextOffset 下一条记录的偏移量，处理完本条后提交该值
+ * @param payload 记录内容
+ */
+public record EventRecord(long offset, long nextOffset, byte[] payload) {
+
+    public String payloadAsString() {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,168 @@
+package org.example.common.eventlog;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 事件日志段文件
+ * 段文件以起始偏移量命名(20位十进制.log)，创建时预分配为固定大小并整体内存映射
+ * 记录格式(4字节对齐)：[int 长度][int CRC32][负载字节][填充]
+ * - 长度为0表示该位置尚未写入
+ * - 长度为-1表示段已结束，后续记录在下一个段中
+ * 长度字段最后以release语义写入，读者以acquire语义读到非0长度时负载已完整可见
+ */
+final class LogSegment {
+
+    static final int HEADER_SIZE = 8;
+    static final int END_OF_SEGMENT = -1;
+    static final String SUFFIX = ".log";
+    static final String TMP_SUFFIX = ".tmp";
+
+    private static final VarHandle INT_HANDLE =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private final long baseOffset;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+
+    private LogSegment(long baseOffset, Path path, MappedByteBuffer buffer) {
+        this.baseOffset = baseOffset;
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    /**
+     * 创建并预分配新段，先写临时文件再原子改名，读者不会看到长度不完整的段文件
+     */
+    static LogSegment create(Path dir, long baseOffset, int size) throws IOException {
+        return activate(dir, prepare(dir, baseOffset, size), baseOffset);
+    }
+
+    /**
+     * 预分配段的临时文件，耗时的分配和刷盘可以提前在后台完成
+     *
+     * @return 临时文件路径，由{@link #activate}改名为正式段
+     */
+    static Path prepare(Path dir, long baseOffset, int size) throws IOException {
+        Path tmp = dir.resolve(pathOf(dir, baseOffset).getFileName() + TMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.truncate(0);
+            channel.write(ByteBuffer.allocate(1), size - 1L);
+            channel.force(true);
+        }
+        return tmp;
+    }
+
+    /**
+     * 将预分配的临时文件原子改名为正式段并映射，只有一次rename系统调用
+     */
+    static LogSegment activate(Path dir, Path prepared, long baseOffset) throws IOException {
+        Path path = pathOf(dir, baseOffset);
+        Files.move(prepared, path, StandardCopyOption.ATOMIC_MOVE);
+        return openWritable(path, baseOffset);
+    }
+
+    static LogSegment openWritable(Path path, long baseOffset) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new LogSegment(baseOffset, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        }
+    }
+
+    static LogSegment openReadOnly(Path path, long baseOffset) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new LogSegment(baseOffset, path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    static Path pathOf(Path dir, long baseOffset) {
+        return dir.resolve(String.format("%020d%s", baseOffset, SUFFIX));
+    }
+
+    /**
+     * 列出目录中所有段的起始偏移量，升序
+     */
+    static List<Long> listBaseOffsets(Path dir) throws IOException {
+        List<Long> offsets = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return offsets;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX) && name.length() == 20 + SUFFIX.length())
+                    .forEach(name -> offsets.add(Long.parseLong(name.substring(0, 20))));
+        }
+        offsets.sort(Long::compare);
+        return offsets;
+    }
+
+    static int recordSize(int payloadLength) {
+        return (HEADER_SIZE + payloadLength + 3) & ~3;
+    }
+
+    long baseOffset() {
+        return baseOffset;
+    }
+
+    long endOffset() {
+        return baseOffset + capacity();
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int readLength(int position) {
+        return (int) INT_HANDLE.getAcquire(buffer, position);
+    }
+
+    int readCrc(int position) {
+        return buffer.getInt(position + 4);
+    }
+
+    byte[] readPayload(int position, int length) {
+        byte[] payload = new byte[length];
+        buffer.get(position + HEADER_SIZE, payload);
+        return payload;
+    }
+
+    void write(int position, byte[] payload, int crc) {
+        buffer.putInt(position + 4, crc);
+        buffer.put(position + HEADER_SIZE, payload);
+        INT_HANDLE.setRelease(buffer, position, payload.length);
+    }
+
+    void writeEndMarker(int position) {
+        INT_HANDLE.setRelease(buffer, position, END_OF_SEGMENT);
+    }
+
+    /**
+     * 清除从position开始的数据（启动恢复时截断不完整的尾部记录）
+     */
+    void clearFrom(int position) {
+        byte[] zeros = new byte[8192];
+        for (int i = position; i < buffer.capacity(); i += zeros.length) {
+            buffer.put(i, zeros, 0, Math.min(zeros.length, buffer.capacity() - i));
+        }
+    }
+
+    void force() {
+        buffer.force();
+    }
+}
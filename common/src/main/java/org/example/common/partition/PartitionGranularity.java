@@ -0,0 +1,73 @@
+package org.example.common.partition;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * RANGE分区粒度
+ * 分区名由周期起始日期按固定格式生成，字典序与时间顺序一致
+ */
+public enum PartitionGranularity {
+
+    /**
+     * 日分区，分区名pYYYYMMDD
+     */
+    DAILY(DateTimeFormatter.ofPattern("'p'yyyyMMdd"), "p\\d{8}") {
+        @Override
+        public LocalDate periodStart(LocalDate date) {
+            return date;
+        }
+
+        @Override
+        public LocalDate nextPeriod(LocalDate periodStart) {
+            return periodStart.plusDays(1);
+        }
+    },
+
+    /**
+     * 月分区，分区名pYYYYMM
+     */
+    MONTHLY(DateTimeFormatter.ofPattern("'p'yyyyMM"), "p\\d{6}") {
+        @Override
+        public LocalDate periodStart(LocalDate date) {
+            return date.withDayOfMonth(1);
+        }
+
+        @Override
+        public LocalDate nextPeriod(LocalDate periodStart) {
+            return periodStart.plusMonths(1);
+        }
+    };
+
+    private final DateTimeFormatter nameFormat;
+    private final String namePattern;
+
+    PartitionGranularity(DateTimeFormatter nameFormat, String namePattern) {
+        this.nameFormat = nameFormat;
+        this.namePattern = namePattern;
+    }
+
+    /**
+     * 包含给定日期的周期的起始日期
+     */
+    public abstract LocalDate periodStart(LocalDate date);
+
+    /**
+     * 下一个周期的起始日期，即本周期分区的上界（不含）
+     */
+    public abstract LocalDate nextPeriod(LocalDate periodStart);
+
+    /**
+     * 包含给定日期的周期对应的分区名
+     */
+    public String partitionName(LocalDate date) {
+        return periodStart(date).format(nameFormat);
+    }
+
+    /**
+     * 是否为本粒度生成的分区名，p_future等其他分区不参与维护
+     */
+    public boolean matches(String partition) {
+        return partition != null && partition.matches(namePattern);
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.common.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 日期RANGE分区维护
+ * 1. 按粒度补齐到指定日期的分区：RANGE分区只能在p_future处向后追加，早于已有最大分区的周期已被覆盖
+ * 2. 周期早于保留起点的分区整个DROP，删除旧数据不产生逐行DELETE
+ * 只处理符合粒度命名格式的分区，p_future和其他分区保持不变
+ */
+public class RangePartitionMaintainer {
+
+    private static final Logger log = LoggerFactory.getLogger(RangePartitionMaintainer.class);
+
+    private final String table;
+    private final PartitionGranularity granularity;
+    private final RangePartitionMapper mapper;
+
+    /**
+     * @param table 表名，仅用于日志，SQL中的表名由各Mapper的XML固定
+     * @param granularity 分区粒度
+     * @param mapper 该表的分区维护Mapper
+     */
+    public RangePartitionMaintainer(String table, PartitionGranularity granularity, RangePartitionMapper mapper) {
+        this.table = table;
+        this.granularity = granularity;
+        this.mapper = mapper;
+    }
+
+    /**
+     * 执行一次分区维护
+     *
+     * @param createFrom 需要有分区的最早日期
+     * @param createThrough 需要有分区的最晚日期（含）
+     * @param keepFrom 保留的最早日期，所在周期之前的分区被删除；null表示不删除
+     * @return false表示表未分区，未做任何维护
+     */
+    public boolean maintain(LocalDate createFrom, LocalDate createThrough, LocalDate keepFrom) {
+        List<String> existing = mapper.selectPartitions();
+        if (existing.isEmpty()) {
+            log.warn("{} is not partitioned, skipping partition maintenance", table);
+            return false;
+        }
+        Set<String> partitions = new HashSet<>(existing);
+
+        String latest = partitions.stream().filter(granularity::matches).max(String::compareTo).orElse("");
+        LocalDate last = granularity.periodStart(createThrough);
+        for (LocalDate period = granularity.periodStart(createFrom); !period.isAfter(last);
+             period = granularity.nextPeriod(period)) {
+            String name = granularity.partitionName(period);
+            if (name.compareTo(latest) > 0) {
+                String lessThan = granularity.nextPeriod(period).toString();
+                mapper.addPartition(name, lessThan);
+                partitions.add(name);
+                latest = name;
+                log.info("Added {} partition {} (< {})", table, name, lessThan);
+            }
+        }
+
+        if (keepFrom != null) {
+            String oldestKept = granularity.partitionName(keepFrom);
+            for (String partition : partitions) {
+                if (granularity.matches(partition) && partition.compareTo(oldestKept) < 0) {
+                    mapper.dropPartition(partition);
+                    log.info("Dropped expired {} partition {}", table, partition);
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.common.partition;
+
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 按日期RANGE分区、以p_future为最后一个分区的表的分区维护Mapper
+ * 各表的Mapper继承本接口，在自己的XML中用mapper/RangePartitionMapper.xml的SQL片段实现这三个语句
+ */
+public interface RangePartitionMapper {
+
+    /**
+     * 查询表现有分区名，按分区顺序
+     */
+    List<String> selectPartitions();
+
+    /**
+     * 从p_future拆分出新的分区
+     *
+     * @param partition 分区名，由PartitionGranularity生成
+     * @param lessThan 分区上界日期（不含），格式yyyy-MM-dd
+     */
+    void addPartition(@Param("partition") String partition, @Param("lessThan") String lessThan);
+
+    /**
+     * 删除整个分区
+     */
+    void dropPartition(@Param("partition") String partition);
+}
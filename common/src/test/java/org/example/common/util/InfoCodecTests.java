@@ -0,0 +1,47 @@
+package org.example.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InfoCodecTests {
+
+    private static final String STATUS = "{\"disk\":{\"total\":\"465.63 GB\",\"used\":\"212.40 GB\",\"usable\":\"253.23 GB\","
+            + "\"usagePercentage\":\"45.62%\"},\"memory\":{\"heap\":{\"init\":\"256.00 MB\",\"used\":\"48.17 MB\","
+            + "\"committed\":\"96.00 MB\",\"max\":\"4.00 GB\",\"usagePercentage\":\"1.18%\"},\"nonHeap\":{\"init\":\"7.31 MB\","
+            + "\"used\":\"61.02 MB\",\"committed\":\"64.50 MB\",\"max\":\"unlimited\"},\"system\":{\"total\":\"15.54 GB\","
+            + "\"used\":\"9.87 GB\",\"free\":\"5.67 GB\",\"max\":\"15.54 GB\",\"usagePercentage\":\"63.51%\"}},"
+            + "\"cpu\":{\"systemCpuUsage\":\"12.50%\",\"cpuProcessorCount\":8,\"loadAverage\":\"1.42\"}}";
+
+    @Test
+    void statusRoundTripsAndShrinks() {
+        String encoded = InfoCodec.encode(STATUS);
+
+        assertTrue(InfoCodec.isEncoded(encoded));
+        assertTrue(encoded.length() < STATUS.length() / 2);
+        assertEquals(STATUS, InfoCodec.decode(encoded));
+        // 已编码的值不会被重复编码
+        assertEquals(encoded, InfoCodec.encode(encoded));
+    }
+
+    @Test
+    void plaintextPassesThrough() {
+        // 旧数据为明文JSON，解码时原样返回
+        assertEquals(STATUS, InfoCodec.decode(STATUS));
+        assertNull(InfoCodec.encode(null));
+        assertNull(InfoCodec.decode(null));
+        assertEquals("", InfoCodec.encode(""));
+        // 压缩后不会更短的值保持明文
+        assertEquals("{}", InfoCodec.encode("{}"));
+    }
+
+    @Test
+    void corruptValueIsRejected() {
+        String encoded = InfoCodec.encode(STATUS);
+        String truncated = encoded.substring(0, encoded.length() - 8);
+        assertThrows(IllegalArgumentException.class, () -> InfoCodec.decode(truncated));
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.server.client;
+
+/**
+ * Socket服务调用熔断器
+ * - CLOSED：正常放行，连续失败达到阈值后转为OPEN
+ * - OPEN：直接拒绝调用（快速失败），经过openMs后转为HALF_OPEN
+ * - HALF_OPEN：只放行一个探测请求，成功则恢复CLOSED，失败则重新OPEN
+ * 只有网络错误、超时和Socket服务自身的5xx计为失败，Agent离线等业务性错误不影响熔断状态
+ */
+public class SocketCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+    private long rejectedCount;
+
+    public SocketCircuitBreaker(int failureThreshold, long openMs) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMs = Math.max(0, openMs);
+    }
+
+    /**
+     * 请求调用许可
+     *
+     * @return false表示熔断中，调用方应直接按失败处理
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMs) {
+                rejectedCount++;
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                rejectedCount++;
+                return false;
+            }
+            probeInFlight = true;
+        }
+        return true;
+    }
+
+    /**
+     * 取得许可后调用未实际发出时归还许可，不改变熔断状态
+     */
+    public synchronized void release() {
+        probeInFlight = false;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        state = State.CLOSED;
+    }
+
+    /**
+     * 记录一次失败
+     *
+     * @return 本次失败是否使熔断器打开
+     */
+    public synchronized boolean onFailure() {
+        probeInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+}
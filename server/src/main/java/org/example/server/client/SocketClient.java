@@ -1,38 +1,96 @@
 package org.example.server.client;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.PackedConcurrentHistogram;
+import org.example.common.context.Result;
+import org.example.server.domain.pojo.Command;
+import org.example.server.domain.vo.DeviceLiveStateVo;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.ResourceAccessException;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import jakarta.annotation.PreDestroy;
 import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Socket服务客户端
  * Server通过此客户端与Socket服务通信
  * 用于向Socket转发命令，让Socket推送给对应的Agent
+ * 基于java.net.http.HttpClient：
+ * - 优先协商HTTP/2，Socket服务不支持时自动回退HTTP/1.1；连接由客户端内部连接池复用
+ * - 连接超时和单次请求超时都有上限，Socket服务挂起时请求线程不会无限阻塞
+ * - 连续失败达到阈值后熔断，熔断期间直接返回失败，不再占用请求线程等待超时
+ * - 每类调用的时延记录到HDR直方图中，可通过/api/socket-client/stats查询
  */
 @Component
 public class SocketClient {
 
-    private final RestTemplate restTemplate;
-    private final String socketBaseUrl;
     private static final Logger log = LoggerFactory.getLogger(SocketClient.class);
 
-    public SocketClient(RestTemplate restTemplate,
-                        @Value("${socket.server.url:http://localhost:9201}") String socketBaseUrl) {
-        this.restTemplate = restTemplate;
+    /**
+     * 可记录的最大时延（微秒），超出部分按最大值记录
+     */
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.SECONDS.toMicros(60);
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final TypeReference<Result<List<DeviceLiveStateVo>>> LIVE_STATE_TYPE = new TypeReference<>() {};
+
+    private final String socketBaseUrl;
+    private final ObjectMapper objectMapper;
+    private final Duration requestTimeout;
+    private final Duration liveStateTimeout;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+    private final SocketCircuitBreaker circuitBreaker;
+    private final Map<String, Histogram> latencies = new LinkedHashMap<>();
+
+    public SocketClient(ObjectMapper objectMapper,
+                        @Value("${socket.server.url:http://localhost:9201}") String socketBaseUrl,
+                        @Value("${socket.client.connect-timeout-ms:2000}") long connectTimeoutMs,
+                        @Value("${socket.client.request-timeout-ms:5000}") long requestTimeoutMs,
+                        @Value("${socket.client.live-state-timeout-ms:300}") long liveStateTimeoutMs,
+                        @Value("${socket.client.threads:4}") int threads,
+                        @Value("${socket.client.breaker.failure-threshold:5}") int failureThreshold,
+                        @Value("${socket.client.breaker.open-ms:10000}") long openMs) {
+        this.objectMapper = objectMapper;
         this.socketBaseUrl = socketBaseUrl;
-        log.info("SocketClient initialized with server: {}", socketBaseUrl);
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.liveStateTimeout = Duration.ofMillis(Math.max(1, liveStateTimeoutMs));
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "SocketClient");
+            t.setDaemon(true);
+            return t;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(executor)
+                .build();
+        this.circuitBreaker = new SocketCircuitBreaker(failureThreshold, openMs);
+        latencies.put("forward", new PackedConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS));
+        latencies.put("forwardBatch", new PackedConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS));
+        latencies.put("liveState", new PackedConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS));
+        log.info("SocketClient initialized with server: {} (connect timeout {}ms, request timeout {}ms, live state timeout {}ms)",
+                socketBaseUrl, connectTimeoutMs, requestTimeoutMs, this.liveStateTimeout.toMillis());
     }
 
     /**
@@ -42,9 +100,30 @@ public class SocketClient {
      * @param commandId 命令ID（数据库主键）
      * @param commandType 命令类型
      * @param commandContent 命令内容
-     * @return true表示转发成功，false表示失败或Agent不在线
+     * @return true表示转发成功，false表示失败、Agent不在线或熔断中
      */
     public boolean forwardCommandToAgent(Long deviceId, Long commandId, String commandType, String commandContent) {
+        try {
+            return forwardCommandToAgentAsync(deviceId, commandId, commandType, commandContent).join();
+        } catch (CompletionException e) {
+            log.error("Unexpected error forwarding command to agent: deviceId={}, commandType={}",
+                    deviceId, commandType, e.getCause());
+            return false;
+        }
+    }
+
+    /**
+     * 异步向指定的Agent转发命令，不阻塞调用线程
+     * @return 转发结果，语义同{@link #forwardCommandToAgent}；future不会以异常结束
+     */
+    public CompletableFuture<Boolean> forwardCommandToAgentAsync(Long deviceId, Long commandId,
+                                                                 String commandType, String commandContent) {
+        if (!circuitBreaker.tryAcquire()) {
+            log.debug("Socket circuit open, command not forwarded: deviceId={}, commandType={}", deviceId, commandType);
+            return CompletableFuture.completedFuture(false);
+        }
+
+        HttpRequest request;
         try {
             URI uri = UriComponentsBuilder.fromUriString(socketBaseUrl)
                     .path("/api/socket/command/forward/{deviceId}")
@@ -57,27 +136,228 @@ public class SocketClient {
             command.put("commandContent", commandContent);
             command.put("timestamp", System.currentTimeMillis());
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(command, headers);
+            request = HttpRequest.newBuilder(uri)
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(command)))
+                    .build();
+        } catch (Exception e) {
+            // 请求未发出，归还熔断器的调用许可（半开状态下的探测名额）
+            circuitBreaker.release();
+            log.error("Cannot build forward request: deviceId={}, commandType={}", deviceId, commandType, e);
+            return CompletableFuture.completedFuture(false);
+        }
 
-            restTemplate.postForObject(uri, entity, String.class);
-            log.info("Command forwarded to agent via Socket: deviceId={}, commandType={}", deviceId, commandType);
-            return true;
-        } catch (HttpClientErrorException.NotFound e) {
-            log.debug("Agent not found or offline (expected when agent is disconnected): deviceId={}, commandType={}", deviceId, commandType);
-            return false;
-        } catch (HttpClientErrorException e) {
-            log.warn("HTTP error forwarding command to agent: deviceId={}, status={}, error={}", 
-                deviceId, e.getStatusCode(), e.getStatusText());
-            return false;
-        } catch (ResourceAccessException e) {
-            log.warn("Socket service unreachable: {}", socketBaseUrl);
-            return false;
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, error) -> {
+                    recordLatency("forward", start);
+                    if (error != null) {
+                        onTransportFailure(error);
+                        return false;
+                    }
+                    int status = response.statusCode();
+                    recordStatus(status);
+                    if (status / 100 == 2) {
+                        log.info("Command forwarded to agent via Socket: deviceId={}, commandType={}", deviceId, commandType);
+                        return true;
+                    }
+                    if (status == 404) {
+                        log.debug("Agent not found or offline (expected when agent is disconnected): deviceId={}, commandType={}",
+                                deviceId, commandType);
+                    } else {
+                        log.warn("HTTP error forwarding command to agent: deviceId={}, status={}, error={}",
+                                deviceId, status, response.body());
+                    }
+                    return false;
+                });
+    }
+
+    /**
+     * 批量向Agent转发命令，一次请求完成
+     * @param commands 待转发的命令，需包含id、deviceId、commandType、commandContent
+     * @return 命令ID到是否转发成功的映射，Socket服务不可用或熔断中时返回null
+     */
+    public Map<Long, Boolean> forwardCommandsToAgents(List<Command> commands) {
+        if (!circuitBreaker.tryAcquire()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        try {
+            List<Map<String, Object>> items = new ArrayList<>(commands.size());
+            long now = System.currentTimeMillis();
+            for (Command command : commands) {
+                Map<String, Object> payload = new HashMap<>();
+                payload.put("type", "command");
+                payload.put("commandId", command.getId());
+                payload.put("commandType", command.getCommandType());
+                payload.put("commandContent", command.getCommandContent());
+                payload.put("timestamp", now);
+                Map<String, Object> item = new HashMap<>();
+                item.put("deviceId", command.getDeviceId());
+                item.put("command", payload);
+                items.add(item);
+            }
+            URI uri = UriComponentsBuilder.fromUriString(socketBaseUrl)
+                    .path("/api/socket/command/forward/batch")
+                    .build()
+                    .toUri();
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(items)))
+                    .build();
+
+            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            recordStatus(response.statusCode());
+            if (response.statusCode() / 100 != 2) {
+                log.warn("HTTP error forwarding command batch: size={}, status={}", commands.size(), response.statusCode());
+                return null;
+            }
+            JsonNode results = objectMapper.readTree(response.body()).path("results");
+            Map<Long, Boolean> forwarded = new HashMap<>(commands.size() * 2);
+            for (int i = 0; i < commands.size(); i++) {
+                forwarded.put(commands.get(i).getId(), "FORWARDED".equals(results.path(i).path("status").asText()));
+            }
+            log.info("Command batch forwarded via Socket: size={}", commands.size());
+            return forwarded;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.release();
+            return null;
         } catch (Exception e) {
-            log.error("Unexpected error forwarding command to agent: deviceId={}, commandType={}", deviceId, commandType, e);
-            return false;
+            onTransportFailure(e);
+            return null;
+        } finally {
+            recordLatency("forwardBatch", start);
+        }
+    }
+
+    /**
+     * 异步批量获取设备实时状态，与数据库查询并行进行
+     * 实时状态只是列表和详情的补充，使用单独的短超时，Socket服务变慢时不拖慢页面请求
+     * @param deviceIds 设备ID，为null时只返回所有在线设备
+     * @return 设备ID到实时状态的映射；Socket服务不可用、熔断中或超过liveStateTimeout时以null完成，
+     *         调用方回退为数据库中的状态；future不会以异常结束
+     */
+    public CompletableFuture<Map<Long, DeviceLiveStateVo>> getLiveStatesAsync(Collection<Long> deviceIds) {
+        if (!circuitBreaker.tryAcquire()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        HttpRequest request;
+        try {
+            UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(socketBaseUrl)
+                    .path("/api/socket/live-state");
+            if (deviceIds != null) {
+                builder.queryParam("ids", deviceIds);
+            }
+            request = HttpRequest.newBuilder(builder.build().toUri())
+                    .timeout(liveStateTimeout)
+                    .GET()
+                    .build();
+        } catch (Exception e) {
+            circuitBreaker.release();
+            log.error("Cannot build live state request", e);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, error) -> {
+                    recordLatency("liveState", start);
+                    if (error != null) {
+                        onTransportFailure(error);
+                        return null;
+                    }
+                    recordStatus(response.statusCode());
+                    if (response.statusCode() / 100 != 2) {
+                        log.warn("HTTP error fetching live state from Socket: status={}", response.statusCode());
+                        return null;
+                    }
+                    return parseLiveStates(response.body());
+                })
+                // 请求超时只覆盖到收到响应头，读取响应体的时间也计入上限
+                .completeOnTimeout(null, liveStateTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private Map<Long, DeviceLiveStateVo> parseLiveStates(byte[] body) {
+        try {
+            Result<List<DeviceLiveStateVo>> result = objectMapper.readValue(body, LIVE_STATE_TYPE);
+            if (result == null || result.getData() == null) {
+                return null;
+            }
+            Map<Long, DeviceLiveStateVo> states = new HashMap<>(result.getData().size() * 2);
+            for (DeviceLiveStateVo state : result.getData()) {
+                states.put(state.getDeviceId(), state);
+            }
+            return states;
+        } catch (Exception e) {
+            log.warn("Cannot parse live state response: {}", e.getMessage());
+            return null;
         }
     }
 
+    /**
+     * 获取熔断器状态和各类调用的时延分位数，时延单位为毫秒
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("circuitState", circuitBreaker.getState());
+        stats.put("consecutiveFailures", circuitBreaker.getConsecutiveFailures());
+        stats.put("rejected", circuitBreaker.getRejectedCount());
+        Map<String, Object> latencyStats = new LinkedHashMap<>();
+        latencies.forEach((name, histogram) -> latencyStats.put(name, toStats(histogram.copy())));
+        stats.put("latency", latencyStats);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 根据响应状态码更新熔断器：Socket服务自身的5xx计为失败，
+     * 503表示单个Agent的投递队列已满，404表示Agent离线，都说明Socket服务正常
+     */
+    private void recordStatus(int status) {
+        if (status >= 500 && status != 503) {
+            if (circuitBreaker.onFailure()) {
+                log.warn("Socket circuit opened after HTTP {} from {}", status, socketBaseUrl);
+            }
+        } else {
+            circuitBreaker.onSuccess();
+        }
+    }
+
+    private void onTransportFailure(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (circuitBreaker.onFailure()) {
+            log.warn("Socket circuit opened, service unreachable: {} ({})", socketBaseUrl, cause.toString());
+        } else {
+            log.warn("Socket service unreachable: {} ({})", socketBaseUrl, cause.toString());
+        }
+    }
+
+    private void recordLatency(String name, long startNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        latencies.get(name).recordValue(Math.min(Math.max(micros, 0), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    private Map<String, Object> toStats(Histogram histogram) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", histogram.getTotalCount());
+        if (histogram.getTotalCount() == 0) {
+            return stats;
+        }
+        stats.put("minMs", histogram.getMinValue() / 1000.0);
+        stats.put("meanMs", histogram.getMean() / 1000.0);
+        stats.put("p50Ms", histogram.getValueAtPercentile(50) / 1000.0);
+        stats.put("p90Ms", histogram.getValueAtPercentile(90) / 1000.0);
+        stats.put("p99Ms", histogram.getValueAtPercentile(99) / 1000.0);
+        stats.put("p999Ms", histogram.getValueAtPercentile(99.9) / 1000.0);
+        stats.put("maxMs", histogram.getMaxValue() / 1000.0);
+        return stats;
+    }
 }
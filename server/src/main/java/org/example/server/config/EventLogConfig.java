@@ -0,0 +1,23 @@
+package org.example.server.config;
+
+import org.example.common.eventlog.EventLogReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 事件日志消费者配置
+ * 读取Socket写入的事件日志，目录需与Socket的event-log.dir一致
+ */
+@Configuration
+public class EventLogConfig {
+
+    @Bean(destroyMethod = "close")
+    public EventLogReader eventLogReader(@Value("${event-log.dir:./data/event-log}") String dir,
+                                         @Value("${event-log.consumer-name:server}") String consumerName) throws IOException {
+        return EventLogReader.open(Path.of(dir), consumerName);
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.server.controller;
+
+import org.example.common.context.Result;
+import org.example.server.domain.pojo.Command;
+import org.example.server.domain.vo.CommandPageVo;
+import org.example.server.service.CommandService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/command")
+public class CommandController {
+
+    private final CommandService commandService;
+
+    public CommandController(CommandService commandService) {
+        this.commandService = commandService;
+    }
+
+    /**
+     * 搜索命令历史
+     * 可按设备、状态、类型和创建时间范围过滤，翻页时传入上一页返回的nextCursorCreatedAt、nextCursorId
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Result<CommandPageVo>> searchCommands(
+            @RequestParam(required = false) Long deviceId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime cursorCreatedAt,
+            @RequestParam(required = false) Long cursorId,
+            @RequestParam(defaultValue = "50") int limit) {
+        Result<CommandPageVo> result = commandService.searchCommands(deviceId, status, type, from, to,
+                cursorCreatedAt, cursorId, limit);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 查询归档命令
+     * 翻页时传入上一页最后一条的createdAt和id作为cursorCreatedAt、cursorId
+     */
+    @GetMapping("/archive")
+    public ResponseEntity<Result<List<Command>>> getArchivedCommands(
+            @RequestParam(required = false) Long deviceId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime cursorCreatedAt,
+            @RequestParam(required = false) Long cursorId,
+            @RequestParam(defaultValue = "50") int limit) {
+        Result<List<Command>> result = commandService.getArchivedCommands(deviceId, from, to, cursorCreatedAt, cursorId, limit);
+        return ResponseEntity.ok(result);
+    }
+}
@@ -3,13 +3,18 @@ package org.example.server.controller;
 import org.example.common.context.Result;
 import org.example.server.domain.dto.CommandDto;
 import org.example.server.domain.dto.ConfigDto;
+import org.example.server.domain.pojo.DeviceStatusHistory;
+import org.example.server.domain.vo.CommandPageVo;
 import org.example.server.domain.vo.DeviceVo;
 import org.example.server.domain.vo.DeviceDetailVo;
+import org.example.server.service.CommandService;
 import org.example.server.service.DeviceService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletResponse;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -17,9 +22,11 @@ import java.util.List;
 public class DeviceController {
 
     private final DeviceService deviceService;
+    private final CommandService commandService;
 
-    public DeviceController(DeviceService deviceService) {
+    public DeviceController(DeviceService deviceService, CommandService commandService) {
         this.deviceService = deviceService;
+        this.commandService = commandService;
     }
 
     /**
@@ -49,6 +56,19 @@ public class DeviceController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * 搜索设备
+     * q为IPv4网段(如10.0.0.0/8)时按CIDR匹配，否则按前缀/子串匹配
+     * field可选all、name、remarkName、ip
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Result<List<DeviceVo>>> searchDevices(@RequestParam String q,
+                                                               @RequestParam(defaultValue = "all") String field,
+                                                               @RequestParam(defaultValue = "50") int limit) {
+        Result<List<DeviceVo>> result = deviceService.searchDevices(q, field, limit);
+        return ResponseEntity.ok(result);
+    }
+
     /**
      * 获取设备详细信息
      */
@@ -58,6 +78,39 @@ public class DeviceController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * 获取设备的命令历史
+     * 按创建时间倒序分页，翻页时传入上一页返回的nextCursorCreatedAt、nextCursorId
+     */
+    @GetMapping("/{id}/commands")
+    public ResponseEntity<Result<CommandPageVo>> getDeviceCommands(
+            @PathVariable Long id,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime cursorCreatedAt,
+            @RequestParam(required = false) Long cursorId,
+            @RequestParam(defaultValue = "50") int limit) {
+        Result<CommandPageVo> result = commandService.searchCommands(id, status, type, from, to,
+                cursorCreatedAt, cursorId, limit);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 获取设备的状态历史
+     * 按采样时间倒序，未指定from、to时返回最近24小时
+     */
+    @GetMapping("/{id}/status-history")
+    public ResponseEntity<Result<List<DeviceStatusHistory>>> getStatusHistory(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "1000") int limit) {
+        Result<List<DeviceStatusHistory>> result = deviceService.getStatusHistory(id, from, to, limit);
+        return ResponseEntity.ok(result);
+    }
+
     /**
      * 导出报表
      */
@@ -0,0 +1,32 @@
+package org.example.server.controller;
+
+import org.example.common.context.Result;
+import org.example.server.client.SocketClient;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Socket服务调用状态查询接口
+ */
+@RestController
+@RequestMapping("/api/socket-client")
+public class SocketClientController {
+
+    private final SocketClient socketClient;
+
+    public SocketClientController(SocketClient socketClient) {
+        this.socketClient = socketClient;
+    }
+
+    /**
+     * 获取熔断器状态和调用时延分位数（毫秒）
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Result<Map<String, Object>>> getStats() {
+        return ResponseEntity.ok(Result.success(socketClient.getStats()));
+    }
+}
@@ -13,6 +13,7 @@ public class Device {
     private Integer statusCode;
     private String info;
     private LocalDateTime lastHeartbeatAt;
+    private LocalDateTime metaUpdatedAt;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
@@ -98,6 +99,14 @@ public class Device {
         this.lastHeartbeatAt = lastHeartbeatAt;
     }
 
+    public LocalDateTime getMetaUpdatedAt() {
+        return metaUpdatedAt;
+    }
+
+    public void setMetaUpdatedAt(LocalDateTime metaUpdatedAt) {
+        this.metaUpdatedAt = metaUpdatedAt;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
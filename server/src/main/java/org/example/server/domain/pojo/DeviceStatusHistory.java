@@ -0,0 +1,88 @@
+package org.example.server.domain.pojo;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.time.LocalDateTime;
+
+/**
+ * 设备状态历史样本
+ * 由Socket状态接入路径批量写入，只追加不修改；指标为null表示该次上报中缺失
+ */
+@TableName("device_status_history")
+public class DeviceStatusHistory {
+    private Long id;
+    private Long deviceId;
+    private LocalDateTime sampledAt;
+    private Double cpuUsage;
+    private Double loadAvg;
+    private Double diskUsage;
+    private Double memoryUsage;
+    private Double heapUsage;
+
+    public DeviceStatusHistory() {
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(Long deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    public LocalDateTime getSampledAt() {
+        return sampledAt;
+    }
+
+    public void setSampledAt(LocalDateTime sampledAt) {
+        this.sampledAt = sampledAt;
+    }
+
+    public Double getCpuUsage() {
+        return cpuUsage;
+    }
+
+    public void setCpuUsage(Double cpuUsage) {
+        this.cpuUsage = cpuUsage;
+    }
+
+    public Double getLoadAvg() {
+        return loadAvg;
+    }
+
+    public void setLoadAvg(Double loadAvg) {
+        this.loadAvg = loadAvg;
+    }
+
+    public Double getDiskUsage() {
+        return diskUsage;
+    }
+
+    public void setDiskUsage(Double diskUsage) {
+        this.diskUsage = diskUsage;
+    }
+
+    public Double getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    public void setMemoryUsage(Double memoryUsage) {
+        this.memoryUsage = memoryUsage;
+    }
+
+    public Double getHeapUsage() {
+        return heapUsage;
+    }
+
+    public void setHeapUsage(Double heapUsage) {
+        this.heapUsage = heapUsage;
+    }
+}
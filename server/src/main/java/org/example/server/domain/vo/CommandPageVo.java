@@ -0,0 +1,72 @@
+package org.example.server.domain.vo;
+
+import org.example.server.domain.pojo.Command;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 命令历史分页结果
+ * 取下一页时将nextCursorCreatedAt、nextCursorId作为cursorCreatedAt、cursorId传回，hasMore为false时没有下一页
+ */
+public class CommandPageVo {
+    private List<Command> items;
+    private boolean hasMore;
+    private LocalDateTime nextCursorCreatedAt;
+    private Long nextCursorId;
+
+    public CommandPageVo() {
+    }
+
+    public CommandPageVo(List<Command> items, boolean hasMore, LocalDateTime nextCursorCreatedAt, Long nextCursorId) {
+        this.items = items;
+        this.hasMore = hasMore;
+        this.nextCursorCreatedAt = nextCursorCreatedAt;
+        this.nextCursorId = nextCursorId;
+    }
+
+    /**
+     * 由多查询一条的结果构造分页：结果数超过pageSize说明还有下一页
+     */
+    public static CommandPageVo of(List<Command> fetched, int pageSize) {
+        boolean hasMore = fetched.size() > pageSize;
+        List<Command> items = hasMore ? fetched.subList(0, pageSize) : fetched;
+        if (!hasMore || items.isEmpty()) {
+            return new CommandPageVo(items, false, null, null);
+        }
+        Command last = items.get(items.size() - 1);
+        return new CommandPageVo(items, true, last.getCreatedAt(), last.getId());
+    }
+
+    public List<Command> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Command> items) {
+        this.items = items;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public LocalDateTime getNextCursorCreatedAt() {
+        return nextCursorCreatedAt;
+    }
+
+    public void setNextCursorCreatedAt(LocalDateTime nextCursorCreatedAt) {
+        this.nextCursorCreatedAt = nextCursorCreatedAt;
+    }
+
+    public Long getNextCursorId() {
+        return nextCursorId;
+    }
+
+    public void setNextCursorId(Long nextCursorId) {
+        this.nextCursorId = nextCursorId;
+    }
+}
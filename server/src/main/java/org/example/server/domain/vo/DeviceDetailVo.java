@@ -15,6 +15,10 @@ public class DeviceDetailVo {
     private LocalDateTime lastHeartbeatAt;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    /**
+     * 实时状态，Socket服务不可用时为null
+     */
+    private DeviceLiveStateVo liveState;
     
     // 系统信息字段
     private String diskTotal;
@@ -183,6 +187,14 @@ public class DeviceDetailVo {
         this.updatedAt = updatedAt;
     }
 
+    public DeviceLiveStateVo getLiveState() {
+        return liveState;
+    }
+
+    public void setLiveState(DeviceLiveStateVo liveState) {
+        this.liveState = liveState;
+    }
+
     public String getDiskTotal() {
         return diskTotal;
     }
@@ -0,0 +1,58 @@
+package org.example.server.domain.vo;
+
+import java.util.Map;
+
+/**
+ * 设备实时状态，由Socket服务从内存中提供
+ * connectedAt、lastFrameAt为毫秒时间戳，离线时为null；metrics为最新指标（含updatedAt），从未上报过时为null
+ */
+public class DeviceLiveStateVo {
+    private Long deviceId;
+    private boolean online;
+    private Long connectedAt;
+    private Long lastFrameAt;
+    private Map<String, Object> metrics;
+
+    public DeviceLiveStateVo() {
+    }
+
+    public Long getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(Long deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public void setOnline(boolean online) {
+        this.online = online;
+    }
+
+    public Long getConnectedAt() {
+        return connectedAt;
+    }
+
+    public void setConnectedAt(Long connectedAt) {
+        this.connectedAt = connectedAt;
+    }
+
+    public Long getLastFrameAt() {
+        return lastFrameAt;
+    }
+
+    public void setLastFrameAt(Long lastFrameAt) {
+        this.lastFrameAt = lastFrameAt;
+    }
+
+    public Map<String, Object> getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(Map<String, Object> metrics) {
+        this.metrics = metrics;
+    }
+}
@@ -12,6 +12,10 @@ public class DeviceVo {
     private LocalDateTime lastHeartbeatAt;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    /**
+     * 实时状态，Socket服务不可用时为null
+     */
+    private DeviceLiveStateVo liveState;
 
     public DeviceVo() {
     }
@@ -102,6 +106,14 @@ public class DeviceVo {
         this.updatedAt = updatedAt;
     }
 
+    public DeviceLiveStateVo getLiveState() {
+        return liveState;
+    }
+
+    public void setLiveState(DeviceLiveStateVo liveState) {
+        this.liveState = liveState;
+    }
+
     public static class Builder {
         private Long id;
         private String name;
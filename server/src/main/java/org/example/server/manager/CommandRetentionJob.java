@@ -0,0 +1,157 @@
+package org.example.server.manager;
+
+import org.example.common.constant.CommandStatusConstant;
+import org.example.common.partition.PartitionGranularity;
+import org.example.common.partition.RangePartitionMaintainer;
+import org.example.server.domain.pojo.Command;
+import org.example.server.mapper.CommandArchiveMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 命令保留与归档任务
+ * 定期将创建时间早于保留期的已结束命令(completed、failed、timeout、cancelled)从commands迁移到commands_archive：
+ * 1. 按主键游标分批读取候选行，不依赖status、created_at索引，也不做全表扫描
+ * 2. 每批在一个短事务中先INSERT ... SELECT复制到归档表，再按主键DELETE，只锁定本批行；
+ *    复制和删除都重新检查状态和创建时间，复制行数与本批不符或删除行数与复制行数不符时整批回滚
+ * 3. 批次之间暂停，避免长时间占用IO和复制带宽
+ * 4. 读到创建时间晚于保留期的行后结束本轮，未结束的旧命令留在原表
+ * 归档表按月分区：每轮开始前补齐到下个月的分区，超过归档保留期的整月分区直接DROP
+ */
+@Component
+public class CommandRetentionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandRetentionJob.class);
+    private static final Set<String> FINISHED_STATUSES = Set.of(
+            CommandStatusConstant.COMPLETED,
+            CommandStatusConstant.FAILED,
+            CommandStatusConstant.TIMEOUT,
+            CommandStatusConstant.CANCELLED);
+
+    private final CommandArchiveMapper commandArchiveMapper;
+    private final RangePartitionMaintainer partitionMaintainer;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int retentionDays;
+    private final int archiveRetentionMonths;
+    private final int batchSize;
+    private final long batchPauseMs;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public CommandRetentionJob(CommandArchiveMapper commandArchiveMapper,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${command.retention.enabled:true}") boolean enabled,
+                               @Value("${command.retention.days:30}") int retentionDays,
+                               @Value("${command.retention.archive-months:0}") int archiveRetentionMonths,
+                               @Value("${command.retention.batch-size:500}") int batchSize,
+                               @Value("${command.retention.batch-pause-ms:200}") long batchPauseMs) {
+        this.commandArchiveMapper = commandArchiveMapper;
+        this.partitionMaintainer = new RangePartitionMaintainer("commands_archive",
+                PartitionGranularity.MONTHLY, commandArchiveMapper);
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.retentionDays = Math.max(1, retentionDays);
+        this.archiveRetentionMonths = Math.max(0, archiveRetentionMonths);
+        this.batchSize = Math.max(1, batchSize);
+        this.batchPauseMs = Math.max(0, batchPauseMs);
+    }
+
+    /**
+     * 执行一轮归档，默认每天凌晨3点
+     */
+    @Scheduled(cron = "${command.retention.cron:0 0 3 * * *}")
+    public void archiveExpiredCommands() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            maintainPartitions();
+            runArchive(LocalDateTime.now().minusDays(retentionDays));
+        } catch (Exception e) {
+            log.error("Command retention job failed", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void runArchive(LocalDateTime cutoff) throws InterruptedException {
+        long startNanos = System.nanoTime();
+        long afterId = 0;
+        long archived = 0;
+        int batches = 0;
+
+        while (true) {
+            List<Command> candidates = commandArchiveMapper.selectRetentionCandidates(afterId, batchSize);
+            if (candidates.isEmpty()) {
+                break;
+            }
+
+            List<Long> ids = new ArrayList<>();
+            boolean reachedCutoff = false;
+            for (Command command : candidates) {
+                if (command.getCreatedAt() != null && !command.getCreatedAt().isBefore(cutoff)) {
+                    // 主键随插入时间递增，之后的行都在保留期内
+                    reachedCutoff = true;
+                    break;
+                }
+                if (command.getStatus() != null && FINISHED_STATUSES.contains(command.getStatus())) {
+                    ids.add(command.getId());
+                }
+            }
+            afterId = candidates.get(candidates.size() - 1).getId();
+
+            if (!ids.isEmpty()) {
+                Integer moved = transactionTemplate.execute(status -> {
+                    int copied = commandArchiveMapper.copyToArchive(ids, FINISHED_STATUSES, cutoff);
+                    if (copied != ids.size()) {
+                        // 读取候选行之后有行被修改或删除，本批留到下一轮重新判断
+                        status.setRollbackOnly();
+                        log.warn("Archive copy count mismatch in batch from id {}: expected {}, copied {}, batch rolled back",
+                                ids.get(0), ids.size(), copied);
+                        return 0;
+                    }
+                    int deleted = commandArchiveMapper.deleteArchivable(ids, FINISHED_STATUSES, cutoff);
+                    if (deleted != copied) {
+                        status.setRollbackOnly();
+                        log.warn("Archive delete count mismatch in batch from id {}: copied {}, deleted {}, batch rolled back",
+                                ids.get(0), copied, deleted);
+                        return 0;
+                    }
+                    return deleted;
+                });
+                archived += moved != null ? moved : 0;
+                batches++;
+                if (batchPauseMs > 0) {
+                    Thread.sleep(batchPauseMs);
+                }
+            }
+            if (reachedCutoff || candidates.size() < batchSize) {
+                break;
+            }
+        }
+
+        log.info("Command retention finished: archived {} commands older than {} in {} batches ({}ms)",
+                archived, cutoff, batches, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    /**
+     * 补齐归档表的月分区到下个月，并删除超过归档保留期的分区
+     * 归档的最早数据从保留期外开始，分区从该月补齐
+     */
+    private void maintainPartitions() {
+        LocalDate today = LocalDate.now();
+        partitionMaintainer.maintain(today.minusDays(retentionDays), today.plusMonths(1),
+                archiveRetentionMonths > 0 ? today.minusMonths(archiveRetentionMonths) : null);
+    }
+}
@@ -0,0 +1,500 @@
+package org.example.server.manager;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import org.example.server.domain.pojo.Device;
+import org.example.server.mapper.DeviceMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 设备搜索内存索引
+ * 对name、remark_name、ip_address建立倒排索引，支持三种匹配方式：
+ * 1. 前缀匹配 - 查询词少于3个字符时，通过有序词表(TreeMap)按前缀范围查找
+ * 2. 子串匹配 - 查询词拆成三元组(trigram)，取倒排表最短的三元组作为候选集，再逐个校验
+ * 3. CIDR匹配 - 查询词为IPv4网段(如10.0.0.0/8)时，按掩码扫描IPv4整数数组
+ * 索引定期按meta_updated_at增量刷新（只在三个索引字段变化时刷新，不受心跳和状态写入影响），
+ * 并定期全量重建以清理已删除设备和过期的倒排项
+ */
+@Component
+public class DeviceSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceSearchIndex.class);
+
+    public static final String FIELD_ALL = "all";
+    public static final String FIELD_NAME = "name";
+    public static final String FIELD_REMARK_NAME = "remarkName";
+    public static final String FIELD_IP = "ip";
+
+    private static final int LOAD_BATCH_SIZE = 10000;
+
+    private final DeviceMapper deviceMapper;
+    private final long rebuildIntervalMs;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private IndexData data = new IndexData(0);
+    private volatile boolean loaded = false;
+    private LocalDateTime lastMetaUpdatedAt;
+    private long lastRebuildAt;
+
+    public DeviceSearchIndex(DeviceMapper deviceMapper,
+                             @Value("${device.search.rebuild-interval-ms:600000}") long rebuildIntervalMs) {
+        this.deviceMapper = deviceMapper;
+        this.rebuildIntervalMs = rebuildIntervalMs;
+    }
+
+    /**
+     * 搜索设备
+     *
+     * @param query 查询词，IPv4网段格式时按CIDR匹配，否则按前缀/子串匹配（忽略大小写）
+     * @param field 匹配字段：all、name、remarkName、ip
+     * @param limit 最多返回的结果数
+     * @return 匹配的设备ID，按索引顺序排列
+     */
+    public List<Long> search(String query, String field, int limit) {
+        List<Long> result = new ArrayList<>();
+        if (query == null || query.isBlank() || limit <= 0) {
+            return result;
+        }
+        String normalized = query.trim().toLowerCase(Locale.ROOT);
+        String matchField = field == null ? FIELD_ALL : field;
+
+        lock.readLock().lock();
+        try {
+            int[] cidr = parseCidr(normalized);
+            if (cidr != null) {
+                searchCidr(cidr[0], cidr[1], limit, result);
+            } else if (normalized.length() < 3) {
+                searchPrefix(normalized, matchField, limit, result);
+            } else {
+                searchSubstring(normalized, matchField, limit, result);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * 当前索引中的设备数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return data.ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 定期刷新索引
+     * 首次执行和到达重建间隔时全量重建，其余时候按meta_updated_at增量更新
+     */
+    @Scheduled(fixedDelayString = "${device.search.refresh-interval-ms:5000}")
+    public void refresh() {
+        try {
+            if (!loaded || System.currentTimeMillis() - lastRebuildAt >= rebuildIntervalMs) {
+                rebuild();
+            } else {
+                applyChanges();
+            }
+        } catch (Exception e) {
+            log.error("Error refreshing device search index", e);
+        }
+    }
+
+    /**
+     * 全量重建索引
+     * 新索引在锁外构建，完成后整体替换，重建期间查询不受影响
+     */
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        IndexData rebuilt = new IndexData(1024);
+        LocalDateTime maxMetaUpdatedAt = null;
+        long lastId = 0;
+        while (true) {
+            List<Device> batch = deviceMapper.selectList(indexColumns()
+                    .gt("id", lastId)
+                    .orderByAsc("id")
+                    .last("LIMIT " + LOAD_BATCH_SIZE));
+            for (Device device : batch) {
+                rebuilt.upsert(device);
+                maxMetaUpdatedAt = later(maxMetaUpdatedAt, device.getMetaUpdatedAt());
+            }
+            if (batch.size() < LOAD_BATCH_SIZE) {
+                break;
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+
+        lock.writeLock().lock();
+        try {
+            data = rebuilt;
+            lastMetaUpdatedAt = maxMetaUpdatedAt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        loaded = true;
+        lastRebuildAt = System.currentTimeMillis();
+        log.info("Device search index rebuilt: {} devices in {}ms", rebuilt.ordinals.size(), lastRebuildAt - start);
+    }
+
+    /**
+     * 增量应用自上次刷新以来变更的设备
+     * 使用>=并按ID去重，与上次最大值同一时刻的变更不会遗漏
+     */
+    private void applyChanges() {
+        LocalDateTime since = lastMetaUpdatedAt;
+        long lastId = 0;
+        int changed = 0;
+        LocalDateTime maxMetaUpdatedAt = since;
+        while (true) {
+            QueryWrapper<Device> wrapper = indexColumns();
+            if (since != null) {
+                wrapper.ge("meta_updated_at", since);
+            }
+            List<Device> batch = deviceMapper.selectList(wrapper
+                    .gt("id", lastId)
+                    .orderByAsc("id")
+                    .last("LIMIT " + LOAD_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+            lock.writeLock().lock();
+            try {
+                for (Device device : batch) {
+                    if (data.upsert(device)) {
+                        changed++;
+                    }
+                    maxMetaUpdatedAt = later(maxMetaUpdatedAt, device.getMetaUpdatedAt());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (batch.size() < LOAD_BATCH_SIZE) {
+                break;
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+        lastMetaUpdatedAt = maxMetaUpdatedAt;
+        if (changed > 0) {
+            log.debug("Device search index updated: {} devices changed", changed);
+        }
+    }
+
+    private QueryWrapper<Device> indexColumns() {
+        QueryWrapper<Device> wrapper = new QueryWrapper<>();
+        wrapper.select("id", "name", "remark_name", "ip_address", "meta_updated_at");
+        return wrapper;
+    }
+
+    private void searchPrefix(String prefix, String field, int limit, List<Long> result) {
+        BitSet seen = new BitSet();
+        for (IntList ordinals : data.terms.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+            for (int i = 0; i < ordinals.size && result.size() < limit; i++) {
+                int ordinal = ordinals.values[i];
+                if (!seen.get(ordinal) && data.matchesPrefix(ordinal, prefix, field)) {
+                    seen.set(ordinal);
+                    result.add(data.ids[ordinal]);
+                }
+            }
+            if (result.size() >= limit) {
+                return;
+            }
+        }
+    }
+
+    private void searchSubstring(String query, String field, int limit, List<Long> result) {
+        // 选择倒排表最短的三元组作为候选集，任一三元组不存在则无结果
+        IntList candidates = null;
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            IntList postings = data.trigrams.get(trigramKey(query, i));
+            if (postings == null) {
+                return;
+            }
+            if (candidates == null || postings.size < candidates.size) {
+                candidates = postings;
+            }
+        }
+        if (candidates == null) {
+            return;
+        }
+
+        BitSet seen = new BitSet();
+        for (int i = 0; i < candidates.size && result.size() < limit; i++) {
+            int ordinal = candidates.values[i];
+            if (seen.get(ordinal)) {
+                continue;
+            }
+            seen.set(ordinal);
+            // 倒排表只追加不删除，候选项需要按当前值校验
+            if (data.matchesSubstring(ordinal, query, field)) {
+                result.add(data.ids[ordinal]);
+            }
+        }
+    }
+
+    private void searchCidr(int network, int mask, int limit, List<Long> result) {
+        int[] ipv4 = data.ipv4;
+        boolean[] hasIpv4 = data.hasIpv4;
+        int size = data.size;
+        for (int ordinal = 0; ordinal < size && result.size() < limit; ordinal++) {
+            if (hasIpv4[ordinal] && (ipv4[ordinal] & mask) == network) {
+                result.add(data.ids[ordinal]);
+            }
+        }
+    }
+
+    /**
+     * 解析CIDR格式的查询词
+     *
+     * @return [网络地址, 掩码]，不是CIDR格式时返回null
+     */
+    static int[] parseCidr(String query) {
+        int slash = query.indexOf('/');
+        if (slash <= 0) {
+            return null;
+        }
+        Integer address = parseIpv4(query.substring(0, slash));
+        if (address == null) {
+            return null;
+        }
+        int prefixLength;
+        try {
+            prefixLength = Integer.parseInt(query.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (prefixLength < 0 || prefixLength > 32) {
+            return null;
+        }
+        int mask = prefixLength == 0 ? 0 : -1 << (32 - prefixLength);
+        return new int[]{address & mask, mask};
+    }
+
+    /**
+     * 解析IPv4地址，忽略":端口"后缀
+     *
+     * @return 32位整数形式的地址，不是IPv4地址时返回null
+     */
+    static Integer parseIpv4(String text) {
+        if (text == null) {
+            return null;
+        }
+        int colon = text.indexOf(':');
+        if (colon >= 0 && text.indexOf(':', colon + 1) < 0) {
+            text = text.substring(0, colon);
+        }
+        String[] parts = text.split("\\.", -1);
+        if (parts.length != 4) {
+            return null;
+        }
+        int address = 0;
+        for (String part : parts) {
+            if (part.isEmpty() || part.length() > 3) {
+                return null;
+            }
+            int octet;
+            try {
+                octet = Integer.parseInt(part);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (octet < 0 || octet > 255) {
+                return null;
+            }
+            address = (address << 8) | octet;
+        }
+        return address;
+    }
+
+    private static long trigramKey(String text, int offset) {
+        return ((long) text.charAt(offset) << 32) | ((long) text.charAt(offset + 1) << 16) | text.charAt(offset + 2);
+    }
+
+    private static LocalDateTime later(LocalDateTime a, LocalDateTime b) {
+        if (a == null) {
+            return b;
+        }
+        return b != null && b.isAfter(a) ? b : a;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 索引数据，设备按稠密序号(ordinal)存放在并行数组中
+     */
+    private static class IndexData {
+        private final Map<Long, Integer> ordinals = new HashMap<>();
+        private final Map<Long, IntList> trigrams = new HashMap<>();
+        private final TreeMap<String, IntList> terms = new TreeMap<>();
+
+        private long[] ids;
+        private String[] names;
+        private String[] remarkNames;
+        private String[] ips;
+        private int[] ipv4;
+        private boolean[] hasIpv4;
+        private int size;
+
+        private IndexData(int capacity) {
+            int initial = Math.max(16, capacity);
+            ids = new long[initial];
+            names = new String[initial];
+            remarkNames = new String[initial];
+            ips = new String[initial];
+            ipv4 = new int[initial];
+            hasIpv4 = new boolean[initial];
+        }
+
+        /**
+         * 新增或更新设备
+         *
+         * @return true表示索引内容发生变化
+         */
+        private boolean upsert(Device device) {
+            String name = normalize(device.getName());
+            String remarkName = normalize(device.getRemarkName());
+            String ip = normalize(device.getIpAddress());
+
+            Integer existing = ordinals.get(device.getId());
+            int ordinal;
+            if (existing == null) {
+                ordinal = size++;
+                ensureCapacity(size);
+                ids[ordinal] = device.getId();
+                ordinals.put(device.getId(), ordinal);
+            } else {
+                ordinal = existing;
+                if (Objects.equals(name, names[ordinal]) && Objects.equals(remarkName, remarkNames[ordinal])
+                        && Objects.equals(ip, ips[ordinal])) {
+                    return false;
+                }
+            }
+
+            names[ordinal] = updateField(ordinal, names[ordinal], name);
+            remarkNames[ordinal] = updateField(ordinal, remarkNames[ordinal], remarkName);
+            ips[ordinal] = updateField(ordinal, ips[ordinal], ip);
+            Integer address = parseIpv4(ip);
+            hasIpv4[ordinal] = address != null;
+            ipv4[ordinal] = address != null ? address : 0;
+            return true;
+        }
+
+        /**
+         * 更新单个字段的词表和三元组倒排表
+         * 旧值的三元组不从倒排表中删除，查询时按当前值校验；只为新值中新出现的三元组追加倒排项
+         */
+        private String updateField(int ordinal, String oldValue, String newValue) {
+            if (Objects.equals(oldValue, newValue)) {
+                return newValue;
+            }
+            if (oldValue != null) {
+                IntList termOrdinals = terms.get(oldValue);
+                if (termOrdinals != null) {
+                    termOrdinals.remove(ordinal);
+                    if (termOrdinals.size == 0) {
+                        terms.remove(oldValue);
+                    }
+                }
+            }
+            if (newValue != null && !newValue.isEmpty()) {
+                terms.computeIfAbsent(newValue, k -> new IntList(1)).add(ordinal);
+                for (int i = 0; i + 3 <= newValue.length(); i++) {
+                    if (oldValue != null && oldValue.contains(newValue.substring(i, i + 3))) {
+                        continue;
+                    }
+                    trigrams.computeIfAbsent(trigramKey(newValue, i), k -> new IntList(4)).add(ordinal);
+                }
+            }
+            return newValue;
+        }
+
+        private boolean matchesPrefix(int ordinal, String prefix, String field) {
+            return switch (field) {
+                case FIELD_NAME -> startsWith(names[ordinal], prefix);
+                case FIELD_REMARK_NAME -> startsWith(remarkNames[ordinal], prefix);
+                case FIELD_IP -> startsWith(ips[ordinal], prefix);
+                default -> startsWith(names[ordinal], prefix) || startsWith(remarkNames[ordinal], prefix)
+                        || startsWith(ips[ordinal], prefix);
+            };
+        }
+
+        private boolean matchesSubstring(int ordinal, String query, String field) {
+            return switch (field) {
+                case FIELD_NAME -> contains(names[ordinal], query);
+                case FIELD_REMARK_NAME -> contains(remarkNames[ordinal], query);
+                case FIELD_IP -> contains(ips[ordinal], query);
+                default -> contains(names[ordinal], query) || contains(remarkNames[ordinal], query)
+                        || contains(ips[ordinal], query);
+            };
+        }
+
+        private static boolean startsWith(String value, String prefix) {
+            return value != null && value.startsWith(prefix);
+        }
+
+        private static boolean contains(String value, String query) {
+            return value != null && value.contains(query);
+        }
+
+        private void ensureCapacity(int required) {
+            if (required <= ids.length) {
+                return;
+            }
+            int capacity = Math.max(required, ids.length + (ids.length >> 1));
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            remarkNames = Arrays.copyOf(remarkNames, capacity);
+            ips = Arrays.copyOf(ips, capacity);
+            ipv4 = Arrays.copyOf(ipv4, capacity);
+            hasIpv4 = Arrays.copyOf(hasIpv4, capacity);
+        }
+    }
+
+    /**
+     * 可增长的int数组，用作倒排表
+     */
+    private static class IntList {
+        private int[] values;
+        private int size;
+
+        private IntList(int capacity) {
+            values = new int[capacity];
+        }
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.max(4, size << 1));
+            }
+            values[size++] = value;
+        }
+
+        private void remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    System.arraycopy(values, i + 1, values, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+    }
+}
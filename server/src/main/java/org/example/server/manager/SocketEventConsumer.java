@@ -0,0 +1,131 @@
+package org.example.server.manager;
+
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.common.constant.CommandStatusConstant;
+import org.example.common.eventlog.EventLogReader;
+import org.example.common.eventlog.EventRecord;
+import org.example.server.domain.pojo.Command;
+import org.example.server.mapper.CommandMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Socket事件消费者
+ * 按自己的进度读取Socket写入的事件日志：
+ * - command_result：更新commands表中对应命令的状态、结果和执行时间；
+ *   Socket放弃投递的命令带有status(timeout/failed)，只更新仍处于pending/executing的命令
+ * - device_connected / device_disconnected：设备状态已由Socket写入devices表，这里只记录日志
+ * 每批记录在一个事务中处理完成后再提交偏移量；重启后可能重复处理最后一批，命令结果更新是幂等的
+ * 这是命令结果写回commands表的唯一路径，消费者必须运行
+ */
+@Component
+public class SocketEventConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(SocketEventConsumer.class);
+
+    private final EventLogReader eventLogReader;
+    private final CommandMapper commandMapper;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    public SocketEventConsumer(EventLogReader eventLogReader,
+                               CommandMapper commandMapper,
+                               ObjectMapper objectMapper,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${event-log.batch-size:500}") int batchSize,
+                               @Value("${event-log.max-batches-per-run:20}") int maxBatchesPerRun) {
+        this.eventLogReader = eventLogReader;
+        this.commandMapper = commandMapper;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+    }
+
+    /**
+     * 拉取并处理新事件，没有新事件时立即返回
+     */
+    @Scheduled(fixedDelayString = "${event-log.poll-interval-ms:200}")
+    public void consume() {
+        try {
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                List<EventRecord> records = eventLogReader.poll(batchSize);
+                if (records.isEmpty()) {
+                    return;
+                }
+                handleBatch(records);
+                eventLogReader.commit(records.get(records.size() - 1).nextOffset());
+            }
+        } catch (Exception e) {
+            log.error("Error consuming socket events at offset {}", eventLogReader.position(), e);
+        }
+    }
+
+    private void handleBatch(List<EventRecord> records) {
+        List<JsonNode> commandResults = new ArrayList<>();
+        for (EventRecord record : records) {
+            JsonNode event;
+            try {
+                event = objectMapper.readTree(record.payload());
+            } catch (Exception e) {
+                log.warn("Skipping unreadable socket event at offset {}", record.offset());
+                continue;
+            }
+            String type = event.path("type").asText();
+            switch (type) {
+                case "command_result":
+                    commandResults.add(event);
+                    break;
+                case "device_connected":
+                case "device_disconnected":
+                    log.debug("Socket event {}: device={}, agent={}", type,
+                            event.path("deviceId").asLong(), event.path("agentName").asText());
+                    break;
+                default:
+                    log.debug("Unknown socket event type at offset {}: {}", record.offset(), type);
+            }
+        }
+
+        if (!commandResults.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> commandResults.forEach(this::applyCommandResult));
+            log.debug("Applied {} command results from socket events", commandResults.size());
+        }
+    }
+
+    private void applyCommandResult(JsonNode event) {
+        long commandId = event.path("commandId").asLong();
+        if (commandId <= 0) {
+            return;
+        }
+        LocalDateTime executedAt = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(event.path("timestamp").asLong(System.currentTimeMillis())), ZoneId.systemDefault());
+        UpdateWrapper<Command> updateWrapper = new UpdateWrapper<>();
+        updateWrapper.eq("id", commandId);
+        String status = event.path("status").asText(null);
+        if (status != null) {
+            // Socket放弃投递(timeout/failed)：Agent可能已经上报过真实结果，只更新尚未结束的命令
+            updateWrapper.in("status", CommandStatusConstant.PENDING, CommandStatusConstant.EXECUTING);
+        } else {
+            status = event.path("success").asBoolean() ? CommandStatusConstant.COMPLETED : CommandStatusConstant.FAILED;
+        }
+        updateWrapper.set("status", status)
+                .set("result", event.path("result").asText(null))
+                .set("executed_at", executedAt)
+                .set("updated_at", LocalDateTime.now());
+        commandMapper.update(null, updateWrapper);
+    }
+}
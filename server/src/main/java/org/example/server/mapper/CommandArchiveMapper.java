@@ -0,0 +1,67 @@
+package org.example.server.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.example.common.partition.RangePartitionMapper;
+import org.example.server.domain.pojo.Command;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 命令归档Mapper
+ * 负责commands到commands_archive的批量迁移、归档表分区维护和归档查询
+ * 分区维护语句继承自RangePartitionMapper，归档表按月分区
+ */
+@Mapper
+public interface CommandArchiveMapper extends RangePartitionMapper {
+
+    /**
+     * 按主键顺序读取一段命令，只取判断是否可归档所需的列
+     * 纯主键范围扫描，不依赖status、created_at上的索引
+     *
+     * @param afterId 上一批最后一个ID（不含）
+     * @param limit 最多读取的行数
+     * @return 只包含id、status、createdAt的命令列表
+     */
+    List<Command> selectRetentionCandidates(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * 将指定命令中仍满足归档条件的行复制到归档表
+     *
+     * @param ids 命令ID
+     * @param statuses 可归档的状态
+     * @param cutoff 创建时间上限（不含）
+     * @return 复制的行数
+     */
+    int copyToArchive(@Param("ids") Collection<Long> ids,
+                      @Param("statuses") Collection<String> statuses,
+                      @Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * 从commands中删除指定命令中仍满足归档条件的行，条件与copyToArchive相同
+     *
+     * @return 删除的行数
+     */
+    int deleteArchivable(@Param("ids") Collection<Long> ids,
+                         @Param("statuses") Collection<String> statuses,
+                         @Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * 查询归档命令，按created_at、id倒序，以(created_at, id)为游标分页
+     *
+     * @param deviceId 设备ID，可为null
+     * @param from 创建时间下限（含），可为null
+     * @param to 创建时间上限（不含），可为null
+     * @param cursorCreatedAt 上一页最后一条的创建时间，可为null
+     * @param cursorId 上一页最后一条的ID，与cursorCreatedAt同时使用
+     * @param limit 每页条数
+     */
+    List<Command> selectArchived(@Param("deviceId") Long deviceId,
+                                 @Param("from") LocalDateTime from,
+                                 @Param("to") LocalDateTime to,
+                                 @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                 @Param("cursorId") Long cursorId,
+                                 @Param("limit") int limit);
+}
@@ -2,9 +2,34 @@ package org.example.server.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.example.server.domain.pojo.Command;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Mapper
 public interface CommandMapper extends BaseMapper<Command> {
 
+    /**
+     * 查询命令历史，按created_at、id倒序，以(created_at, id)为游标分页
+     * 先在覆盖索引上定位本页ID，再按主键回表取整行，翻页深度不影响耗时
+     *
+     * @param deviceId 设备ID，可为null表示所有设备
+     * @param status 命令状态，可为null
+     * @param commandType 命令类型，可为null
+     * @param from 创建时间下限（含），可为null
+     * @param to 创建时间上限（不含），可为null
+     * @param cursorCreatedAt 上一页最后一条的创建时间，可为null
+     * @param cursorId 上一页最后一条的ID，与cursorCreatedAt同时使用
+     * @param limit 每页条数
+     */
+    List<Command> selectHistoryPage(@Param("deviceId") Long deviceId,
+                                    @Param("status") String status,
+                                    @Param("commandType") String commandType,
+                                    @Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to,
+                                    @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                    @Param("cursorId") Long cursorId,
+                                    @Param("limit") int limit);
 }
@@ -0,0 +1,29 @@
+package org.example.server.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.example.server.domain.pojo.DeviceStatusHistory;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 设备状态历史Mapper（只读，写入由Socket服务完成）
+ */
+@Mapper
+public interface DeviceStatusHistoryMapper {
+
+    /**
+     * 查询设备在时间范围内的状态样本，按采样时间倒序
+     * sampled_at范围条件使MySQL只访问相关日分区
+     *
+     * @param deviceId 设备ID
+     * @param from 采样时间下限（含）
+     * @param to 采样时间上限（不含）
+     * @param limit 最多返回的样本数
+     */
+    List<DeviceStatusHistory> selectByDevice(@Param("deviceId") Long deviceId,
+                                             @Param("from") LocalDateTime from,
+                                             @Param("to") LocalDateTime to,
+                                             @Param("limit") int limit);
+}
@@ -0,0 +1,28 @@
+package org.example.server.service;
+
+import org.example.common.context.Result;
+import org.example.server.domain.pojo.Command;
+import org.example.server.domain.vo.CommandPageVo;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface CommandService {
+
+    /**
+     * 查询命令历史
+     * 可按设备、状态、类型和创建时间范围过滤，按创建时间倒序，以上一页最后一条的(createdAt, id)为游标翻页
+     *
+     * @param deviceId 设备ID，为null时查询所有设备
+     */
+    Result<CommandPageVo> searchCommands(Long deviceId, String status, String commandType,
+                                         LocalDateTime from, LocalDateTime to,
+                                         LocalDateTime cursorCreatedAt, Long cursorId, int limit);
+
+    /**
+     * 查询归档命令
+     * 按创建时间倒序，以上一页最后一条的(createdAt, id)为游标翻页
+     */
+    Result<List<Command>> getArchivedCommands(Long deviceId, LocalDateTime from, LocalDateTime to,
+                                              LocalDateTime cursorCreatedAt, Long cursorId, int limit);
+}
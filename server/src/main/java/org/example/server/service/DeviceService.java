@@ -5,9 +5,11 @@ import org.example.common.context.Result;
 import org.example.server.domain.dto.CommandDto;
 import org.example.server.domain.dto.ConfigDto;
 import org.example.server.domain.pojo.Device;
+import org.example.server.domain.pojo.DeviceStatusHistory;
 import org.example.server.domain.vo.DeviceVo;
 import org.example.server.domain.vo.DeviceDetailVo;
 import jakarta.servlet.http.HttpServletResponse;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface DeviceService extends IService<Device> {
@@ -27,11 +29,23 @@ public interface DeviceService extends IService<Device> {
      */
     Result<List<DeviceVo>> getDeviceList();
 
+    /**
+     * 搜索设备
+     * 按名称、备注名、IP前缀/子串或IPv4网段匹配
+     */
+    Result<List<DeviceVo>> searchDevices(String query, String field, int limit);
+
     /**
      * 获取设备详细信息
      */
     Result<DeviceDetailVo> getDeviceDetail(Long deviceId);
 
+    /**
+     * 查询设备状态历史
+     * 按采样时间倒序，from、to为空时查询最近24小时
+     */
+    Result<List<DeviceStatusHistory>> getStatusHistory(Long deviceId, LocalDateTime from, LocalDateTime to, int limit);
+
     /**
      * 导出 Excel报表
      */
@@ -0,0 +1,71 @@
+package org.example.server.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import org.example.common.context.Result;
+import org.example.common.enums.ResultCode;
+import org.example.server.domain.pojo.Command;
+import org.example.server.domain.pojo.Device;
+import org.example.server.domain.vo.CommandPageVo;
+import org.example.server.mapper.CommandArchiveMapper;
+import org.example.server.mapper.CommandMapper;
+import org.example.server.mapper.DeviceMapper;
+import org.example.server.service.CommandService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+public class CommandServiceImpl implements CommandService {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandServiceImpl.class);
+
+    /**
+     * 单页最多返回的命令数
+     */
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final CommandMapper commandMapper;
+    private final CommandArchiveMapper commandArchiveMapper;
+    private final DeviceMapper deviceMapper;
+
+    public CommandServiceImpl(CommandMapper commandMapper, CommandArchiveMapper commandArchiveMapper,
+                              DeviceMapper deviceMapper) {
+        this.commandMapper = commandMapper;
+        this.commandArchiveMapper = commandArchiveMapper;
+        this.deviceMapper = deviceMapper;
+    }
+
+    @Override
+    public Result<CommandPageVo> searchCommands(Long deviceId, String status, String commandType,
+                                                LocalDateTime from, LocalDateTime to,
+                                                LocalDateTime cursorCreatedAt, Long cursorId, int limit) {
+        try {
+            if (deviceId != null && !deviceMapper.exists(new QueryWrapper<Device>().eq("id", deviceId))) {
+                return Result.fail(ResultCode.NOT_FOUND);
+            }
+            int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+            // 多取一条用于判断是否还有下一页
+            List<Command> fetched = commandMapper.selectHistoryPage(deviceId, status, commandType, from, to,
+                    cursorCreatedAt, cursorId, pageSize + 1);
+            return Result.success(CommandPageVo.of(fetched, pageSize));
+        } catch (Exception e) {
+            log.error("Error searching commands: deviceId={}, status={}, type={}", deviceId, status, commandType, e);
+            return Result.fail(ResultCode.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Override
+    public Result<List<Command>> getArchivedCommands(Long deviceId, LocalDateTime from, LocalDateTime to,
+                                                     LocalDateTime cursorCreatedAt, Long cursorId, int limit) {
+        try {
+            int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+            return Result.success(commandArchiveMapper.selectArchived(deviceId, from, to, cursorCreatedAt, cursorId, pageSize));
+        } catch (Exception e) {
+            log.error("Error querying archived commands: deviceId={}, from={}, to={}", deviceId, from, to, e);
+            return Result.fail(ResultCode.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -1,20 +1,27 @@
 package org.example.server.service.impl;
 
 import com.alibaba.excel.EasyExcel;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.example.common.context.Result;
 import org.example.common.enums.ResultCode;
 import org.example.common.constant.CommandStatusConstant;
 import org.example.common.constant.DeviceStatusConstant;
+import org.example.common.util.InfoCodec;
 import org.example.server.client.SocketClient;
 import org.example.server.domain.dto.CommandDto;
 import org.example.server.domain.dto.ConfigDto;
 import org.example.server.domain.pojo.Command;
 import org.example.server.domain.pojo.Device;
+import org.example.server.domain.pojo.DeviceStatusHistory;
+import org.example.server.domain.vo.DeviceLiveStateVo;
 import org.example.server.domain.vo.DeviceVo;
 import org.example.server.domain.vo.DeviceDetailVo;
+import org.example.server.manager.DeviceSearchIndex;
 import org.example.server.mapper.CommandMapper;
 import org.example.server.mapper.DeviceMapper;
+import org.example.server.mapper.DeviceStatusHistoryMapper;
 import org.example.server.service.DeviceService;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
@@ -22,6 +29,9 @@ import org.slf4j.LoggerFactory;
 import jakarta.servlet.http.HttpServletResponse;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,12 +40,27 @@ public class DeviceServiceImpl extends ServiceImpl<DeviceMapper, Device> impleme
     private final DeviceMapper deviceMapper;
     private final CommandMapper commandMapper;
     private final SocketClient socketClient;
+    private final DeviceSearchIndex deviceSearchIndex;
+    private final DeviceStatusHistoryMapper deviceStatusHistoryMapper;
     private static final Logger log = LoggerFactory.getLogger(DeviceServiceImpl.class);
 
-    public DeviceServiceImpl(DeviceMapper deviceMapper, CommandMapper commandMapper, SocketClient socketClient) {
+    /**
+     * 单次搜索最多返回的结果数
+     */
+    private static final int MAX_SEARCH_LIMIT = 500;
+
+    /**
+     * 单次状态历史查询最多返回的样本数
+     */
+    private static final int MAX_HISTORY_LIMIT = 10000;
+
+    public DeviceServiceImpl(DeviceMapper deviceMapper, CommandMapper commandMapper, SocketClient socketClient,
+                             DeviceSearchIndex deviceSearchIndex, DeviceStatusHistoryMapper deviceStatusHistoryMapper) {
         this.deviceMapper = deviceMapper;
         this.commandMapper = commandMapper;
         this.socketClient = socketClient;
+        this.deviceSearchIndex = deviceSearchIndex;
+        this.deviceStatusHistoryMapper = deviceStatusHistoryMapper;
     }
 
     @Override
@@ -107,18 +132,15 @@ public class DeviceServiceImpl extends ServiceImpl<DeviceMapper, Device> impleme
             command.setUpdatedAt(LocalDateTime.now());
             commandMapper.updateById(command);
 
-            boolean notified = socketClient.forwardCommandToAgent(
-                    device.getId(),
-                    command.getId(),
-                    "offline",
-                    "Force offline by admin"
-            );
-
-            if (notified) {
-                log.info("Device {} forced offline, agent notified via socket", device.getId());
-            } else {
-                log.warn("Device {} forced offline, but failed to notify agent", device.getId());
-            }
+            // 设备已在本地标记为离线，通知Agent不阻塞请求线程
+            socketClient.forwardCommandToAgentAsync(device.getId(), command.getId(), "offline", "Force offline by admin")
+                    .thenAccept(notified -> {
+                        if (notified) {
+                            log.info("Device {} forced offline, agent notified via socket", device.getId());
+                        } else {
+                            log.warn("Device {} forced offline, but failed to notify agent", device.getId());
+                        }
+                    });
 
             return Result.success("Device forced offline successfully");
         } catch (Exception e) {
@@ -187,8 +209,11 @@ public class DeviceServiceImpl extends ServiceImpl<DeviceMapper, Device> impleme
             }
 
             // 如果提供了新的设备备注名，则更新备注名
-            if (configDto.remarkName() != null && !configDto.remarkName().isEmpty()) {
+            if (configDto.remarkName() != null && !configDto.remarkName().isEmpty()
+                    && !configDto.remarkName().equals(device.getRemarkName())) {
                 device.setRemarkName(configDto.remarkName());
+                // 搜索索引按meta_updated_at增量同步
+                device.setMetaUpdatedAt(LocalDateTime.now());
             }
 
             // 创建配置更新命令
@@ -206,36 +231,26 @@ public class DeviceServiceImpl extends ServiceImpl<DeviceMapper, Device> impleme
             device.setUpdatedAt(LocalDateTime.now());
             deviceMapper.updateById(device);
 
-            // 异步转发命令给 Agent，避免数据不一致问题
-            // 即使转发失败，数据库已更新，后续可通过重试机制确保最终一致性
-            new Thread(() -> {
-                try {
-                    log.debug("Async forwarding config command to agent: id={}", configDto.id());
-                    
-                    boolean forwarded = socketClient.forwardCommandToAgent(
-                            device.getId(),
-                            command.getId(),
-                            "config",
-                            "{\"syncFrequency\":" + configDto.syncFrequencySeconds() + "}"
-                    );
-
-                    if (forwarded) {
-                        command.setStatus(CommandStatusConstant.EXECUTING);
-                        commandMapper.updateById(command);
-                        log.info("Config command successfully forwarded to agent: id={}, commandId={}, syncFrequency={}", 
-                            configDto.id(), command.getId(), configDto.syncFrequencySeconds());
-                    } else {
-                        // Agent 离线或 Socket 服务不可用，命令状态保持 PENDING
-                        // 供后续重试机制处理（需要实现定时重试任务）
-                        log.warn("Failed to forward config command (agent may be offline): id={}, commandId={}. " +
-                                "Command status: PENDING - will be retried when agent is online.", 
-                            configDto.id(), command.getId());
-                    }
-                } catch (Exception e) {
-                    log.error("Unexpected error in async config command forwarding: id={}, commandId={}", 
-                        configDto.id(), command.getId(), e);
-                }
-            }).start();
+            // 异步转发命令给 Agent，不阻塞请求线程，也不为每次请求创建线程
+            // 转发失败时命令保持PENDING，供后续重试机制处理（需要实现定时重试任务）
+            String commandContent = command.getCommandContent();
+            socketClient.forwardCommandToAgentAsync(device.getId(), command.getId(), "config", commandContent)
+                    .thenAccept(forwarded -> {
+                        if (forwarded) {
+                            markExecuting(command.getId());
+                            log.info("Config command successfully forwarded to agent: id={}, commandId={}, syncFrequency={}",
+                                    configDto.id(), command.getId(), configDto.syncFrequencySeconds());
+                        } else {
+                            log.warn("Failed to forward config command (agent may be offline): id={}, commandId={}. " +
+                                    "Command status: PENDING - will be retried when agent is online.",
+                                    configDto.id(), command.getId());
+                        }
+                    })
+                    .exceptionally(e -> {
+                        log.error("Unexpected error in async config command forwarding: id={}, commandId={}",
+                                configDto.id(), command.getId(), e);
+                        return null;
+                    });
 
             // 立即返回成功，数据库已更新
             return Result.success("Config updated successfully (async delivery).");
@@ -245,10 +260,29 @@ public class DeviceServiceImpl extends ServiceImpl<DeviceMapper, Device> impleme
         }
     }
 
+    /**
+     * 转发成功后将命令标记为执行中，Agent已上报结果的命令不回退状态
+     */
+    private void markExecuting(Long commandId) {
+        UpdateWrapper<Command> updateWrapper = new UpdateWrapper<>();
+        updateWrapper.eq("id", commandId)
+                .eq("status", CommandStatusConstant.PENDING)
+                .set("status", CommandStatusConstant.EXECUTING)
+                .set("updated_at", LocalDateTime.now());
+        commandMapper.update(null, updateWrapper);
+    }
+
     @Override
     public Result<List<DeviceVo>> getDeviceList() {
         try {
-            List<Device> devices = deviceMapper.selectList(null);
+            // 实时状态与数据库查询并行获取：结果只包含在线设备，其余设备视为离线
+            CompletableFuture<Map<Long, DeviceLiveStateVo>> liveStatesFuture = socketClient.getLiveStatesAsync(null);
+
+            // 列表不展示info，不读取该列，避免每次加载整列状态数据
+            QueryWrapper<Device> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("id", "name", "remark_name", "ip_address", "sync_frequency", "status_code",
+                    "last_heartbeat_at", "created_at", "updated_at");
+            List<Device> devices = deviceMapper.selectList(queryWrapper);
             List<DeviceVo> deviceVos = devices.stream()
                     .map(device -> DeviceVo.builder()
                             .id(device.getId())
@@ -262,6 +296,19 @@ public class DeviceServiceImpl extends ServiceImpl<DeviceMapper, Device> impleme
                             .updatedAt(device.getUpdatedAt())
                             .build())
                     .collect(Collectors.toList());
+
+            // 合并Socket内存中的实时状态，等待时间以live-state-timeout-ms为上限
+            Map<Long, DeviceLiveStateVo> liveStates = liveStatesFuture.join();
+            if (liveStates != null) {
+                for (DeviceVo deviceVo : deviceVos) {
+                    DeviceLiveStateVo liveState = liveStates.get(deviceVo.getId());
+                    if (liveState == null) {
+                        liveState = new DeviceLiveStateVo();
+                        liveState.setDeviceId(deviceVo.getId());
+                    }
+                    deviceVo.setLiveState(liveState);
+                }
+            }
             return Result.success(deviceVos);
         } catch (Exception e) {
             log.error("Error retrieving device list", e);
@@ -269,9 +316,52 @@ public class DeviceServiceImpl extends ServiceImpl<DeviceMapper, Device> impleme
         }
     }
 
+    @Override
+    public Result<List<DeviceVo>> searchDevices(String query, String field, int limit) {
+        try {
+            int boundedLimit = Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+            List<Long> deviceIds = deviceSearchIndex.search(query, field, boundedLimit);
+            if (deviceIds.isEmpty()) {
+                return Result.success(List.of());
+            }
+
+            // 按主键取回命中设备，不查询info列
+            QueryWrapper<Device> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("id", "name", "remark_name", "ip_address", "sync_frequency", "status_code",
+                            "last_heartbeat_at", "created_at", "updated_at")
+                    .in("id", deviceIds);
+            Map<Long, Device> devices = deviceMapper.selectList(queryWrapper).stream()
+                    .collect(Collectors.toMap(Device::getId, Function.identity()));
+
+            // 保持索引返回的顺序
+            List<DeviceVo> deviceVos = deviceIds.stream()
+                    .map(devices::get)
+                    .filter(device -> device != null)
+                    .map(device -> DeviceVo.builder()
+                            .id(device.getId())
+                            .name(device.getName())
+                            .ipAddress(device.getIpAddress())
+                            .syncFrequency(device.getSyncFrequency())
+                            .remarkName(device.getRemarkName())
+                            .statusCode(device.getStatusCode())
+                            .lastHeartbeatAt(device.getLastHeartbeatAt())
+                            .createdAt(device.getCreatedAt())
+                            .updatedAt(device.getUpdatedAt())
+                            .build())
+                    .collect(Collectors.toList());
+            return Result.success(deviceVos);
+        } catch (Exception e) {
+            log.error("Error searching devices: query={}, field={}", query, field, e);
+            return Result.fail(ResultCode.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     @Override
     public Result<DeviceDetailVo> getDeviceDetail(Long deviceId) {
         try {
+            // 实时状态与数据库查询并行获取
+            CompletableFuture<Map<Long, DeviceLiveStateVo>> liveStatesFuture =
+                    socketClient.getLiveStatesAsync(List.of(deviceId));
             Device device = deviceMapper.selectById(deviceId);
             if (device == null) {
                 return Result.fail(ResultCode.NOT_FOUND);
@@ -284,21 +374,43 @@ public class DeviceServiceImpl extends ServiceImpl<DeviceMapper, Device> impleme
                     .syncFrequency(device.getSyncFrequency())
                     .remarkName(device.getRemarkName())
                     .statusCode(device.getStatusCode())
-                    .info(device.getInfo())
+                    .info(InfoCodec.decode(device.getInfo()))
                     .lastHeartbeatAt(device.getLastHeartbeatAt())
                     .createdAt(device.getCreatedAt())
                     .updatedAt(device.getUpdatedAt())
                     .build();
+            Map<Long, DeviceLiveStateVo> liveStates = liveStatesFuture.join();
+            if (liveStates != null) {
+                deviceDetailVo.setLiveState(liveStates.get(deviceId));
+            }
             return Result.success(deviceDetailVo);
         } catch (Exception e) {
             log.error("Error retrieving device detail for id: {}", deviceId, e);
             return Result.fail(ResultCode.INTERNAL_SERVER_ERROR);
         }
     }
+    @Override
+    public Result<List<DeviceStatusHistory>> getStatusHistory(Long deviceId, LocalDateTime from, LocalDateTime to, int limit) {
+        try {
+            // 未指定范围时查询最近24小时，范围条件保证只扫描相关分区
+            LocalDateTime end = to != null ? to : LocalDateTime.now();
+            LocalDateTime start = from != null ? from : end.minusDays(1);
+            if (!start.isBefore(end)) {
+                return Result.fail(ResultCode.BAD_REQUEST, "from must be before to");
+            }
+            int boundedLimit = Math.max(1, Math.min(limit, MAX_HISTORY_LIMIT));
+            return Result.success(deviceStatusHistoryMapper.selectByDevice(deviceId, start, end, boundedLimit));
+        } catch (Exception e) {
+            log.error("Error retrieving status history for device: {}", deviceId, e);
+            return Result.fail(ResultCode.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     @Override
     public void exportExcel(HttpServletResponse response) {
         try {
             List<Device> devices = deviceMapper.selectList(null);
+            devices.forEach(device -> device.setInfo(InfoCodec.decode(device.getInfo())));
             
             response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
             response.setCharacterEncoding("utf-8");
@@ -2,6 +2,7 @@ package org.example.server.util;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.common.util.InfoCodec;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -15,7 +16,8 @@ public class SystemInfoParseUtil {
 
     /**
      * 解析 JSON格式的系统信息
-     * @param infoJson 系统信息 JSON字符串
+     * 压缩存储的info先解码，明文直接解析
+     * @param infoJson 系统信息 JSON字符串或压缩编码值
      * @return 解析后的系统信息 Map
      */
     public static Map<String, Object> parseSystemInfo(String infoJson) {
@@ -26,7 +28,7 @@ public class SystemInfoParseUtil {
                 return result;
             }
             
-            JsonNode root = objectMapper.readTree(infoJson);
+            JsonNode root = objectMapper.readTree(InfoCodec.decode(infoJson));
             
             // 解析磁盘信息
             if (root.has("disk")) {
@@ -138,7 +140,7 @@ public class SystemInfoParseUtil {
                 return "N/A";
             }
             
-            JsonNode root = objectMapper.readTree(infoJson);
+            JsonNode root = objectMapper.readTree(InfoCodec.decode(infoJson));
             if (root.has("disk") && root.get("disk").has("usagePercentage")) {
                 return root.get("disk").get("usagePercentage").asText();
             }
@@ -160,7 +162,7 @@ public class SystemInfoParseUtil {
                 return "N/A";
             }
             
-            JsonNode root = objectMapper.readTree(infoJson);
+            JsonNode root = objectMapper.readTree(InfoCodec.decode(infoJson));
             if (root.has("memory") && root.get("memory").has("heap") && 
                 root.get("memory").get("heap").has("usagePercentage")) {
                 return root.get("memory").get("heap").get("usagePercentage").asText();
@@ -183,7 +185,7 @@ public class SystemInfoParseUtil {
                 return "N/A";
             }
             
-            JsonNode root = objectMapper.readTree(infoJson);
+            JsonNode root = objectMapper.readTree(InfoCodec.decode(infoJson));
             if (root.has("cpu") && root.get("cpu").has("processCpuUsage")) {
                 return root.get("cpu").get("processCpuUsage").asText();
             }
@@ -205,7 +207,7 @@ public class SystemInfoParseUtil {
                 return "No system info available";
             }
             
-            JsonNode root = objectMapper.readTree(infoJson);
+            JsonNode root = objectMapper.readTree(InfoCodec.decode(infoJson));
             
             // 磁盘信息
             if (root.has("disk")) {
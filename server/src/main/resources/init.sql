@@ -1,3 +1,5 @@
+drop table if exists device_status_history;
+drop table if exists commands_archive;
 drop table if exists commands;
 drop table if exists devices;
 -- Device table
@@ -5,16 +7,23 @@ CREATE TABLE IF NOT EXISTS devices (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     name VARCHAR(255) NOT NULL,
     remark_name VARCHAR(255),
-    ip_address VARCHAR(45) NOT NULL UNIQUE,
+    ip_address VARCHAR(45) NOT NULL,
     sync_frequency INT DEFAULT 30,
     status_code INT DEFAULT 0,
     info TEXT,
+    -- 最新状态样本在device_status_history中的主键和采样时间，随状态写入批量更新
+    last_status_id BIGINT,
+    last_status_at DATETIME(3),
     last_heartbeat_at DATETIME,
+    -- name、remark_name、ip_address最后一次变化的时间，由写入方在这三列变化时显式刷新，供搜索索引增量同步；
+    -- updated_at会被心跳、状态批量写入和存活扫描频繁刷新，不能用来判断搜索字段是否变化
+    meta_updated_at DATETIME(3) DEFAULT CURRENT_TIMESTAMP(3),
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-    INDEX idx_name (name),
+    UNIQUE KEY uk_name (name),
     INDEX idx_ip_address (ip_address),
-    INDEX idx_status_code (status_code)
+    INDEX idx_status_code (status_code),
+    INDEX idx_meta_updated_at (meta_updated_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- Command table
@@ -29,6 +38,51 @@ CREATE TABLE IF NOT EXISTS commands (
     executed_at DATETIME,
     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (device_id) REFERENCES devices(id) ON DELETE CASCADE,
-    INDEX idx_device_id (device_id),
-    INDEX idx_status (status)
+    -- 命令历史查询的覆盖索引：二级索引隐含主键id，按(created_at, id)游标分页和status、command_type过滤都在索引内完成
+    INDEX idx_device_created (device_id, created_at, status, command_type),
+    INDEX idx_created (created_at, status, command_type)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Command archive table
+-- 保留期之外的已结束命令由CommandRetentionJob从commands迁移到这里
+-- 按created_at月份RANGE分区，分区由任务按月追加，超过归档保留期的整月分区直接DROP；行格式压缩
+-- 分区表要求主键包含分区列，且不支持外键
+CREATE TABLE IF NOT EXISTS commands_archive (
+    id BIGINT NOT NULL,
+    device_id BIGINT NOT NULL,
+    command_type VARCHAR(100) NOT NULL,
+    command_content TEXT,
+    status VARCHAR(50),
+    result TEXT,
+    created_at DATETIME NOT NULL,
+    executed_at DATETIME,
+    updated_at DATETIME,
+    archived_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, created_at),
+    INDEX idx_device_created (device_id, created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 ROW_FORMAT=COMPRESSED KEY_BLOCK_SIZE=8
+PARTITION BY RANGE (TO_DAYS(created_at)) (
+    PARTITION p_history VALUES LESS THAN (TO_DAYS('2025-01-01')),
+    PARTITION p_future VALUES LESS THAN MAXVALUE
+);
+
+-- Device status history table
+-- 只追加的设备状态样本，由Socket状态接入路径攒批后多行INSERT写入，devices.last_status_id指向每台设备最新的一条
+-- 按sampled_at日分区，分区由StatusHistoryPartitionJob按天追加，超过保留期的整日分区直接DROP
+-- 分区表要求主键包含分区列，且不支持外键
+CREATE TABLE IF NOT EXISTS device_status_history (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    device_id BIGINT NOT NULL,
+    sampled_at DATETIME(3) NOT NULL,
+    cpu_usage DOUBLE,
+    load_avg DOUBLE,
+    disk_usage DOUBLE,
+    memory_usage DOUBLE,
+    heap_usage DOUBLE,
+    PRIMARY KEY (id, sampled_at),
+    INDEX idx_device_sampled (device_id, sampled_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
+PARTITION BY RANGE (TO_DAYS(sampled_at)) (
+    PARTITION p_history VALUES LESS THAN (TO_DAYS('2025-01-01')),
+    PARTITION p_future VALUES LESS THAN MAXVALUE
+);
@@ -0,0 +1,65 @@
+package org.example.server.client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SocketCircuitBreakerTests {
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        SocketCircuitBreaker breaker = new SocketCircuitBreaker(3, 60_000);
+
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.onFailure());
+        // 中间的成功清零连续失败计数
+        breaker.onSuccess();
+        assertFalse(breaker.onFailure());
+        assertFalse(breaker.onFailure());
+        assertTrue(breaker.onFailure());
+
+        assertEquals(SocketCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1, breaker.getRejectedCount());
+    }
+
+    @Test
+    void halfOpenAllowsSingleProbe() {
+        SocketCircuitBreaker breaker = new SocketCircuitBreaker(1, 0);
+        assertTrue(breaker.onFailure());
+
+        // openMs为0，下一次请求即转为HALF_OPEN并作为探测放行
+        assertTrue(breaker.tryAcquire());
+        assertEquals(SocketCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess();
+        assertEquals(SocketCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void failedProbeReopens() {
+        SocketCircuitBreaker breaker = new SocketCircuitBreaker(1, 0);
+        breaker.onFailure();
+        assertTrue(breaker.tryAcquire());
+
+        assertTrue(breaker.onFailure());
+        assertEquals(SocketCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void releasedProbeCanBeRetaken() {
+        SocketCircuitBreaker breaker = new SocketCircuitBreaker(1, 0);
+        breaker.onFailure();
+        assertTrue(breaker.tryAcquire());
+
+        // 探测请求未实际发出，归还后下一个请求可以继续探测
+        breaker.release();
+        assertEquals(SocketCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+}
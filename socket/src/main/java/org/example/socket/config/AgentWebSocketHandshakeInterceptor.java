@@ -1,28 +1,65 @@
 package org.example.socket.config;
 
+import org.example.socket.util.TokenBucket;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.server.HandshakeInterceptor;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * WebSocket握手拦截器
  * 在WebSocket握手阶段获取客户端真实IP和端口
+ * 同时负责握手准入控制：全局和单IP两级令牌桶限流，
+ * 超限的握手直接返回503并带上Retry-After提示，避免Socket重启后的连接风暴压垮服务
  */
 public class AgentWebSocketHandshakeInterceptor implements HandshakeInterceptor {
 
     private static final Logger log = LoggerFactory.getLogger(AgentWebSocketHandshakeInterceptor.class);
 
+    /**
+     * 单IP令牌桶空闲超过该时间后被清理
+     */
+    private static final long IDLE_BUCKET_EVICT_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final TokenBucket globalBucket;
+    private final Map<String, TokenBucket> ipBuckets = new ConcurrentHashMap<>();
+    private final double perIpRate;
+    private final double perIpBurst;
+    private final int retryAfterSeconds;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public AgentWebSocketHandshakeInterceptor(double globalRate, double globalBurst,
+                                              double perIpRate, double perIpBurst,
+                                              int retryAfterSeconds) {
+        this.globalBucket = new TokenBucket(globalRate, globalBurst);
+        this.perIpRate = perIpRate;
+        this.perIpBurst = perIpBurst;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
     @Override
     public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
                                   WebSocketHandler wsHandler, Map<String, Object> attributes) throws Exception {
         try {
             // 获取客户端真实 IP:PORT
             String clientIpPort = extractClientIpPort(request);
+
+            // 准入控制：先检查单IP限额，再检查全局限额
+            if (!admit(clientIpPort)) {
+                reject(response, clientIpPort);
+                return false;
+            }
             
             // 存储到attributes中，方便后续在WebSocket Session中获取
             attributes.put("clientIpPort", clientIpPort);
@@ -33,6 +70,7 @@ public class AgentWebSocketHandshakeInterceptor implements HandshakeInterceptor
             if (path.contains("/ws/agent/")) {
                 String deviceId = path.substring(path.lastIndexOf("/") + 1);
                 attributes.put("deviceId", deviceId);
+                attributes.put("agentName", deviceId);
             }
             
             return true;
@@ -50,6 +88,63 @@ public class AgentWebSocketHandshakeInterceptor implements HandshakeInterceptor
         }
     }
 
+    /**
+     * 握手准入判断
+     *
+     * @param clientIpPort 客户端 IP:PORT
+     * @return true表示允许握手
+     */
+    private boolean admit(String clientIpPort) {
+        String ip = stripPort(clientIpPort);
+        TokenBucket ipBucket = ipBuckets.computeIfAbsent(ip, k -> new TokenBucket(perIpRate, perIpBurst));
+        if (!ipBucket.tryAcquire()) {
+            return false;
+        }
+        if (!globalBucket.tryAcquire()) {
+            // 全局限额拒绝时归还单IP令牌，否则被全局拒绝的重试会耗尽该IP自己的限额
+            ipBucket.refund();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 拒绝握手，返回503和带随机抖动的Retry-After，避免被拒绝的Agent在同一时刻再次涌入
+     */
+    private void reject(ServerHttpResponse response, String clientIpPort) {
+        int retryAfter = retryAfterSeconds + ThreadLocalRandom.current().nextInt(retryAfterSeconds + 1);
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        long rejected = rejectedCount.incrementAndGet();
+        log.debug("Handshake rejected by admission control: {} (retry after {}s, total rejected: {})",
+                clientIpPort, retryAfter, rejected);
+    }
+
+    /**
+     * 定期清理长期空闲的单IP令牌桶
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdleBuckets() {
+        int before = ipBuckets.size();
+        ipBuckets.values().removeIf(bucket -> bucket.idleNanos() > IDLE_BUCKET_EVICT_NANOS);
+        int evicted = before - ipBuckets.size();
+        if (evicted > 0) {
+            log.debug("Evicted {} idle handshake buckets, remaining: {}", evicted, ipBuckets.size());
+        }
+    }
+
+    /**
+     * 获取被拒绝的握手总数
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    private String stripPort(String ipPort) {
+        int idx = ipPort.lastIndexOf(':');
+        return idx > 0 ? ipPort.substring(0, idx) : ipPort;
+    }
+
     /**
      * 从握手请求中提取客户端真实IP和端口
      * 支持代理环境（X-Forwarded-For, X-Real-IP等）
@@ -0,0 +1,28 @@
+package org.example.socket.config;
+
+import org.example.common.eventlog.EventLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 事件日志配置
+ * Socket是事件日志的唯一写端，Server作为消费者读取同一目录
+ * Agent上报的命令结果和Socket放弃投递的命令只经事件日志写回commands表，事件日志不能关闭
+ */
+@Configuration
+public class EventLogConfig {
+
+    @Bean(destroyMethod = "close")
+    public EventLog eventLog(@Value("${event-log.dir:./data/event-log}") String dir,
+                             @Value("${event-log.segment-size-mb:64}") int segmentSizeMb,
+                             @Value("${event-log.flush-interval-ms:200}") long flushIntervalMs,
+                             @Value("${event-log.max-segments:16}") int maxSegments,
+                             @Value("${event-log.max-retained-segments:64}") int maxRetainedSegments) throws IOException {
+        return EventLog.open(Path.of(dir), segmentSizeMb * 1024 * 1024, flushIntervalMs,
+                maxSegments, maxRetainedSegments);
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.socket.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * 定时任务调度器配置
+ * 存活扫描、协议层Ping和命令重投各自使用独立的单线程调度器，互不阻塞；
+ * 其余低频任务（令牌桶清理、分区维护）使用默认的taskScheduler
+ * 存活扫描每秒执行一次，不能排在分区DDL等慢任务之后
+ */
+@Configuration
+public class SchedulingConfig {
+
+    public static final String LIVENESS_SCHEDULER = "livenessScheduler";
+    public static final String PING_SCHEDULER = "pingScheduler";
+    public static final String DELIVERY_SCHEDULER = "deliveryScheduler";
+
+    /**
+     * 默认调度器，未指定scheduler的@Scheduled任务在这里执行
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${scheduling.default-pool-size:2}") int poolSize) {
+        return newScheduler("scheduling-", poolSize);
+    }
+
+    @Bean(LIVENESS_SCHEDULER)
+    public ThreadPoolTaskScheduler livenessScheduler() {
+        return newScheduler("liveness-", 1);
+    }
+
+    @Bean(PING_SCHEDULER)
+    public ThreadPoolTaskScheduler pingScheduler() {
+        return newScheduler("ping-", 1);
+    }
+
+    @Bean(DELIVERY_SCHEDULER)
+    public ThreadPoolTaskScheduler deliveryScheduler() {
+        return newScheduler("delivery-", 1);
+    }
+
+    private static ThreadPoolTaskScheduler newScheduler(String threadNamePrefix, int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(Math.max(1, poolSize));
+        scheduler.setThreadNamePrefix(threadNamePrefix);
+        scheduler.setDaemon(true);
+        scheduler.setWaitForTasksToCompleteOnShutdown(false);
+        return scheduler;
+    }
+}
@@ -4,7 +4,15 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.example.socket.handler.AgentWebSocketHandler;
 import org.example.socket.handler.DeviceMonitorWebSocketHandler;
 import org.example.socket.manager.AgentConnectionManager;
+import org.example.socket.manager.AgentLivenessTracker;
+import org.example.socket.manager.AgentRttTracker;
+import org.example.socket.manager.CommandDeliveryManager;
+import org.example.socket.service.DeviceEventPublisher;
 import org.example.socket.service.DeviceManagementService;
+import org.example.socket.service.DeviceRegistrationQueue;
+import org.example.socket.service.DeviceStatusIngestService;
+import org.example.socket.service.MonitorSnapshotService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -23,13 +31,36 @@ public class WebSocketComponentInitializer {
     @Bean
     public AgentWebSocketHandler agentWebSocketHandler(AgentConnectionManager agentConnectionManager,
                                                        ObjectMapper objectMapper,
-                                                       DeviceManagementService deviceManagementService) {
-        return new AgentWebSocketHandler(agentConnectionManager, objectMapper, deviceManagementService);
+                                                       DeviceManagementService deviceManagementService,
+                                                       DeviceRegistrationQueue deviceRegistrationQueue,
+                                                       AgentLivenessTracker agentLivenessTracker,
+                                                       AgentRttTracker agentRttTracker,
+                                                       CommandDeliveryManager commandDeliveryManager,
+                                                       DeviceStatusIngestService deviceStatusIngestService,
+                                                       DeviceEventPublisher deviceEventPublisher) {
+        return new AgentWebSocketHandler(agentConnectionManager, objectMapper, deviceManagementService,
+                deviceRegistrationQueue, agentLivenessTracker, agentRttTracker, commandDeliveryManager,
+                deviceStatusIngestService, deviceEventPublisher);
     }
 
     @Bean
-    public DeviceMonitorWebSocketHandler deviceMonitorWebSocketHandler() {
-        return new DeviceMonitorWebSocketHandler();
+    public AgentWebSocketHandshakeInterceptor agentWebSocketHandshakeInterceptor(
+            @Value("${agent.handshake.global-rate:500}") double globalRate,
+            @Value("${agent.handshake.global-burst:1000}") double globalBurst,
+            @Value("${agent.handshake.per-ip-rate:20}") double perIpRate,
+            @Value("${agent.handshake.per-ip-burst:40}") double perIpBurst,
+            @Value("${agent.handshake.retry-after-seconds:10}") int retryAfterSeconds) {
+        return new AgentWebSocketHandshakeInterceptor(globalRate, globalBurst, perIpRate, perIpBurst, retryAfterSeconds);
+    }
+
+    @Bean
+    public DeviceMonitorWebSocketHandler deviceMonitorWebSocketHandler(
+            MonitorSnapshotService monitorSnapshotService,
+            ObjectMapper objectMapper,
+            @Value("${monitor.replay-capacity:4096}") int replayCapacity,
+            @Value("${monitor.client-queue-capacity:1024}") int clientQueueCapacity) {
+        return new DeviceMonitorWebSocketHandler(monitorSnapshotService, objectMapper,
+                replayCapacity, clientQueueCapacity);
     }
 
     @Bean
@@ -13,17 +13,20 @@ public class WebSocketConfig implements WebSocketConfigurer {
 
     private final AgentWebSocketHandler agentWebSocketHandler;
     private final DeviceMonitorWebSocketHandler deviceMonitorWebSocketHandler;
+    private final AgentWebSocketHandshakeInterceptor agentWebSocketHandshakeInterceptor;
 
     public WebSocketConfig(AgentWebSocketHandler agentWebSocketHandler,
-                          DeviceMonitorWebSocketHandler deviceMonitorWebSocketHandler) {
+                          DeviceMonitorWebSocketHandler deviceMonitorWebSocketHandler,
+                          AgentWebSocketHandshakeInterceptor agentWebSocketHandshakeInterceptor) {
         this.agentWebSocketHandler = agentWebSocketHandler;
         this.deviceMonitorWebSocketHandler = deviceMonitorWebSocketHandler;
+        this.agentWebSocketHandshakeInterceptor = agentWebSocketHandshakeInterceptor;
     }
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(agentWebSocketHandler, "/ws/agent/{deviceId}")
-                .addInterceptors(new AgentWebSocketHandshakeInterceptor())
+                .addInterceptors(agentWebSocketHandshakeInterceptor)
                 .setAllowedOrigins("*");
 
         registry.addHandler(deviceMonitorWebSocketHandler, "/ws/monitor")
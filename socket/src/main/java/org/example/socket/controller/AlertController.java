@@ -0,0 +1,43 @@
+package org.example.socket.controller;
+
+import org.example.common.context.Result;
+import org.example.socket.domain.AlertEvent;
+import org.example.socket.domain.AlertRule;
+import org.example.socket.manager.AlertRuleEngine;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 告警查询接口
+ * 告警状态变化同时实时推送到/ws/monitor，消息type为alert
+ */
+@RestController
+@RequestMapping("/api/socket/alerts")
+public class AlertController {
+
+    private final AlertRuleEngine alertRuleEngine;
+
+    public AlertController(AlertRuleEngine alertRuleEngine) {
+        this.alertRuleEngine = alertRuleEngine;
+    }
+
+    /**
+     * 获取当前处于触发状态的告警
+     */
+    @GetMapping
+    public ResponseEntity<Result<List<AlertEvent>>> getActiveAlerts() {
+        return ResponseEntity.ok(Result.success(alertRuleEngine.getActiveAlerts()));
+    }
+
+    /**
+     * 获取已加载的告警规则
+     */
+    @GetMapping("/rules")
+    public ResponseEntity<Result<List<String>>> getRules() {
+        return ResponseEntity.ok(Result.success(alertRuleEngine.getRules().stream().map(AlertRule::toString).toList()));
+    }
+}
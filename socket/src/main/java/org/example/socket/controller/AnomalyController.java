@@ -0,0 +1,61 @@
+package org.example.socket.controller;
+
+import org.example.common.context.Result;
+import org.example.common.enums.ResultCode;
+import org.example.socket.domain.AnomalyEvent;
+import org.example.socket.manager.MetricAnomalyDetector;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 指标异常查询接口
+ * 异常同时实时推送到/ws/monitor，消息type为anomaly
+ */
+@RestController
+@RequestMapping("/api/socket/anomalies")
+public class AnomalyController {
+
+    private final MetricAnomalyDetector metricAnomalyDetector;
+
+    public AnomalyController(MetricAnomalyDetector metricAnomalyDetector) {
+        this.metricAnomalyDetector = metricAnomalyDetector;
+    }
+
+    /**
+     * 获取最近的异常事件，按时间倒序
+     */
+    @GetMapping
+    public ResponseEntity<Result<List<AnomalyEvent>>> getRecentAnomalies(
+            @RequestParam(required = false) Long deviceId,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(Result.success(
+                metricAnomalyDetector.getRecentAnomalies(deviceId, Math.max(1, limit))));
+    }
+
+    /**
+     * 获取当前处于异常状态的设备指标
+     */
+    @GetMapping("/active")
+    public ResponseEntity<Result<List<Map<String, Object>>>> getActiveAnomalies() {
+        return ResponseEntity.ok(Result.success(metricAnomalyDetector.getActiveAnomalies()));
+    }
+
+    /**
+     * 获取指定设备各指标的当前基线
+     */
+    @GetMapping("/baseline/{deviceId}")
+    public ResponseEntity<Result<Map<String, Object>>> getBaseline(@PathVariable Long deviceId) {
+        Map<String, Object> baseline = metricAnomalyDetector.getBaseline(deviceId);
+        if (baseline == null) {
+            return ResponseEntity.ok(Result.fail(ResultCode.NOT_FOUND));
+        }
+        return ResponseEntity.ok(Result.success(baseline));
+    }
+}
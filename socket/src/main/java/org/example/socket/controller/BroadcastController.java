@@ -1,14 +1,21 @@
 package org.example.socket.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.example.socket.domain.PushMessage;
 import org.example.socket.service.BroadcastService;
 import org.example.socket.manager.AgentConnectionManager;
+import org.example.socket.manager.AgentLivenessTracker;
+import org.example.socket.manager.CommandDeliveryManager;
 import org.example.socket.mapper.DeviceMapper;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -18,12 +25,25 @@ public class BroadcastController {
     private final BroadcastService broadcastService;
     private final AgentConnectionManager agentConnectionManager;
     private final DeviceMapper deviceMapper;
+    private final AgentLivenessTracker agentLivenessTracker;
+    private final ObjectMapper objectMapper;
+    private final CommandDeliveryManager commandDeliveryManager;
     private static final Logger log = LoggerFactory.getLogger(BroadcastController.class);
 
-    public BroadcastController(BroadcastService broadcastService, AgentConnectionManager agentConnectionManager, DeviceMapper deviceMapper) {
+    /**
+     * 单次批量转发的最大命令数
+     */
+    private static final int MAX_BATCH_SIZE = 10000;
+
+    public BroadcastController(BroadcastService broadcastService, AgentConnectionManager agentConnectionManager, DeviceMapper deviceMapper,
+                               AgentLivenessTracker agentLivenessTracker, ObjectMapper objectMapper,
+                               CommandDeliveryManager commandDeliveryManager) {
         this.broadcastService = broadcastService;
         this.agentConnectionManager = agentConnectionManager;
         this.deviceMapper = deviceMapper;
+        this.agentLivenessTracker = agentLivenessTracker;
+        this.objectMapper = objectMapper;
+        this.commandDeliveryManager = commandDeliveryManager;
     }
 
     /**
@@ -83,20 +103,26 @@ public class BroadcastController {
             @PathVariable Long deviceId,
             @RequestBody Map<String, Object> command) {
         try {
-            // 需要根据 deviceId 从数据库获取设备信息，才能得到 Agent name
-            // 因为 Agent 是按 name 存储在连接管理器中的
-            org.example.socket.domain.Device device = deviceMapper.selectById(deviceId);
-            if (device == null) {
-                log.warn("Device not found: {}", deviceId);
-                return ResponseEntity.status(404).body("Device not found: " + deviceId);
+            // Agent 是按 name 存储在连接管理器中的，先从内存映射查找；
+            // 设备注册尚未完成时内存中还没有映射，回退到数据库
+            String agentName = agentConnectionManager.findAgentName(deviceId);
+            if (agentName == null) {
+                org.example.socket.domain.Device device = deviceMapper.selectById(deviceId);
+                if (device == null) {
+                    log.warn("Device not found: {}", deviceId);
+                    return ResponseEntity.status(404).body("Device not found: " + deviceId);
+                }
+                agentName = device.getName();
             }
-            
-            String agentName = device.getName();
             if (!agentConnectionManager.isAgentOnline(agentName)) {
                 return ResponseEntity.status(404).body("Agent not found or offline: " + agentName);
             }
             
-            agentConnectionManager.sendCommandToAgent(agentName, command);
+            // 命令进入该Agent的投递窗口，由CommandDeliveryManager负责确认跟踪和超时重投
+            if (!commandDeliveryManager.submit(agentName, deviceId, command)) {
+                return ResponseEntity.status(503).body("Command queue full for agent: " + agentName);
+            }
+            updateLivenessInterval(deviceId, command);
             return ResponseEntity.ok("Command forwarded to agent: " + agentName);
         } catch (Exception e) {
             log.error("Error forwarding command to agent: {}", deviceId, e);
@@ -104,6 +130,119 @@ public class BroadcastController {
         }
     }
 
+    /**
+     * 批量向Agent转发命令
+     * 请求体为数组，每项格式为 {"deviceId": 1, "command": {...}}，command与单条转发接口的请求体相同
+     * 设备ID从内存映射解析为Agent name，不查询数据库；同一Agent的命令按请求中的顺序整批提交
+     * 返回与请求一一对应的结果，status取值：
+     * FORWARDED 已进入投递窗口，OFFLINE 设备不在线，QUEUE_FULL 该Agent等待队列已满，INVALID 请求项格式错误
+     */
+    @PostMapping("/command/forward/batch")
+    public ResponseEntity<Map<String, Object>> forwardCommandsToAgents(@RequestBody List<Map<String, Object>> items) {
+        if (items.size() > MAX_BATCH_SIZE) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Batch too large: " + items.size() + " > " + MAX_BATCH_SIZE);
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        String[] statuses = new String[items.size()];
+        Long[] deviceIds = new Long[items.size()];
+        // 按Agent分组，保留每组内的请求顺序
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            Map<String, Object> item = items.get(i);
+            Long deviceId = toLong(item.get("deviceId"));
+            deviceIds[i] = deviceId;
+            if (deviceId == null || !(item.get("command") instanceof Map)) {
+                statuses[i] = "INVALID";
+                continue;
+            }
+            String agentName = agentConnectionManager.findAgentName(deviceId);
+            if (agentName == null) {
+                statuses[i] = "OFFLINE";
+                continue;
+            }
+            groups.computeIfAbsent(agentName, k -> new ArrayList<>()).add(i);
+        }
+
+        for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+            List<Map<String, Object>> commands = new ArrayList<>(group.getValue().size());
+            List<Long> groupDeviceIds = new ArrayList<>(group.getValue().size());
+            for (int index : group.getValue()) {
+                commands.add(commandOf(items.get(index)));
+                groupDeviceIds.add(deviceIds[index]);
+            }
+            boolean[] accepted = commandDeliveryManager.submitAll(group.getKey(), groupDeviceIds, commands);
+            for (int j = 0; j < accepted.length; j++) {
+                int index = group.getValue().get(j);
+                statuses[index] = accepted[j] ? "FORWARDED" : "QUEUE_FULL";
+                if (accepted[j]) {
+                    updateLivenessInterval(deviceIds[index], commands.get(j));
+                }
+            }
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>(items.size());
+        int forwarded = 0;
+        for (int i = 0; i < items.size(); i++) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("deviceId", deviceIds[i]);
+            result.put("status", statuses[i]);
+            Object command = items.get(i).get("command");
+            if (command instanceof Map<?, ?> commandMap && commandMap.get("commandId") != null) {
+                result.put("commandId", commandMap.get("commandId"));
+            }
+            results.add(result);
+            if ("FORWARDED".equals(statuses[i])) {
+                forwarded++;
+            }
+        }
+        log.info("Batch forward: {} commands, {} forwarded, {} agents", items.size(), forwarded, groups.size());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("total", items.size());
+        response.put("forwarded", forwarded);
+        response.put("results", results);
+        return ResponseEntity.ok(response);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> commandOf(Map<String, Object> item) {
+        return (Map<String, Object>) item.get("command");
+    }
+
+    private Long toLong(Object value) {
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value != null) {
+            try {
+                return Long.parseLong(value.toString());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 同步频率配置命令下发后，同步更新存活检查的间隔
+     */
+    private void updateLivenessInterval(Long deviceId, Map<String, Object> command) {
+        if (!"config".equals(command.get("commandType"))) {
+            return;
+        }
+        try {
+            Object content = command.get("commandContent");
+            JsonNode configNode = objectMapper.readTree(String.valueOf(content));
+            if (configNode.has("syncFrequency")) {
+                agentLivenessTracker.updateInterval(deviceId, configNode.get("syncFrequency").asInt());
+            }
+        } catch (Exception e) {
+            log.debug("Cannot parse config command content for device {}: {}", deviceId, e.getMessage());
+        }
+    }
+
     /**
      * 检查指定Agent是否在线
      */
@@ -0,0 +1,33 @@
+package org.example.socket.controller;
+
+import org.example.common.context.Result;
+import org.example.common.eventlog.EventLog;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * 事件日志状态查询接口
+ * 用于观察段保留情况、强制删除次数和各消费者的积压
+ */
+@RestController
+@RequestMapping("/api/socket/event-log")
+public class EventLogController {
+
+    private final EventLog eventLog;
+
+    public EventLogController(EventLog eventLog) {
+        this.eventLog = eventLog;
+    }
+
+    /**
+     * 获取事件日志状态
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Result<Map<String, Object>>> getStats() {
+        return ResponseEntity.ok(Result.success(eventLog.getStats()));
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.socket.controller;
+
+import org.example.common.context.Result;
+import org.example.common.enums.ResultCode;
+import org.example.socket.domain.DeviceLiveState;
+import org.example.socket.service.DeviceLiveStateService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 设备实时状态接口
+ * 供Server合并到设备列表和详情中，数据全部来自内存，不访问数据库
+ */
+@RestController
+@RequestMapping("/api/socket/live-state")
+public class LiveStateController {
+
+    private static final int MAX_IDS = 10000;
+
+    private final DeviceLiveStateService deviceLiveStateService;
+
+    public LiveStateController(DeviceLiveStateService deviceLiveStateService) {
+        this.deviceLiveStateService = deviceLiveStateService;
+    }
+
+    /**
+     * 批量查询设备实时状态
+     * 不传ids时返回所有在线设备；传ids（逗号分隔）时每个设备返回一条，离线设备online为false
+     */
+    @GetMapping
+    public ResponseEntity<Result<List<DeviceLiveState>>> getLiveStates(
+            @RequestParam(required = false) List<Long> ids) {
+        if (ids == null) {
+            return ResponseEntity.ok(Result.success(deviceLiveStateService.getOnlineStates()));
+        }
+        if (ids.size() > MAX_IDS) {
+            return ResponseEntity.ok(Result.fail(ResultCode.BAD_REQUEST));
+        }
+        return ResponseEntity.ok(Result.success(deviceLiveStateService.getStates(ids)));
+    }
+}
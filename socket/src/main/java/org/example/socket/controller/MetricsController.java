@@ -0,0 +1,98 @@
+package org.example.socket.controller;
+
+import org.example.common.context.Result;
+import org.example.common.enums.ResultCode;
+import org.example.socket.domain.DeviceMetric;
+import org.example.socket.manager.DeviceMetricsSnapshot;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 设备最新指标查询接口
+ * 数据来自内存列式快照，指标名为cpu、load、disk、memory、heap，百分比类指标取值0-100
+ */
+@RestController
+@RequestMapping("/api/socket/metrics")
+public class MetricsController {
+
+    private static final int MAX_LIMIT = 10000;
+
+    private final DeviceMetricsSnapshot deviceMetricsSnapshot;
+
+    public MetricsController(DeviceMetricsSnapshot deviceMetricsSnapshot) {
+        this.deviceMetricsSnapshot = deviceMetricsSnapshot;
+    }
+
+    /**
+     * 按指标范围过滤设备，例如 ?metric=cpu&min=90 查询CPU使用率不低于90%的设备
+     *
+     * @param maxAgeMs 只包含最近maxAgeMs毫秒内上报过的设备，0表示不限制
+     */
+    @GetMapping("/query")
+    public ResponseEntity<Result<Map<String, Object>>> query(
+            @RequestParam String metric,
+            @RequestParam(defaultValue = "-Infinity") double min,
+            @RequestParam(defaultValue = "Infinity") double max,
+            @RequestParam(defaultValue = "0") long maxAgeMs,
+            @RequestParam(defaultValue = "1000") int limit) {
+        DeviceMetric deviceMetric = DeviceMetric.fromKey(metric);
+        if (deviceMetric == null) {
+            return ResponseEntity.ok(Result.fail(ResultCode.BAD_REQUEST));
+        }
+        long notBefore = notBefore(maxAgeMs);
+        List<DeviceMetricsSnapshot.MetricValue> devices =
+                deviceMetricsSnapshot.filter(deviceMetric, min, max, notBefore, clampLimit(limit));
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("metric", deviceMetric.getKey());
+        data.put("total", deviceMetricsSnapshot.count(deviceMetric, min, max, notBefore));
+        data.put("devices", devices);
+        return ResponseEntity.ok(Result.success(data));
+    }
+
+    /**
+     * 按指标取Top-N设备，默认取最大的n个
+     */
+    @GetMapping("/top")
+    public ResponseEntity<Result<List<DeviceMetricsSnapshot.MetricValue>>> top(
+            @RequestParam String metric,
+            @RequestParam(defaultValue = "10") int n,
+            @RequestParam(defaultValue = "desc") String order,
+            @RequestParam(defaultValue = "0") long maxAgeMs) {
+        DeviceMetric deviceMetric = DeviceMetric.fromKey(metric);
+        if (deviceMetric == null) {
+            return ResponseEntity.ok(Result.fail(ResultCode.BAD_REQUEST));
+        }
+        boolean descending = !"asc".equalsIgnoreCase(order);
+        return ResponseEntity.ok(Result.success(
+                deviceMetricsSnapshot.top(deviceMetric, clampLimit(n), descending, notBefore(maxAgeMs))));
+    }
+
+    /**
+     * 获取指定设备的最新指标
+     */
+    @GetMapping("/device/{deviceId}")
+    public ResponseEntity<Result<Map<String, Object>>> getDeviceMetrics(@PathVariable Long deviceId) {
+        Map<String, Object> metrics = deviceMetricsSnapshot.getDeviceMetrics(deviceId);
+        if (metrics == null) {
+            return ResponseEntity.ok(Result.fail(ResultCode.NOT_FOUND));
+        }
+        return ResponseEntity.ok(Result.success(metrics));
+    }
+
+    private static long notBefore(long maxAgeMs) {
+        return maxAgeMs > 0 ? System.currentTimeMillis() - maxAgeMs : 0;
+    }
+
+    private static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.socket.controller;
+
+import org.example.common.context.Result;
+import org.example.common.enums.ResultCode;
+import org.example.socket.manager.AgentRttTracker;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Agent往返时延(RTT)查询接口
+ * 数据来自协议层Ping/Pong，时延单位为毫秒
+ */
+@RestController
+@RequestMapping("/api/socket/rtt")
+public class RttController {
+
+    private final AgentRttTracker agentRttTracker;
+
+    public RttController(AgentRttTracker agentRttTracker) {
+        this.agentRttTracker = agentRttTracker;
+    }
+
+    /**
+     * 获取全体在线Agent的RTT分位数
+     */
+    @GetMapping
+    public ResponseEntity<Result<Map<String, Object>>> getFleetRtt() {
+        return ResponseEntity.ok(Result.success(agentRttTracker.getFleetStats()));
+    }
+
+    /**
+     * 获取每个Agent的RTT分位数
+     */
+    @GetMapping("/agents")
+    public ResponseEntity<Result<Map<String, Map<String, Object>>>> getAllAgentRtt() {
+        return ResponseEntity.ok(Result.success(agentRttTracker.getAllAgentStats()));
+    }
+
+    /**
+     * 获取指定Agent的RTT分位数
+     */
+    @GetMapping("/agent/{name}")
+    public ResponseEntity<Result<Map<String, Object>>> getAgentRtt(@PathVariable String name) {
+        Map<String, Object> stats = agentRttTracker.getAgentStats(name);
+        if (stats == null) {
+            return ResponseEntity.ok(Result.fail(ResultCode.NOT_FOUND));
+        }
+        return ResponseEntity.ok(Result.success(stats));
+    }
+}
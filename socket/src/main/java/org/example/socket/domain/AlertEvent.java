@@ -0,0 +1,20 @@
+package org.example.socket.domain;
+
+/**
+ * 告警状态变化事件
+ *
+ * @param rule 规则名称
+ * @param deviceId 设备ID
+ * @param metric 指标名
+ * @param state FIRING表示告警触发，RESOLVED表示告警恢复
+ * @param value 触发或恢复时的观测值，rate规则为每分钟变化率
+ * @param threshold 规则阈值
+ * @param since FIRING为条件开始满足的时间，RESOLVED为告警触发的时间
+ * @param timestamp 事件时间
+ */
+public record AlertEvent(String rule, long deviceId, String metric, String state,
+                         double value, double threshold, long since, long timestamp) {
+
+    public static final String FIRING = "FIRING";
+    public static final String RESOLVED = "RESOLVED";
+}
@@ -0,0 +1,133 @@
+package org.example.socket.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 告警规则
+ * 规则以文本形式配置，多条规则用分号分隔，格式：
+ * <pre>
+ *   名称: 指标 比较符 阈值 [for 持续时间]
+ *   名称: rate(指标) 比较符 阈值 [for 持续时间]
+ * </pre>
+ * 例如 "cpu-high: cpu > 90 for 5m; disk-full: disk >= 95; memory-leak: rate(memory) > 2 for 10m"
+ * rate(指标)为相邻两帧之间的变化率，单位为每分钟；持续时间单位支持s、m、h，省略时条件满足即触发
+ */
+public class AlertRule {
+
+    private static final Pattern RULE_PATTERN = Pattern.compile(
+            "^([\\w.-]+)\\s*:\\s*(?:rate\\((\\w+)\\)|(\\w+))\\s*(>=|<=|>|<)\\s*(-?\\d+(?:\\.\\d+)?)"
+                    + "(?:\\s+for\\s+(\\d+)\\s*([smh]))?$");
+
+    private final int index;
+    private final String name;
+    private final DeviceMetric metric;
+    private final boolean rate;
+    private final String operator;
+    private final double threshold;
+    private final long forMs;
+
+    public AlertRule(int index, String name, DeviceMetric metric, boolean rate,
+                     String operator, double threshold, long forMs) {
+        this.index = index;
+        this.name = name;
+        this.metric = metric;
+        this.rate = rate;
+        this.operator = operator;
+        this.threshold = threshold;
+        this.forMs = forMs;
+    }
+
+    /**
+     * 解析规则配置
+     *
+     * @throws IllegalArgumentException 规则格式错误或指标不存在
+     */
+    public static List<AlertRule> parseAll(String spec) {
+        List<AlertRule> rules = new ArrayList<>();
+        if (spec == null || spec.isBlank()) {
+            return rules;
+        }
+        for (String part : spec.split(";")) {
+            String text = part.trim();
+            if (text.isEmpty()) {
+                continue;
+            }
+            Matcher matcher = RULE_PATTERN.matcher(text);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Invalid alert rule: " + text);
+            }
+            boolean rate = matcher.group(2) != null;
+            String metricKey = rate ? matcher.group(2) : matcher.group(3);
+            DeviceMetric metric = DeviceMetric.fromKey(metricKey);
+            if (metric == null) {
+                throw new IllegalArgumentException("Unknown metric in alert rule: " + text);
+            }
+            long forMs = 0;
+            if (matcher.group(6) != null) {
+                long amount = Long.parseLong(matcher.group(6));
+                forMs = switch (matcher.group(7)) {
+                    case "h" -> TimeUnit.HOURS.toMillis(amount);
+                    case "m" -> TimeUnit.MINUTES.toMillis(amount);
+                    default -> TimeUnit.SECONDS.toMillis(amount);
+                };
+            }
+            rules.add(new AlertRule(rules.size(), matcher.group(1), metric, rate,
+                    matcher.group(4), Double.parseDouble(matcher.group(5)), forMs));
+        }
+        return rules;
+    }
+
+    /**
+     * 判断观测值是否满足告警条件，NaN永远不满足
+     */
+    public boolean test(double observed) {
+        return switch (operator) {
+            case ">" -> observed > threshold;
+            case ">=" -> observed >= threshold;
+            case "<" -> observed < threshold;
+            default -> observed <= threshold;
+        };
+    }
+
+    /**
+     * 规则在引擎中的下标，用于定位规则状态
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DeviceMetric getMetric() {
+        return metric;
+    }
+
+    public boolean isRate() {
+        return rate;
+    }
+
+    public String getOperator() {
+        return operator;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public long getForMs() {
+        return forMs;
+    }
+
+    @Override
+    public String toString() {
+        String subject = rate ? "rate(" + metric.getKey() + ")" : metric.getKey();
+        String text = name + ": " + subject + " " + operator + " " + threshold;
+        return forMs > 0 ? text + " for " + TimeUnit.MILLISECONDS.toSeconds(forMs) + "s" : text;
+    }
+}
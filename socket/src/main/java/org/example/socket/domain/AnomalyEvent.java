@@ -0,0 +1,20 @@
+package org.example.socket.domain;
+
+/**
+ * 指标异常事件
+ *
+ * @param deviceId 设备ID
+ * @param metric 指标名
+ * @param type 异常类型：spike为单帧偏离基线，drift为持续趋势漂移
+ * @param value 异常时的观测值
+ * @param mean spike为观测前的指数加权均值，drift为慢速指数加权均值
+ * @param stddev spike为观测前的指数加权标准差，drift为由相邻帧差值估计的噪声标准差
+ * @param zScore spike为偏离均值的标准差倍数，drift为快慢均值之差的噪声标准差倍数
+ * @param timestamp 事件时间
+ */
+public record AnomalyEvent(long deviceId, String metric, String type, double value,
+                           double mean, double stddev, double zScore, long timestamp) {
+
+    public static final String SPIKE = "spike";
+    public static final String DRIFT = "drift";
+}
@@ -0,0 +1,16 @@
+package org.example.socket.domain;
+
+import java.util.Map;
+
+/**
+ * 设备实时状态，全部来自Socket内存，不经过数据库
+ *
+ * @param deviceId 设备ID
+ * @param online 当前是否有打开的连接
+ * @param connectedAt 当前连接建立时间，离线时为null
+ * @param lastFrameAt 当前连接最近一次收到消息的时间，离线时为null
+ * @param metrics 最新指标（含updatedAt），从未上报过时为null；离线设备保留断开前的最后一次上报
+ */
+public record DeviceLiveState(long deviceId, boolean online, Long connectedAt, Long lastFrameAt,
+                              Map<String, Object> metrics) {
+}
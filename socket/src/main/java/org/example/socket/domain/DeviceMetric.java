@@ -0,0 +1,83 @@
+package org.example.socket.domain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 设备数值指标
+ * 每个指标对应Agent状态上报中的一个字段，取值统一解析为double，无法解析时为NaN
+ */
+public enum DeviceMetric {
+
+    CPU_USAGE("cpu", "/cpu/systemCpuUsage"),
+    LOAD_AVERAGE("load", "/cpu/loadAverage"),
+    DISK_USAGE("disk", "/disk/usagePercentage"),
+    MEMORY_USAGE("memory", "/memory/system/usagePercentage"),
+    HEAP_USAGE("heap", "/memory/heap/usagePercentage");
+
+    private static final DeviceMetric[] VALUES = values();
+
+    private final String key;
+    private final String pointer;
+
+    DeviceMetric(String key, String pointer) {
+        this.key = key;
+        this.pointer = pointer;
+    }
+
+    /**
+     * 查询接口中使用的指标名
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 从状态JSON中读取该指标
+     * Agent上报的百分比为"12.34%"格式的字符串，不可用时为"N/A"
+     *
+     * @return 指标值，缺失或无法解析时返回NaN
+     */
+    public double read(JsonNode status) {
+        JsonNode node = status.at(pointer);
+        if (node.isNumber()) {
+            return node.asDouble();
+        }
+        if (!node.isTextual()) {
+            return Double.NaN;
+        }
+        String text = node.asText().trim();
+        if (text.endsWith("%")) {
+            text = text.substring(0, text.length() - 1);
+        }
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * 按指标名查找
+     *
+     * @return 对应的指标，不存在时返回null
+     */
+    public static DeviceMetric fromKey(String key) {
+        for (DeviceMetric metric : VALUES) {
+            if (metric.key.equalsIgnoreCase(key) || metric.name().equalsIgnoreCase(key)) {
+                return metric;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 从状态JSON中读取全部指标，数组下标为指标的ordinal
+     */
+    public static double[] readAll(JsonNode status) {
+        double[] values = new double[VALUES.length];
+        for (DeviceMetric metric : VALUES) {
+            values[metric.ordinal()] = metric.read(status);
+        }
+        return values;
+    }
+}
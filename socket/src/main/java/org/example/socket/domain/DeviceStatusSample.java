@@ -0,0 +1,116 @@
+package org.example.socket.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * 设备状态样本，对应device_status_history表的一行
+ * 指标值为null表示该次上报中缺失或无法解析；info为原始状态JSON，只用于刷新devices.info，不写入历史表
+ */
+public class DeviceStatusSample {
+
+    private Long id;
+    private Long deviceId;
+    private LocalDateTime sampledAt;
+    private Double cpuUsage;
+    private Double loadAvg;
+    private Double diskUsage;
+    private Double memoryUsage;
+    private Double heapUsage;
+    private String info;
+
+    public DeviceStatusSample() {
+    }
+
+    /**
+     * 由一帧解析后的指标构造样本
+     *
+     * @param values 按{@link DeviceMetric}的ordinal排列的指标值，NaN表示缺失
+     */
+    public DeviceStatusSample(Long deviceId, LocalDateTime sampledAt, double[] values, String info) {
+        this.deviceId = deviceId;
+        this.sampledAt = sampledAt;
+        this.cpuUsage = valueOf(values[DeviceMetric.CPU_USAGE.ordinal()]);
+        this.loadAvg = valueOf(values[DeviceMetric.LOAD_AVERAGE.ordinal()]);
+        this.diskUsage = valueOf(values[DeviceMetric.DISK_USAGE.ordinal()]);
+        this.memoryUsage = valueOf(values[DeviceMetric.MEMORY_USAGE.ordinal()]);
+        this.heapUsage = valueOf(values[DeviceMetric.HEAP_USAGE.ordinal()]);
+        this.info = info;
+    }
+
+    private static Double valueOf(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? null : value;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(Long deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    public LocalDateTime getSampledAt() {
+        return sampledAt;
+    }
+
+    public void setSampledAt(LocalDateTime sampledAt) {
+        this.sampledAt = sampledAt;
+    }
+
+    public Double getCpuUsage() {
+        return cpuUsage;
+    }
+
+    public void setCpuUsage(Double cpuUsage) {
+        this.cpuUsage = cpuUsage;
+    }
+
+    public Double getLoadAvg() {
+        return loadAvg;
+    }
+
+    public void setLoadAvg(Double loadAvg) {
+        this.loadAvg = loadAvg;
+    }
+
+    public Double getDiskUsage() {
+        return diskUsage;
+    }
+
+    public void setDiskUsage(Double diskUsage) {
+        this.diskUsage = diskUsage;
+    }
+
+    public Double getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    public void setMemoryUsage(Double memoryUsage) {
+        this.memoryUsage = memoryUsage;
+    }
+
+    public Double getHeapUsage() {
+        return heapUsage;
+    }
+
+    public void setHeapUsage(Double heapUsage) {
+        this.heapUsage = heapUsage;
+    }
+
+    public String getInfo() {
+        return info;
+    }
+
+    public void setInfo(String info) {
+        this.info = info;
+    }
+}
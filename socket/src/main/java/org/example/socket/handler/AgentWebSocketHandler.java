@@ -2,10 +2,17 @@ package org.example.socket.handler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.example.socket.manager.AgentConnectionManager;
+import org.example.socket.manager.AgentLivenessTracker;
+import org.example.socket.manager.AgentRttTracker;
+import org.example.socket.manager.CommandDeliveryManager;
+import org.example.socket.service.DeviceEventPublisher;
 import org.example.socket.service.DeviceManagementService;
+import org.example.socket.service.DeviceRegistrationQueue;
+import org.example.socket.service.DeviceStatusIngestService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
@@ -20,23 +27,51 @@ import java.util.Map;
 public class AgentWebSocketHandler extends TextWebSocketHandler {
 
     private static final Logger log = LoggerFactory.getLogger(AgentWebSocketHandler.class);
+
+    /**
+     * 会话级锁：注册完成回调与连接关闭回调在不同线程执行，绑定设备和读取deviceId都在该锁内完成
+     */
+    private static final String SESSION_LOCK_ATTR = "sessionLock";
+    /**
+     * 连接关闭回调已执行的标记，注册完成回调据此放弃绑定
+     */
+    private static final String SESSION_CLOSED_ATTR = "sessionClosed";
+
     private final AgentConnectionManager agentConnectionManager;
     private final ObjectMapper objectMapper;
     private final DeviceManagementService deviceManagementService;
+    private final DeviceRegistrationQueue deviceRegistrationQueue;
+    private final AgentLivenessTracker agentLivenessTracker;
+    private final AgentRttTracker agentRttTracker;
+    private final CommandDeliveryManager commandDeliveryManager;
+    private final DeviceStatusIngestService deviceStatusIngestService;
+    private final DeviceEventPublisher deviceEventPublisher;
 
     public AgentWebSocketHandler(AgentConnectionManager agentConnectionManager,
                                  ObjectMapper objectMapper,
-                                 DeviceManagementService deviceManagementService) {
+                                 DeviceManagementService deviceManagementService,
+                                 DeviceRegistrationQueue deviceRegistrationQueue,
+                                 AgentLivenessTracker agentLivenessTracker,
+                                 AgentRttTracker agentRttTracker,
+                                 CommandDeliveryManager commandDeliveryManager,
+                                 DeviceStatusIngestService deviceStatusIngestService,
+                                 DeviceEventPublisher deviceEventPublisher) {
         this.agentConnectionManager = agentConnectionManager;
         this.objectMapper = objectMapper;
         this.deviceManagementService = deviceManagementService;
+        this.deviceRegistrationQueue = deviceRegistrationQueue;
+        this.agentLivenessTracker = agentLivenessTracker;
+        this.agentRttTracker = agentRttTracker;
+        this.commandDeliveryManager = commandDeliveryManager;
+        this.deviceStatusIngestService = deviceStatusIngestService;
+        this.deviceEventPublisher = deviceEventPublisher;
     }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         try {
             // 从WebSocket URI路径中提取name，格式: /ws/agent/{name}
-            String name = extractDeviceId(session);
+            String name = extractAgentName(session);
 
             String clientIpPort = (String) session.getAttributes().get("clientIpPort");
             if (clientIpPort == null || clientIpPort.isEmpty()) {
@@ -44,19 +79,20 @@ public class AgentWebSocketHandler extends TextWebSocketHandler {
                 log.warn("Client IP:PORT not found in session properties for agent: {}", name);
             }
 
+            session.getAttributes().put(SESSION_LOCK_ATTR, new Object());
+
             // 在AgentConnectionManager中注册Agent（使用name作为key）
             agentConnectionManager.registerAgent(name, session);
             log.info("Agent connected: {} (IP:PORT: {}, SessionId: {})", name, clientIpPort, session.getId());
             
-            // 创建新的设备记录，使用Agent name
-            // 返回创建的设备ID，保存到session中供后续使用
-            Long deviceId = deviceManagementService.registerOrUpdateDevice(name, clientIpPort);
-            if (deviceId != null) {
-                session.getAttributes().put("deviceId", deviceId);
-                log.info("Device created in database for agent: {} with id={}, IP:PORT: {}", name, deviceId, clientIpPort);
-            } else {
-                log.error("Failed to create device record for agent: {}", name);
-                session.close(CloseStatus.SERVER_ERROR);
+            // 设备注册进入队列，按可持续的速率写库，连接风暴时不会耗尽连接池
+            // 注册完成后将设备ID保存到session中供后续使用
+            final String ipPort = clientIpPort;
+            boolean queued = deviceRegistrationQueue.submit(name, clientIpPort, session::isOpen,
+                    deviceId -> onDeviceRegistered(session, name, ipPort, deviceId));
+            if (!queued) {
+                agentConnectionManager.unregisterAgent(name, session);
+                session.close(CloseStatus.SERVICE_OVERLOAD);
             }
         } catch (Exception e) {
             log.error("Error during agent connection", e);
@@ -64,6 +100,45 @@ public class AgentWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
+    /**
+     * 设备注册完成回调（在注册工作线程中执行）
+     */
+    private void onDeviceRegistered(WebSocketSession session, String name, String clientIpPort, Long deviceId) {
+        try {
+            if (deviceId == null) {
+                log.error("Failed to create device record for agent: {}", name);
+                session.close(CloseStatus.SERVER_ERROR);
+                return;
+            }
+
+            // 检查连接状态和绑定设备在同一把锁内完成：
+            // 关闭回调要么先执行（这里看到关闭标记后放弃绑定），要么后执行（读到deviceId并撤销绑定）
+            synchronized (sessionLock(session)) {
+                session.getAttributes().put("deviceId", deviceId);
+                if (session.getAttributes().containsKey(SESSION_CLOSED_ATTR) || !session.isOpen()) {
+                    // 注册期间连接已断开，afterConnectionClosed拿不到deviceId，这里补充标记离线
+                    deviceManagementService.markDeviceOffline(deviceId);
+                    return;
+                }
+                log.info("Device created in database for agent: {} with id={}, IP:PORT: {}", name, deviceId, clientIpPort);
+
+                agentConnectionManager.bindDevice(deviceId, name);
+
+                // 开始存活跟踪，先按默认同步频率计算截止时间，下发配置时再更新
+                agentLivenessTracker.register(deviceId, session, null);
+                deviceEventPublisher.publishDeviceConnected(deviceId, name, clientIpPort);
+            }
+
+            // 注册完成后主动下发配置，注册完成前Agent发出的配置查询会因缺少deviceId被忽略
+            handleConfigQuery(session, deviceId);
+
+            // 重连前未确认的命令在新连接上重新投递
+            commandDeliveryManager.onAgentConnected(name);
+        } catch (Exception e) {
+            log.error("Error completing registration for agent: {}", name, e);
+        }
+    }
+
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
         try {
@@ -76,6 +151,9 @@ public class AgentWebSocketHandler extends TextWebSocketHandler {
             String payload = message.getPayload();
             log.debug("Received message from device {}: {}", deviceId, payload);
 
+            // 任意消息都说明连接仍然存活，顺延存活截止时间
+            agentLivenessTracker.touch(deviceId);
+
             // 解析消息类型
             var messageObj = objectMapper.readTree(payload);
             String type = messageObj.get("type") != null ? messageObj.get("type").asText() : "";
@@ -92,14 +170,21 @@ public class AgentWebSocketHandler extends TextWebSocketHandler {
                     log.debug("Config query from device: {}", deviceId);
                     break;
                 case "status":
-                    // 状态更新 - 广播给前端
+                    // 状态更新 - 广播给前端，数值指标写入列式快照，样本攒批写入状态历史并刷新devices.info
                     DeviceMonitorWebSocketHandler.broadcast(payload);
-                    deviceManagementService.updateDeviceStatus(deviceId, messageObj.get("status"));
+                    deviceStatusIngestService.ingest(deviceId, messageObj.get("status"));
                     log.debug("Status update from device: {}", deviceId);
                     break;
+                case "command_ack":
+                    // 命令投递确认 - 命令离开在途窗口，后续命令补入
+                    commandDeliveryManager.onAck(extractAgentName(session), messageObj.path("commandId").asLong());
+                    log.debug("Command ack from device: {}", deviceId);
+                    break;
                 case "command_result":
-                    // 命令执行结果 - 广播给前端
+                    // 命令执行结果 - 广播给前端并写入事件日志，结果同时视为投递确认
+                    commandDeliveryManager.onAck(extractAgentName(session), messageObj.path("commandId").asLong());
                     DeviceMonitorWebSocketHandler.broadcast(payload);
+                    deviceEventPublisher.publishCommandResult(deviceId, extractAgentName(session), messageObj);
                     log.debug("Command result from device: {}", deviceId);
                     break;
                 default:
@@ -110,17 +195,44 @@ public class AgentWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) throws Exception {
+        // 协议层Pong同样说明连接存活
+        Object deviceIdObj = session.getAttributes().get("deviceId");
+        if (deviceIdObj instanceof Long) {
+            agentLivenessTracker.touch((Long) deviceIdObj);
+        }
+        agentRttTracker.recordPong(extractAgentName(session), message);
+    }
+
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         try {
-            String agentName = extractDeviceId(session);
-            agentConnectionManager.unregisterAgent(agentName);
+            // 先打上关闭标记再注销，之后完成的注册不会再绑定设备；deviceId与注册完成回调互斥读取
+            Object deviceIdObj;
+            synchronized (sessionLock(session)) {
+                session.getAttributes().put(SESSION_CLOSED_ATTR, Boolean.TRUE);
+                deviceIdObj = session.getAttributes().get("deviceId");
+            }
+
+            String agentName = extractAgentName(session);
+            agentConnectionManager.unregisterAgent(agentName, session);
+            if (!agentConnectionManager.isAgentOnline(agentName)) {
+                agentRttTracker.remove(agentName);
+            }
             log.info("Agent disconnected: {} (CloseStatus: {})", agentName, status);
             
             // 标记设备离线 - 使用session中保存的deviceId
-            Object deviceIdObj = session.getAttributes().get("deviceId");
             if (deviceIdObj instanceof Long) {
                 Long deviceId = (Long) deviceIdObj;
+                agentLivenessTracker.unregister(deviceId, session);
+                deviceStatusIngestService.onDeviceDisconnected(deviceId, "connection closed: " + status);
+                deviceEventPublisher.publishDeviceDisconnected(deviceId, agentName, status.toString());
+                if (session.getAttributes().containsKey(AgentLivenessTracker.LIVENESS_EXPIRED_ATTR)) {
+                    // 存活检查已批量标记离线/故障，不再覆盖
+                    log.info("Device {} closed by liveness check, status already updated", deviceId);
+                    return;
+                }
                 deviceManagementService.markDeviceOffline(deviceId);
                 log.info("Device marked offline in database: {}", deviceId);
             } else {
@@ -134,8 +246,8 @@ public class AgentWebSocketHandler extends TextWebSocketHandler {
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
         try {
-            String deviceId = extractDeviceId(session);
-            log.error("WebSocket transport error in device {}", deviceId, exception);
+            String agentName = extractAgentName(session);
+            log.error("WebSocket transport error in device {}", agentName, exception);
         } catch (Exception e) {
             log.error("Error handling transport error", e);
         }
@@ -154,6 +266,9 @@ public class AgentWebSocketHandler extends TextWebSocketHandler {
                 log.warn("Device not found for config query: {}", deviceId);
                 return;
             }
+
+            // 按设备实际的同步频率计算存活截止时间
+            agentLivenessTracker.updateInterval(deviceId, device.getSyncFrequency());
             
             // 构建配置响应消息
             Map<String, Object> configResponse = new HashMap<>();
@@ -163,7 +278,7 @@ public class AgentWebSocketHandler extends TextWebSocketHandler {
             configResponse.put("timestamp", System.currentTimeMillis());
             
             String responseJson = objectMapper.writeValueAsString(configResponse);
-            session.sendMessage(new TextMessage(responseJson));
+            agentConnectionManager.sendMessageToAgent(extractAgentName(session), new TextMessage(responseJson));
             
             log.info("Config sent to device {}: syncFrequency={}s", deviceId, device.getSyncFrequency());
         } catch (Exception e) {
@@ -171,13 +286,19 @@ public class AgentWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
+    private static Object sessionLock(WebSocketSession session) {
+        Object lock = session.getAttributes().get(SESSION_LOCK_ATTR);
+        return lock != null ? lock : session;
+    }
+
     /**
-     * 从session中提取Device ID
+     * 从session中提取Agent name
+     * 注册完成后session中的deviceId会被替换为数据库ID，因此name单独保存在agentName中
      */
-    private String extractDeviceId(WebSocketSession session) {
-        Object deviceIdObj = session.getAttributes().get("deviceId");
-        if (deviceIdObj != null) {
-            return deviceIdObj.toString();
+    private String extractAgentName(WebSocketSession session) {
+        Object agentNameObj = session.getAttributes().get("agentName");
+        if (agentNameObj != null) {
+            return agentNameObj.toString();
         }
         String path = session.getUri().getPath();
         if (path.contains("/ws/agent/")) {
@@ -1,30 +1,112 @@
 package org.example.socket.handler;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.socket.service.MonitorSnapshotService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 
-import java.io.IOException;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 设备监控 WebSocket处理器 - Spring WebSocket实现
  * 支持前端客户端连接 (/ws/monitor) - 用于接收状态广播
+ *
+ * 协议：
+ * 1. 连接后先收到一条全量快照 {"type":"snapshot","seq":N,"snapshot":{...}}
+ * 2. 之后收到按seq连续递增的增量 {"type":"delta","seq":N+1,"data":{原始广播消息}}
+ * 3. 断线重连时携带 /ws/monitor?since=最后收到的seq，从重放环中补发缺失的增量；
+ *    缺失部分已被环覆盖时退回到全量快照
+ * 快照在锁外生成，可能已包含快照seq之后的部分变更，增量都是最新状态覆盖，重复应用不影响结果
+ *
+ * 线程模型：
+ * 1. broadcast只在锁内分配seq并写入重放环，不做任何网络发送
+ * 2. 单个分发线程按每个客户端的游标从重放环取出增量，放入该客户端的有界发送队列
+ * 3. 每个客户端由自己的虚拟线程串行发送，慢客户端只阻塞自己；发送队列溢出或游标已被环覆盖时断开，由客户端用since参数续传
  */
 public class DeviceMonitorWebSocketHandler extends TextWebSocketHandler {
 
     private static final Logger log = LoggerFactory.getLogger(DeviceMonitorWebSocketHandler.class);
-    private static final Set<WebSocketSession> clientSessions = Collections.synchronizedSet(new HashSet<>());
+    private static final Map<String, MonitorClient> clientSessions = new ConcurrentHashMap<>();
+
+    /**
+     * 广播锁：保护seq、重放环和各客户端游标，锁内不做网络发送
+     */
+    private static final Object broadcastLock = new Object();
+    private static String[] replayRing = new String[4096];
+    private static long lastSeq = 0;
+    /**
+     * 分发线程已处理到的seq，游标等于它的客户端共享同一批增量
+     */
+    private static long dispatchedSeq = 0;
+    /**
+     * 有新客户端加入，分发线程需要为其补发重放环中的增量
+     */
+    private static boolean clientsChanged = false;
+
+    private final MonitorSnapshotService monitorSnapshotService;
+    private final ObjectMapper objectMapper;
+    private final int clientQueueCapacity;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    public DeviceMonitorWebSocketHandler(MonitorSnapshotService monitorSnapshotService,
+                                         ObjectMapper objectMapper,
+                                         int replayCapacity,
+                                         int clientQueueCapacity) {
+        this.monitorSnapshotService = monitorSnapshotService;
+        this.objectMapper = objectMapper;
+        this.clientQueueCapacity = Math.max(16, clientQueueCapacity);
+        synchronized (broadcastLock) {
+            replayRing = new String[Math.max(16, replayCapacity)];
+        }
+        this.dispatcher = new Thread(this::dispatchLoop, "monitor-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        clientSessions.add(session);
-        log.info("Client connected to /ws/monitor: {}, Total clients: {}", session.getId(), clientSessions.size());
+        MonitorClient client = new MonitorClient(session, clientQueueCapacity);
+        long since = parseSince(session);
+
+        synchronized (broadcastLock) {
+            if (since >= 0 && canResume(since)) {
+                // 续传的增量由分发线程从since之后补发
+                register(client, since);
+                log.info("Client resumed /ws/monitor from seq {}: {}, Total clients: {}",
+                        since, session.getId(), clientSessions.size());
+                return;
+            }
+        }
+
+        // 全量快照：先记下当前seq，在锁外查询并放入发送队列，再以快照seq为游标加入分发
+        long snapshotSeq;
+        synchronized (broadcastLock) {
+            snapshotSeq = lastSeq;
+        }
+        Map<String, Object> message = new HashMap<>();
+        message.put("type", "snapshot");
+        message.put("seq", snapshotSeq);
+        message.put("snapshot", monitorSnapshotService.buildSnapshot());
+        client.offer(new TextMessage(objectMapper.writeValueAsString(message)));
+
+        synchronized (broadcastLock) {
+            register(client, snapshotSeq);
+        }
+        log.info("Client connected to /ws/monitor: {} (snapshot seq {}), Total clients: {}",
+                session.getId(), snapshotSeq, clientSessions.size());
     }
 
     @Override
@@ -34,8 +116,11 @@ public class DeviceMonitorWebSocketHandler extends TextWebSocketHandler {
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        clientSessions.remove(session);
-        log.info("Client disconnected from /ws/monitor: {} (CloseStatus: {}), Total clients: {}", 
+        MonitorClient client = clientSessions.remove(session.getId());
+        if (client != null) {
+            client.stop();
+        }
+        log.info("Client disconnected from /ws/monitor: {} (CloseStatus: {}), Total clients: {}",
                  session.getId(), status, clientSessions.size());
     }
 
@@ -46,16 +131,16 @@ public class DeviceMonitorWebSocketHandler extends TextWebSocketHandler {
 
     /**
      * 广播消息到所有连接的前端客户端
+     * 消息被分配seq并包装为增量写入重放环，由分发线程推送给各客户端
+     *
+     * @param message JSON格式的消息
      */
     public static void broadcast(String message) {
-        for (WebSocketSession session : clientSessions) {
-            if (session.isOpen()) {
-                try {
-                    session.sendMessage(new TextMessage(message));
-                } catch (IOException e) {
-                    log.warn("Failed to send message to {}: {}", session.getId(), e.getMessage());
-                }
-            }
+        synchronized (broadcastLock) {
+            long seq = ++lastSeq;
+            replayRing[(int) (seq % replayRing.length)] =
+                    "{\"type\":\"delta\",\"seq\":" + seq + ",\"data\":" + message + "}";
+            broadcastLock.notifyAll();
         }
     }
 
@@ -65,4 +150,173 @@ public class DeviceMonitorWebSocketHandler extends TextWebSocketHandler {
     public static int getClientConnectionCount() {
         return clientSessions.size();
     }
+
+    /**
+     * 获取最近分配的seq
+     */
+    public static long getLastSeq() {
+        synchronized (broadcastLock) {
+            return lastSeq;
+        }
+    }
+
+    /**
+     * 停止分发线程，由Spring在容器关闭时调用
+     */
+    public void shutdown() {
+        running = false;
+        dispatcher.interrupt();
+        for (MonitorClient client : clientSessions.values()) {
+            client.stop();
+        }
+    }
+
+    /**
+     * 分发循环：锁内按游标从重放环取出增量，锁外放入各客户端发送队列
+     */
+    private void dispatchLoop() {
+        while (running) {
+            Map<MonitorClient, List<TextMessage>> work = new LinkedHashMap<>();
+            List<MonitorClient> overrun = new ArrayList<>();
+            try {
+                synchronized (broadcastLock) {
+                    while (dispatchedSeq == lastSeq && !clientsChanged) {
+                        broadcastLock.wait();
+                    }
+                    clientsChanged = false;
+                    // 分发落后超过环容量时，游标等于dispatchedSeq的客户端都会按覆盖处理，不必复制
+                    List<TextMessage> fresh = canResume(dispatchedSeq) ? copyRing(dispatchedSeq, lastSeq) : List.of();
+                    for (MonitorClient client : clientSessions.values()) {
+                        if (client.cursor >= lastSeq) {
+                            continue;
+                        }
+                        if (!canResume(client.cursor)) {
+                            overrun.add(client);
+                        } else {
+                            work.put(client, client.cursor == dispatchedSeq ? fresh : copyRing(client.cursor, lastSeq));
+                        }
+                        client.cursor = lastSeq;
+                    }
+                    dispatchedSeq = lastSeq;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            for (MonitorClient client : overrun) {
+                log.warn("Replay ring overrun for {}, closing for resume", client.session.getId());
+                client.fail();
+            }
+            work.forEach((client, messages) -> {
+                for (TextMessage message : messages) {
+                    if (!client.offer(message)) {
+                        log.warn("Send queue full for {}, closing for resume", client.session.getId());
+                        client.fail();
+                        return;
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 复制(from, to]区间的增量，调用方需持有broadcastLock
+     */
+    private static List<TextMessage> copyRing(long from, long to) {
+        List<TextMessage> messages = new ArrayList<>((int) (to - from));
+        for (long seq = from + 1; seq <= to; seq++) {
+            messages.add(new TextMessage(replayRing[(int) (seq % replayRing.length)]));
+        }
+        return messages;
+    }
+
+    /**
+     * 以给定游标加入分发列表并唤醒分发线程，调用方需持有broadcastLock
+     */
+    private static void register(MonitorClient client, long cursor) {
+        client.cursor = cursor;
+        clientSessions.put(client.session.getId(), client);
+        clientsChanged = true;
+        broadcastLock.notifyAll();
+    }
+
+    /**
+     * since之后的增量是否都还在重放环中，调用方需持有broadcastLock
+     */
+    private static boolean canResume(long since) {
+        return since <= lastSeq && lastSeq - since <= replayRing.length;
+    }
+
+    private static long parseSince(WebSocketSession session) {
+        if (session.getUri() == null) {
+            return -1;
+        }
+        String since = UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst("since");
+        if (since == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(since);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 前端客户端：有界发送队列 + 专属虚拟线程串行发送
+     */
+    private static final class MonitorClient {
+
+        private final WebSocketSession session;
+        private final BlockingQueue<TextMessage> queue;
+        private final Thread writer;
+        /**
+         * 已放入发送队列的最大seq，只在broadcastLock内读写
+         */
+        private long cursor;
+
+        MonitorClient(WebSocketSession session, int capacity) {
+            this.session = session;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.writer = Thread.ofVirtual().name("monitor-writer-" + session.getId()).start(this::writeLoop);
+        }
+
+        boolean offer(TextMessage message) {
+            return queue.offer(message);
+        }
+
+        void stop() {
+            writer.interrupt();
+        }
+
+        /**
+         * 停止发送并关闭连接，关闭在单独的虚拟线程上完成，不阻塞分发线程
+         */
+        void fail() {
+            queue.clear();
+            writer.interrupt();
+            Thread.ofVirtual().start(() -> closeQuietly(session));
+        }
+
+        private void writeLoop() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    session.sendMessage(queue.take());
+                }
+            } catch (InterruptedException e) {
+                // 连接关闭或被判定为慢客户端
+            } catch (Exception e) {
+                log.warn("Failed to send message to {}: {}", session.getId(), e.getMessage());
+                closeQuietly(session);
+            }
+        }
+    }
+
+    private static void closeQuietly(WebSocketSession session) {
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (Exception ignored) {
+            // 连接可能已经关闭
+        }
+    }
 }
@@ -3,17 +3,25 @@ package org.example.socket.manager;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Agent连接管理器 - 维护所有连接的Agent会话
  * 支持按ID查找Agent并推送命令
+ * 每个Agent会话的出站消息经过有界发送队列，由会话专属的写线程串行写出，发送方不会阻塞在网络写上
  */
 @Component
 public class AgentConnectionManager {
@@ -22,9 +30,24 @@ public class AgentConnectionManager {
 
     private static final Map<String, AgentSession> agentSessions = new ConcurrentHashMap<>();
 
+    /**
+     * 设备ID到Agent name的映射，设备注册完成后登记，连接关闭时移除，转发命令时无需查库
+     */
+    private static final Map<Long, String> deviceAgentNames = new ConcurrentHashMap<>();
+
     private final ObjectMapper objectMapper;
-    public AgentConnectionManager(ObjectMapper objectMapper) {
+    private final int sendTimeLimitMs;
+    private final int bufferSizeLimitBytes;
+    private final AgentSession.OverflowStrategy overflowStrategy;
+
+    public AgentConnectionManager(ObjectMapper objectMapper,
+                                  @Value("${agent.outbound.send-time-limit-ms:10000}") int sendTimeLimitMs,
+                                  @Value("${agent.outbound.buffer-size-limit-bytes:524288}") int bufferSizeLimitBytes,
+                                  @Value("${agent.outbound.overflow-strategy:TERMINATE}") AgentSession.OverflowStrategy overflowStrategy) {
         this.objectMapper = objectMapper;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.bufferSizeLimitBytes = bufferSizeLimitBytes;
+        this.overflowStrategy = overflowStrategy;
     }
 
     /**
@@ -32,7 +55,11 @@ public class AgentConnectionManager {
      */
     public void registerAgent(String name, WebSocketSession session) {
         try {
-            agentSessions.put(name, new AgentSession(name, session));
+            AgentSession previous = agentSessions.put(name,
+                    new AgentSession(name, session, sendTimeLimitMs, bufferSizeLimitBytes, overflowStrategy));
+            if (previous != null && previous.getSession() != session) {
+                previous.stop();
+            }
             log.info("Agent registered: {}, Total agents: {}", name, agentSessions.size());
         } catch (Exception e) {
             log.error("Error registering agent: {}", name, e);
@@ -41,12 +68,39 @@ public class AgentConnectionManager {
 
     /**
      * 注销Agent连接
+     * 只有当前登记的会话与关闭的会话一致时才移除，避免旧连接关闭时误删同名Agent的新连接
      */
-    public void unregisterAgent(String name) {
-        agentSessions.remove(name);
+    public void unregisterAgent(String name, WebSocketSession session) {
+        agentSessions.computeIfPresent(name, (key, existing) -> {
+            if (existing.getSession() != session) {
+                return existing;
+            }
+            existing.stop();
+            return null;
+        });
+        if (session.getAttributes().get("deviceId") instanceof Long deviceId && !agentSessions.containsKey(name)) {
+            deviceAgentNames.remove(deviceId, name);
+        }
         log.info("Agent unregistered: {}, Remaining agents: {}", name, agentSessions.size());
     }
 
+    /**
+     * 设备注册完成后登记设备ID与Agent name的对应关系
+     */
+    public void bindDevice(Long deviceId, String name) {
+        deviceAgentNames.put(deviceId, name);
+    }
+
+    /**
+     * 根据设备ID查找在线Agent的name
+     *
+     * @return Agent name，设备未登记或已离线时返回null
+     */
+    public String findAgentName(Long deviceId) {
+        String name = deviceAgentNames.get(deviceId);
+        return name != null && isAgentOnline(name) ? name : null;
+    }
+
     /**
      * 向指定Agent发送命令
      */
@@ -61,7 +115,9 @@ public class AgentConnectionManager {
 
             if (!agentSession.isConnected()) {
                 log.warn("Agent not connected: {}", name);
-                agentSessions.remove(name);
+                if (agentSessions.remove(name, agentSession)) {
+                    agentSession.stop();
+                }
                 return;
             }
 String messageJson = objectMapper.writeValueAsString(command);
@@ -72,6 +128,27 @@ String messageJson = objectMapper.writeValueAsString(command);
         }
     }
 
+    /**
+     * 向指定Agent发送消息
+     * 消息进入该Agent会话的发送队列，调用方不会阻塞在其他线程正在进行的发送上
+     *
+     * @return false表示Agent不在线或发送失败
+     */
+    public boolean sendMessageToAgent(String name, WebSocketMessage<?> message) {
+        AgentSession agentSession = agentSessions.get(name);
+        if (agentSession == null || !agentSession.isConnected()) {
+            log.warn("Agent not connected: {}", name);
+            return false;
+        }
+        try {
+            agentSession.sendMessage(message);
+            return true;
+        } catch (Exception e) {
+            log.error("Error sending message to agent: {}", name, e);
+            return false;
+        }
+    }
+
     /**
      * 获取Agent连接数
      */
@@ -86,6 +163,13 @@ String messageJson = objectMapper.writeValueAsString(command);
         return agentSessions.keySet();
     }
 
+    /**
+     * 获取所有Agent会话
+     */
+    public Collection<AgentSession> getAgentSessions() {
+        return agentSessions.values();
+    }
+
     /**
      * 检查Agent是否在线
      */
@@ -96,16 +180,44 @@ String messageJson = objectMapper.writeValueAsString(command);
 
     /**
      * 内部类：Agent会话包装 - Spring WebSocket实现
+     * 出站消息进入会话自己的有界发送队列后立即返回，由该会话专属的虚拟线程按顺序写出：
+     * 调用方从不执行阻塞写，慢Agent只阻塞自己的写线程
+     * 队列中待发送字节数超过上限，或当前这次写出已超过时间上限时按溢出策略处理：
+     * TERMINATE关闭连接由Agent重连（默认），DROP丢弃最早的待发送消息
      */
     public static class AgentSession {
+
+        /**
+         * 发送队列溢出时的处理策略
+         */
+        public enum OverflowStrategy {
+            TERMINATE,
+            DROP
+        }
+
         private final String name;
         private final WebSocketSession session;
         private final long createdAt;
+        private final long sendTimeLimitMs;
+        private final int bufferSizeLimitBytes;
+        private final OverflowStrategy overflowStrategy;
+        private final BlockingQueue<WebSocketMessage<?>> queue = new LinkedBlockingQueue<>();
+        private final AtomicInteger bufferedBytes = new AtomicInteger();
+        private final Thread writer;
+        /**
+         * 当前这次写出的开始时间，0表示写线程空闲
+         */
+        private volatile long sendStartedAt;
 
-        public AgentSession(String name, WebSocketSession session) {
+        public AgentSession(String name, WebSocketSession session,
+                            int sendTimeLimitMs, int bufferSizeLimitBytes, OverflowStrategy overflowStrategy) {
             this.name = name;
             this.session = session;
             this.createdAt = System.currentTimeMillis();
+            this.sendTimeLimitMs = sendTimeLimitMs;
+            this.bufferSizeLimitBytes = bufferSizeLimitBytes;
+            this.overflowStrategy = overflowStrategy;
+            this.writer = Thread.ofVirtual().name("agent-writer-" + name).start(this::writeLoop);
         }
 
         public String getAgentId() {
@@ -120,13 +232,106 @@ String messageJson = objectMapper.writeValueAsString(command);
             return createdAt;
         }
 
+        /**
+         * 发送队列中尚未写出的字节数
+         */
+        public int getBufferSize() {
+            return bufferedBytes.get();
+        }
+
         public boolean isConnected() {
             return session != null && session.isOpen();
         }
 
         public void sendMessage(String message) throws IOException {
-            if (session != null && session.isOpen()) {
-                session.sendMessage(new TextMessage(message));
+            sendMessage(new TextMessage(message));
+        }
+
+        /**
+         * 消息放入发送队列后立即返回，不等待写出
+         */
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            if (session == null || !session.isOpen()) {
+                return;
+            }
+            // 写线程卡在一次写出上超过时间上限，说明Agent已不再读取
+            long startedAt = sendStartedAt;
+            if (overflowStrategy == OverflowStrategy.TERMINATE && startedAt != 0
+                    && System.currentTimeMillis() - startedAt > sendTimeLimitMs) {
+                overflow("send time limit " + sendTimeLimitMs + "ms exceeded");
+                return;
+            }
+            int size = message.getPayloadLength();
+            if (bufferedBytes.addAndGet(size) > bufferSizeLimitBytes) {
+                if (overflowStrategy == OverflowStrategy.TERMINATE) {
+                    bufferedBytes.addAndGet(-size);
+                    overflow("buffer size limit " + bufferSizeLimitBytes + " bytes exceeded");
+                    return;
+                }
+                // DROP：丢弃最早的消息直到放得下新消息
+                log.debug("Outbound buffer limit exceeded for agent {}, dropping oldest messages", name);
+                while (bufferedBytes.get() > bufferSizeLimitBytes) {
+                    WebSocketMessage<?> dropped = queue.poll();
+                    if (dropped == null) {
+                        break;
+                    }
+                    bufferedBytes.addAndGet(-dropped.getPayloadLength());
+                }
+            }
+            queue.add(message);
+        }
+
+        /**
+         * 停止写线程，连接关闭或被同名新连接替换时调用，队列中未写出的消息被丢弃
+         */
+        public void stop() {
+            writer.interrupt();
+            queue.clear();
+            bufferedBytes.set(0);
+        }
+
+        /**
+         * TERMINATE策略下关闭连接，由Agent重连
+         */
+        private void overflow(String reason) {
+            log.warn("Outbound {} for agent {}, closing session", reason, name);
+            stop();
+            // 关闭可能需要等待底层写完成，放到单独的虚拟线程上，不阻塞调用方
+            Thread.ofVirtual().start(() -> {
+                try {
+                    session.close(CloseStatus.SESSION_NOT_RELIABLE);
+                } catch (Exception e) {
+                    log.debug("Error closing session for agent {}: {}", name, e.getMessage());
+                }
+            });
+        }
+
+        private void writeLoop() {
+            try {
+                while (true) {
+                    WebSocketMessage<?> message = queue.take();
+                    bufferedBytes.addAndGet(-message.getPayloadLength());
+                    if (!session.isOpen()) {
+                        continue;
+                    }
+                    sendStartedAt = System.currentTimeMillis();
+                    try {
+                        session.sendMessage(message);
+                    } finally {
+                        sendStartedAt = 0;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // 连接关闭或被替换
+            } catch (Exception e) {
+                log.warn("Failed to send message to agent {}, closing session: {}", name, e.getMessage());
+                queue.clear();
+                bufferedBytes.set(0);
+                try {
+                    session.close(CloseStatus.SESSION_NOT_RELIABLE);
+                } catch (Exception ignored) {
+                    // 连接可能已经关闭
+                }
             }
         }
     }
@@ -0,0 +1,249 @@
+package org.example.socket.manager;
+
+import org.example.common.enums.DeviceStatus;
+import org.example.socket.config.SchedulingConfig;
+import org.example.socket.service.DeviceManagementService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Agent存活跟踪器
+ * 在内存中为每个在线设备维护截止时间，收到任意消息即顺延：deadline = 最近消息时间 + 同步频率 * grace-factor
+ * 截止时间使用时间轮（每格1秒）组织，顺延和过期检查都是O(1)，每次扫描只处理到期的格子
+ * 崩溃或NAT超时造成的半开连接不会触发afterConnectionClosed，由这里主动关闭并批量标记离线；
+ * 连续多次超时的设备标记为故障(FAULT)；过期设备的告警状态立即清除，不等待半开连接的关闭回调
+ * 扫描运行在独立的liveness调度线程上；关闭连接可能阻塞在半开连接的写上，在虚拟线程上异步执行
+ */
+@Component
+public class AgentLivenessTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(AgentLivenessTracker.class);
+
+    /**
+     * session属性：标记该连接已被存活检查关闭，断开回调中不再重复标记离线
+     */
+    public static final String LIVENESS_EXPIRED_ATTR = "livenessExpired";
+
+    private static final long TICK_MS = 1000;
+    private static final int WHEEL_SIZE = 512;
+
+    private final DeviceManagementService deviceManagementService;
+    private final AlertRuleEngine alertRuleEngine;
+    private final int defaultSyncFrequency;
+    private final double graceFactor;
+    private final int faultMissThreshold;
+
+    private final Map<Long, Liveness> entries = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> missCounts = new ConcurrentHashMap<>();
+    private final Set<Long>[] wheel;
+    private long lastTick;
+
+    @SuppressWarnings("unchecked")
+    public AgentLivenessTracker(DeviceManagementService deviceManagementService,
+                                AlertRuleEngine alertRuleEngine,
+                                @Value("${device.default-sync-frequency:30}") int defaultSyncFrequency,
+                                @Value("${liveness.grace-factor:3}") double graceFactor,
+                                @Value("${liveness.fault-miss-threshold:3}") int faultMissThreshold) {
+        this.deviceManagementService = deviceManagementService;
+        this.alertRuleEngine = alertRuleEngine;
+        this.defaultSyncFrequency = defaultSyncFrequency;
+        this.graceFactor = graceFactor;
+        this.faultMissThreshold = faultMissThreshold;
+        this.wheel = new Set[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = ConcurrentHashMap.newKeySet();
+        }
+        this.lastTick = System.currentTimeMillis() / TICK_MS;
+    }
+
+    /**
+     * 设备注册完成后开始跟踪
+     *
+     * @param deviceId 设备ID
+     * @param session 设备对应的WebSocket会话
+     * @param syncFrequency 同步频率（秒），为空时使用默认值
+     */
+    public void register(Long deviceId, WebSocketSession session, Integer syncFrequency) {
+        Liveness liveness = new Liveness(session, toIntervalMs(syncFrequency));
+        liveness.lastFrameAt = System.currentTimeMillis();
+        Liveness previous = entries.put(deviceId, liveness);
+        if (previous != null) {
+            synchronized (previous) {
+                wheel[previous.slot].remove(deviceId);
+            }
+        }
+        reschedule(deviceId, liveness, System.currentTimeMillis());
+    }
+
+    /**
+     * 收到设备消息时顺延截止时间
+     */
+    public void touch(Long deviceId) {
+        Liveness liveness = entries.get(deviceId);
+        if (liveness == null) {
+            return;
+        }
+        // 同一连接上已按时收到过消息，说明设备恢复稳定，清零连续超时计数
+        if (++liveness.touches >= 2) {
+            missCounts.remove(deviceId);
+        }
+        long now = System.currentTimeMillis();
+        liveness.lastFrameAt = now;
+        reschedule(deviceId, liveness, now);
+    }
+
+    /**
+     * 同步频率变更时更新存活间隔
+     */
+    public void updateInterval(Long deviceId, Integer syncFrequency) {
+        Liveness liveness = entries.get(deviceId);
+        if (liveness != null) {
+            liveness.intervalMs = toIntervalMs(syncFrequency);
+            reschedule(deviceId, liveness, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 连接关闭时停止跟踪，只移除与关闭会话对应的条目
+     */
+    public void unregister(Long deviceId, WebSocketSession session) {
+        Liveness liveness = entries.get(deviceId);
+        if (liveness != null && liveness.session == session && entries.remove(deviceId, liveness)) {
+            synchronized (liveness) {
+                wheel[liveness.slot].remove(deviceId);
+            }
+        }
+    }
+
+    /**
+     * 获取设备最近一次收到消息的时间
+     *
+     * @return 毫秒时间戳，设备未被跟踪时返回0
+     */
+    public long getLastFrameAt(Long deviceId) {
+        Liveness liveness = entries.get(deviceId);
+        return liveness != null ? liveness.lastFrameAt : 0;
+    }
+
+    /**
+     * 获取当前跟踪的设备数
+     */
+    public int getTrackedCount() {
+        return entries.size();
+    }
+
+    /**
+     * 每秒推进时间轮，处理到期的格子
+     */
+    @Scheduled(fixedRate = TICK_MS, scheduler = SchedulingConfig.LIVENESS_SCHEDULER)
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        long currentTick = now / TICK_MS;
+        List<Long> offline = new ArrayList<>();
+        List<Long> fault = new ArrayList<>();
+
+        long fromTick = Math.max(lastTick, currentTick - WHEEL_SIZE + 1);
+        for (long tick = fromTick; tick <= currentTick; tick++) {
+            Set<Long> slot = wheel[(int) (tick % WHEEL_SIZE)];
+            for (Long deviceId : slot) {
+                Liveness liveness = entries.get(deviceId);
+                if (liveness == null) {
+                    slot.remove(deviceId);
+                    continue;
+                }
+                synchronized (liveness) {
+                    // 截止时间可能已被顺延或属于时间轮的下一圈
+                    if (liveness.deadline > now) {
+                        continue;
+                    }
+                    slot.remove(deviceId);
+                }
+                if (!entries.remove(deviceId, liveness)) {
+                    continue;
+                }
+                int misses = missCounts.merge(deviceId, 1, Integer::sum);
+                if (misses >= faultMissThreshold) {
+                    fault.add(deviceId);
+                } else {
+                    offline.add(deviceId);
+                }
+                expire(deviceId, liveness, misses);
+                alertRuleEngine.clearDevice(deviceId, "liveness expired after " + misses + " consecutive misses");
+            }
+        }
+        lastTick = currentTick + 1;
+
+        if (!offline.isEmpty()) {
+            deviceManagementService.markDevicesStatus(offline, DeviceStatus.OFFLINE.getCode());
+        }
+        if (!fault.isEmpty()) {
+            deviceManagementService.markDevicesStatus(fault, DeviceStatus.FAULT.getCode());
+        }
+        if (!offline.isEmpty() || !fault.isEmpty()) {
+            log.warn("Liveness sweep expired {} devices (offline: {}, fault: {}), still tracking: {}",
+                    offline.size() + fault.size(), offline.size(), fault.size(), entries.size());
+        }
+    }
+
+    private void expire(Long deviceId, Liveness liveness, int misses) {
+        WebSocketSession session = liveness.session;
+        session.getAttributes().put(LIVENESS_EXPIRED_ATTR, Boolean.TRUE);
+        log.debug("Device {} missed liveness deadline (consecutive misses: {}), closing session {}",
+                deviceId, misses, session.getId());
+        Thread.ofVirtual().start(() -> {
+            try {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (Exception e) {
+                log.debug("Error closing expired session for device {}: {}", deviceId, e.getMessage());
+            }
+        });
+    }
+
+    private void reschedule(Long deviceId, Liveness liveness, long now) {
+        long deadline = now + (long) (liveness.intervalMs * graceFactor);
+        int newSlot = (int) ((deadline / TICK_MS) % WHEEL_SIZE);
+        synchronized (liveness) {
+            liveness.deadline = deadline;
+            if (newSlot != liveness.slot || !liveness.scheduled) {
+                wheel[liveness.slot].remove(deviceId);
+                wheel[newSlot].add(deviceId);
+                liveness.slot = newSlot;
+                liveness.scheduled = true;
+            }
+        }
+    }
+
+    private long toIntervalMs(Integer syncFrequency) {
+        int seconds = syncFrequency != null && syncFrequency > 0 ? syncFrequency : defaultSyncFrequency;
+        return seconds * 1000L;
+    }
+
+    /**
+     * 单个设备的存活状态
+     */
+    private static class Liveness {
+        private final WebSocketSession session;
+        private volatile long intervalMs;
+        private volatile long deadline;
+        private int slot;
+        private boolean scheduled;
+        private volatile int touches;
+        private volatile long lastFrameAt;
+
+        private Liveness(WebSocketSession session, long intervalMs) {
+            this.session = session;
+            this.intervalMs = intervalMs;
+        }
+    }
+}
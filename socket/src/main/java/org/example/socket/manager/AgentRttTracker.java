@@ -0,0 +1,231 @@
+package org.example.socket.manager;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.example.socket.config.SchedulingConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.PongMessage;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agent往返时延(RTT)跟踪器
+ * 定期向所有Agent发送WebSocket协议层的Ping控制帧，负载为发送时的System.nanoTime()
+ * Agent的WebSocket实现会自动回复Pong，收到Pong后计算RTT
+ * Ping在独立的ping调度线程上发出，只放入各Agent会话的发送队列，不在调度线程上做网络写；
+ * 因此RTT包含Ping在发送队列中的等待时间
+ * 统计只反映最近一段时间，不随运行时长累积：
+ * - 每个Agent保留最近window-samples个RTT样本的滑动窗口（每个Ping周期一个样本，数组开销固定）
+ * - 全体Agent的RTT记入HDR Recorder，每个Ping周期取出一个区间直方图，保留最近window-intervals个区间
+ * 不产生任何应用层JSON流量
+ */
+@Component
+public class AgentRttTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(AgentRttTracker.class);
+
+    /**
+     * 可记录的最大RTT（微秒），超出部分按最大值记录
+     */
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.SECONDS.toMicros(60);
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final AgentConnectionManager agentConnectionManager;
+    private final int windowSamples;
+    private final Map<String, SampleWindow> windows = new ConcurrentHashMap<>();
+    private final Recorder fleetRecorder = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    private final Histogram[] fleetIntervals;
+    private int fleetIntervalIndex = 0;
+
+    public AgentRttTracker(AgentConnectionManager agentConnectionManager,
+                           @Value("${ping.window-samples:40}") int windowSamples,
+                           @Value("${ping.window-intervals:20}") int windowIntervals) {
+        this.agentConnectionManager = agentConnectionManager;
+        this.windowSamples = Math.max(1, windowSamples);
+        this.fleetIntervals = new Histogram[Math.max(1, windowIntervals)];
+    }
+
+    /**
+     * 定期向所有在线Agent发送Ping，并把上一个周期的全体RTT滚动为一个区间直方图
+     */
+    @Scheduled(fixedDelayString = "${ping.interval-ms:15000}", scheduler = SchedulingConfig.PING_SCHEDULER)
+    public void pingAll() {
+        rotateFleetInterval();
+        int sent = 0;
+        for (AgentConnectionManager.AgentSession agentSession : agentConnectionManager.getAgentSessions()) {
+            if (!agentSession.isConnected()) {
+                continue;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(Long.BYTES).putLong(0, System.nanoTime());
+            try {
+                agentSession.sendMessage(new PingMessage(payload));
+                sent++;
+            } catch (Exception e) {
+                log.debug("Failed to send ping to agent {}: {}", agentSession.getAgentId(), e.getMessage());
+            }
+        }
+        log.debug("Ping sent to {} agents", sent);
+    }
+
+    /**
+     * 处理Agent回复的Pong，记录RTT
+     *
+     * @param agentName Agent name
+     * @param message Pong消息
+     */
+    public void recordPong(String agentName, PongMessage message) {
+        ByteBuffer payload = message.getPayload();
+        if (payload.remaining() != Long.BYTES) {
+            return;
+        }
+        long rttMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - payload.getLong(payload.position()));
+        if (rttMicros < 0) {
+            return;
+        }
+        long value = Math.min(rttMicros, HIGHEST_TRACKABLE_MICROS);
+        windows.computeIfAbsent(agentName, k -> new SampleWindow(windowSamples)).add(value);
+        fleetRecorder.recordValue(value);
+    }
+
+    /**
+     * Agent断开时清理其样本窗口
+     */
+    public void remove(String agentName) {
+        windows.remove(agentName);
+    }
+
+    /**
+     * 获取指定Agent最近窗口内的RTT统计
+     *
+     * @return 统计信息，Agent没有RTT样本时返回null
+     */
+    public Map<String, Object> getAgentStats(String agentName) {
+        SampleWindow window = windows.get(agentName);
+        return window == null ? null : window.toStats();
+    }
+
+    /**
+     * 获取所有Agent最近窗口内的RTT统计
+     */
+    public Map<String, Map<String, Object>> getAllAgentStats() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        windows.forEach((name, window) -> result.put(name, window.toStats()));
+        return result;
+    }
+
+    /**
+     * 获取全体Agent最近window-intervals个Ping周期合并后的RTT统计
+     */
+    public Map<String, Object> getFleetStats() {
+        Histogram fleet = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        synchronized (fleetIntervals) {
+            for (Histogram interval : fleetIntervals) {
+                if (interval != null) {
+                    fleet.add(interval);
+                }
+            }
+        }
+        Map<String, Object> stats = toStats(fleet);
+        stats.put("agents", windows.size());
+        return stats;
+    }
+
+    /**
+     * 取出Recorder中上一个周期的区间直方图放入环中，复用被挤出的最旧区间
+     */
+    private void rotateFleetInterval() {
+        synchronized (fleetIntervals) {
+            Histogram oldest = fleetIntervals[fleetIntervalIndex];
+            fleetIntervals[fleetIntervalIndex] = fleetRecorder.getIntervalHistogram(oldest);
+            fleetIntervalIndex = (fleetIntervalIndex + 1) % fleetIntervals.length;
+        }
+    }
+
+    /**
+     * 将直方图转换为统计信息，时延单位为毫秒
+     */
+    private Map<String, Object> toStats(Histogram histogram) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", histogram.getTotalCount());
+        if (histogram.getTotalCount() == 0) {
+            return stats;
+        }
+        stats.put("minMs", toMillis(histogram.getMinValue()));
+        stats.put("meanMs", histogram.getMean() / 1000.0);
+        stats.put("p50Ms", toMillis(histogram.getValueAtPercentile(50)));
+        stats.put("p90Ms", toMillis(histogram.getValueAtPercentile(90)));
+        stats.put("p99Ms", toMillis(histogram.getValueAtPercentile(99)));
+        stats.put("p999Ms", toMillis(histogram.getValueAtPercentile(99.9)));
+        stats.put("maxMs", toMillis(histogram.getMaxValue()));
+        return stats;
+    }
+
+    private static double toMillis(long micros) {
+        return micros / 1000.0;
+    }
+
+    /**
+     * 单个Agent最近RTT样本的环形窗口（微秒）
+     * 每个Ping周期只有一个样本，窗口很小，统计时直接排序
+     */
+    private static class SampleWindow {
+        private final long[] samples;
+        private int next;
+        private int count;
+
+        private SampleWindow(int capacity) {
+            this.samples = new long[capacity];
+        }
+
+        private synchronized void add(long micros) {
+            samples[next] = micros;
+            next = (next + 1) % samples.length;
+            if (count < samples.length) {
+                count++;
+            }
+        }
+
+        private Map<String, Object> toStats() {
+            long[] sorted;
+            synchronized (this) {
+                sorted = Arrays.copyOf(samples, count);
+            }
+            Arrays.sort(sorted);
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", sorted.length);
+            if (sorted.length == 0) {
+                return stats;
+            }
+            long sum = 0;
+            for (long sample : sorted) {
+                sum += sample;
+            }
+            stats.put("minMs", toMillis(sorted[0]));
+            stats.put("meanMs", (double) sum / sorted.length / 1000.0);
+            stats.put("p50Ms", toMillis(percentile(sorted, 50)));
+            stats.put("p90Ms", toMillis(percentile(sorted, 90)));
+            stats.put("p99Ms", toMillis(percentile(sorted, 99)));
+            stats.put("p999Ms", toMillis(percentile(sorted, 99.9)));
+            stats.put("maxMs", toMillis(sorted[sorted.length - 1]));
+            return stats;
+        }
+
+        /**
+         * 最近秩法取分位数
+         */
+        private static long percentile(long[] sorted, double percentile) {
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+            return sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))];
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package org.example.socket.manager;
+
+import org.example.socket.domain.AlertEvent;
+import org.example.socket.domain.AlertRule;
+import org.example.socket.domain.DeviceMetric;
+import org.example.socket.service.AlertSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 告警规则引擎
+ * 每个状态帧到达时增量评估规则，只评估该帧中有值的指标上挂载的规则，单帧开销与匹配的规则数成正比
+ * 每条规则的设备状态存放在按设备序号下标的基本类型数组中：
+ * - pendingSince 条件开始持续满足的时间，0表示条件当前不满足
+ * - firingSince 告警触发的时间，0表示未触发
+ * - lastObserved 最近一次观测值
+ * - prevValue/prevTime rate规则的上一帧取值和时间
+ * 只在告警触发(FIRING)和恢复(RESOLVED)时产生事件，交给所有AlertSink
+ * 设备断开或存活检查过期后不会再有状态帧，由clearDevice结束其触发中的告警并清空状态
+ */
+@Component
+public class AlertRuleEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertRuleEngine.class);
+
+    private final List<AlertRule> rules;
+    private final AlertRule[][] rulesByMetric;
+    private final RuleState[] states;
+    private final List<AlertSink> sinks;
+    private final DeviceOrdinalRegistry ordinalRegistry;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile int capacity = 1024;
+
+    public AlertRuleEngine(@Value("${alert.rules:}") String ruleSpec,
+                           List<AlertSink> sinks,
+                           DeviceOrdinalRegistry ordinalRegistry) {
+        this.rules = AlertRule.parseAll(ruleSpec);
+        this.sinks = sinks;
+        this.ordinalRegistry = ordinalRegistry;
+
+        DeviceMetric[] metrics = DeviceMetric.values();
+        this.rulesByMetric = new AlertRule[metrics.length][];
+        for (DeviceMetric metric : metrics) {
+            this.rulesByMetric[metric.ordinal()] = rules.stream()
+                    .filter(rule -> rule.getMetric() == metric)
+                    .toArray(AlertRule[]::new);
+        }
+        this.states = new RuleState[rules.size()];
+        for (AlertRule rule : rules) {
+            this.states[rule.getIndex()] = new RuleState(rule.isRate(), capacity);
+        }
+        log.info("AlertRuleEngine initialized with {} rules: {}", rules.size(), rules);
+    }
+
+    /**
+     * 评估一帧状态
+     *
+     * @param ordinal 设备序号
+     * @param values 指标值，下标为DeviceMetric的ordinal
+     * @param timestamp 状态帧时间戳（毫秒）
+     */
+    public void evaluate(long deviceId, int ordinal, double[] values, long timestamp) {
+        if (rules.isEmpty()) {
+            return;
+        }
+        ensureCapacity(ordinal + 1);
+
+        List<AlertEvent> transitions = null;
+        lock.readLock().lock();
+        try {
+            for (int m = 0; m < values.length; m++) {
+                AlertRule[] matched = rulesByMetric[m];
+                double value = values[m];
+                if (matched.length == 0 || Double.isNaN(value)) {
+                    continue;
+                }
+                for (AlertRule rule : matched) {
+                    AlertEvent event = evaluateRule(rule, states[rule.getIndex()], deviceId, ordinal, value, timestamp);
+                    if (event != null) {
+                        if (transitions == null) {
+                            transitions = new ArrayList<>(2);
+                        }
+                        transitions.add(event);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (transitions != null) {
+            for (AlertEvent event : transitions) {
+                emit(event);
+            }
+        }
+    }
+
+    /**
+     * 获取当前处于触发状态的告警
+     */
+    public List<AlertEvent> getActiveAlerts() {
+        List<AlertEvent> active = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        lock.readLock().lock();
+        try {
+            int size = Math.min(ordinalRegistry.size(), capacity);
+            for (AlertRule rule : rules) {
+                RuleState state = states[rule.getIndex()];
+                for (int i = 0; i < size; i++) {
+                    if (state.firingSince[i] != 0) {
+                        active.add(new AlertEvent(rule.getName(), ordinalRegistry.deviceIdAt(i), rule.getMetric().getKey(),
+                                AlertEvent.FIRING, state.lastObserved[i], rule.getThreshold(), state.firingSince[i], now));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return active;
+    }
+
+    /**
+     * 清除设备在所有规则上的状态
+     * 设备断开或存活检查过期时调用：触发中的告警以RESOLVED结束（值为最后一次观测值），
+     * 离线设备的告警不会一直留在活动列表中，重连后rate规则也不会用断线前的取值计算变化率
+     *
+     * @param deviceId 设备ID
+     * @param reason 清除原因，仅用于日志
+     */
+    public void clearDevice(long deviceId, String reason) {
+        int ordinal = ordinalRegistry.findOrdinal(deviceId);
+        if (rules.isEmpty() || ordinal < 0) {
+            return;
+        }
+
+        List<AlertEvent> resolved = null;
+        long now = System.currentTimeMillis();
+        // 写锁与evaluate互斥，避免与同一设备正在进行的评估交错修改状态
+        lock.writeLock().lock();
+        try {
+            if (ordinal >= capacity) {
+                return;
+            }
+            for (AlertRule rule : rules) {
+                RuleState state = states[rule.getIndex()];
+                long firingSince = state.firingSince[ordinal];
+                if (firingSince != 0) {
+                    if (resolved == null) {
+                        resolved = new ArrayList<>(2);
+                    }
+                    resolved.add(new AlertEvent(rule.getName(), deviceId, rule.getMetric().getKey(), AlertEvent.RESOLVED,
+                            state.lastObserved[ordinal], rule.getThreshold(), firingSince, now));
+                }
+                state.clear(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (resolved != null) {
+            log.info("Resolving {} alerts of device {}: {}", resolved.size(), deviceId, reason);
+            for (AlertEvent event : resolved) {
+                emit(event);
+            }
+        }
+    }
+
+    /**
+     * 获取已加载的规则
+     */
+    public List<AlertRule> getRules() {
+        return rules;
+    }
+
+    private AlertEvent evaluateRule(AlertRule rule, RuleState state, long deviceId, int ordinal,
+                                    double value, long timestamp) {
+        double observed = value;
+        if (rule.isRate()) {
+            long prevTime = state.prevTime[ordinal];
+            double prevValue = state.prevValue[ordinal];
+            state.prevTime[ordinal] = timestamp;
+            state.prevValue[ordinal] = value;
+            if (prevTime == 0 || timestamp <= prevTime) {
+                // 需要两帧才能计算变化率
+                return null;
+            }
+            observed = (value - prevValue) * 60000.0 / (timestamp - prevTime);
+        }
+        state.lastObserved[ordinal] = observed;
+
+        if (!rule.test(observed)) {
+            state.pendingSince[ordinal] = 0;
+            long firingSince = state.firingSince[ordinal];
+            if (firingSince == 0) {
+                return null;
+            }
+            state.firingSince[ordinal] = 0;
+            return new AlertEvent(rule.getName(), deviceId, rule.getMetric().getKey(), AlertEvent.RESOLVED,
+                    observed, rule.getThreshold(), firingSince, timestamp);
+        }
+
+        if (state.firingSince[ordinal] != 0) {
+            return null;
+        }
+        if (state.pendingSince[ordinal] == 0) {
+            state.pendingSince[ordinal] = timestamp;
+        }
+        long pendingSince = state.pendingSince[ordinal];
+        if (timestamp - pendingSince < rule.getForMs()) {
+            return null;
+        }
+        state.firingSince[ordinal] = timestamp;
+        return new AlertEvent(rule.getName(), deviceId, rule.getMetric().getKey(), AlertEvent.FIRING,
+                observed, rule.getThreshold(), pendingSince, timestamp);
+    }
+
+    private void emit(AlertEvent event) {
+        log.info("Alert {}: rule={}, device={}, value={}, threshold={}",
+                event.state(), event.rule(), event.deviceId(), event.value(), event.threshold());
+        for (AlertSink sink : sinks) {
+            try {
+                sink.onAlert(event);
+            } catch (Exception e) {
+                log.warn("Alert sink {} failed: {}", sink.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= capacity) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (required <= capacity) {
+                return;
+            }
+            int grown = Math.max(required, capacity + (capacity >> 1));
+            for (RuleState state : states) {
+                state.grow(grown);
+            }
+            capacity = grown;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 单条规则在全部设备上的状态，数组下标为设备序号
+     */
+    private static class RuleState {
+        private long[] pendingSince;
+        private long[] firingSince;
+        private double[] lastObserved;
+        private double[] prevValue;
+        private long[] prevTime;
+
+        private RuleState(boolean rate, int capacity) {
+            this.pendingSince = new long[capacity];
+            this.firingSince = new long[capacity];
+            this.lastObserved = new double[capacity];
+            if (rate) {
+                this.prevValue = new double[capacity];
+                this.prevTime = new long[capacity];
+            }
+        }
+
+        private void clear(int ordinal) {
+            pendingSince[ordinal] = 0;
+            firingSince[ordinal] = 0;
+            lastObserved[ordinal] = 0;
+            if (prevValue != null) {
+                prevValue[ordinal] = 0;
+                prevTime[ordinal] = 0;
+            }
+        }
+
+        private void grow(int capacity) {
+            pendingSince = Arrays.copyOf(pendingSince, capacity);
+            firingSince = Arrays.copyOf(firingSince, capacity);
+            lastObserved = Arrays.copyOf(lastObserved, capacity);
+            if (prevValue != null) {
+                prevValue = Arrays.copyOf(prevValue, capacity);
+                prevTime = Arrays.copyOf(prevTime, capacity);
+            }
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package org.example.socket.manager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.common.constant.CommandStatusConstant;
+import org.example.socket.config.SchedulingConfig;
+import org.example.socket.service.DeviceEventPublisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * 命令投递管理器
+ * 每个Agent维护一个在途窗口：窗口未满时命令立即下发（流水线），Agent收到命令后回复command_ack
+ * 投递确认与执行结果(command_result)相互独立，确认后命令离开窗口，后续命令补入
+ * 超过ack超时未确认的命令会被重新投递，Agent端按commandId去重，重复投递不会重复执行
+ * Agent断线重连后，在途命令立即重发
+ * 达到最大投递次数仍未确认(failed)或提交后等待过久(timeout)的命令被放弃，并通过事件日志发布失败的command_result，
+ * 由Server更新commands表中仍处于pending/executing的对应行
+ */
+@Component
+public class CommandDeliveryManager {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandDeliveryManager.class);
+
+    private final AgentConnectionManager agentConnectionManager;
+    private final ObjectMapper objectMapper;
+    private final DeviceEventPublisher deviceEventPublisher;
+    private final Map<String, DeliveryState> states = new ConcurrentHashMap<>();
+
+    private final int window;
+    private final long ackTimeoutNanos;
+    private final int maxAttempts;
+    private final int maxQueued;
+    private final long maxPendingNanos;
+    private LongSupplier nanoClock = System::nanoTime;
+
+    public CommandDeliveryManager(AgentConnectionManager agentConnectionManager,
+                                  ObjectMapper objectMapper,
+                                  DeviceEventPublisher deviceEventPublisher,
+                                  @Value("${command.delivery.window:8}") int window,
+                                  @Value("${command.delivery.ack-timeout-ms:10000}") long ackTimeoutMs,
+                                  @Value("${command.delivery.max-attempts:5}") int maxAttempts,
+                                  @Value("${command.delivery.max-queued:1000}") int maxQueued,
+                                  @Value("${command.delivery.max-pending-ms:300000}") long maxPendingMs) {
+        this.agentConnectionManager = agentConnectionManager;
+        this.objectMapper = objectMapper;
+        this.deviceEventPublisher = deviceEventPublisher;
+        this.window = Math.max(1, window);
+        this.ackTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, ackTimeoutMs));
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.maxQueued = Math.max(1, maxQueued);
+        this.maxPendingNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, maxPendingMs));
+    }
+
+    /**
+     * 替换计时时钟，测试中用于控制ack超时和等待超时
+     */
+    void setNanoClock(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * 提交命令，按窗口流水线投递给指定Agent
+     * 没有commandId的命令无法确认和去重，直接发送一次
+     *
+     * @param agentName Agent name
+     * @param deviceId 命令所属设备ID，命令被放弃时随失败结果发布
+     * @param command 命令内容，包含type、commandId、commandType、commandContent
+     * @return false表示该Agent的等待队列已满或命令无法序列化
+     */
+    public boolean submit(String agentName, Long deviceId, Map<String, Object> command) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(command);
+        } catch (Exception e) {
+            log.error("Cannot serialize command for agent: {}", agentName, e);
+            return false;
+        }
+
+        long commandId = parseCommandId(command.get("commandId"));
+        if (commandId <= 0) {
+            return agentConnectionManager.sendMessageToAgent(agentName, new TextMessage(payload));
+        }
+
+        while (true) {
+            DeliveryState state = states.computeIfAbsent(agentName, k -> new DeliveryState());
+            synchronized (state) {
+                if (states.get(agentName) != state) {
+                    // 状态对象在加锁前已因空闲被移除，重新获取
+                    continue;
+                }
+                if (state.inFlight.containsKey(commandId) || state.containsWaiting(commandId)) {
+                    log.debug("Command already pending for agent {}: commandId={}", agentName, commandId);
+                    return true;
+                }
+                if (state.waiting.size() >= maxQueued) {
+                    log.warn("Command queue full for agent {}, rejecting commandId={}", agentName, commandId);
+                    return false;
+                }
+                state.enqueue(new PendingCommand(commandId, deviceId, payload, nanoClock.getAsLong()));
+                pump(agentName, state);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 批量提交同一Agent的多条命令，整批只加一次锁、只触发一次窗口补发
+     * 命令按列表顺序进入等待队列，与逐条调用{@link #submit}的语义相同
+     *
+     * @param agentName Agent name
+     * @param deviceIds 与commands一一对应的设备ID
+     * @param commands 命令列表
+     * @return 与commands一一对应的提交结果，false表示等待队列已满或命令无法序列化
+     */
+    public boolean[] submitAll(String agentName, List<Long> deviceIds, List<Map<String, Object>> commands) {
+        boolean[] accepted = new boolean[commands.size()];
+        String[] payloads = new String[commands.size()];
+        long[] commandIds = new long[commands.size()];
+        for (int i = 0; i < commands.size(); i++) {
+            try {
+                payloads[i] = objectMapper.writeValueAsString(commands.get(i));
+            } catch (Exception e) {
+                log.error("Cannot serialize command for agent: {}", agentName, e);
+                continue;
+            }
+            commandIds[i] = parseCommandId(commands.get(i).get("commandId"));
+            if (commandIds[i] <= 0) {
+                accepted[i] = agentConnectionManager.sendMessageToAgent(agentName, new TextMessage(payloads[i]));
+                payloads[i] = null;
+            }
+        }
+
+        while (true) {
+            DeliveryState state = states.computeIfAbsent(agentName, k -> new DeliveryState());
+            synchronized (state) {
+                if (states.get(agentName) != state) {
+                    continue;
+                }
+                long now = nanoClock.getAsLong();
+                int rejected = 0;
+                for (int i = 0; i < payloads.length; i++) {
+                    if (payloads[i] == null) {
+                        continue;
+                    }
+                    long commandId = commandIds[i];
+                    if (state.inFlight.containsKey(commandId) || state.containsWaiting(commandId)) {
+                        accepted[i] = true;
+                    } else if (state.waiting.size() >= maxQueued) {
+                        rejected++;
+                    } else {
+                        state.enqueue(new PendingCommand(commandId, deviceIds.get(i), payloads[i], now));
+                        accepted[i] = true;
+                    }
+                }
+                if (rejected > 0) {
+                    log.warn("Command queue full for agent {}, rejected {} of {} commands", agentName, rejected, commands.size());
+                }
+                pump(agentName, state);
+                removeIfIdle(agentName, state);
+                return accepted;
+            }
+        }
+    }
+
+    /**
+     * Agent确认收到命令
+     * 命令执行结果也视为确认，兼容不发送command_ack的旧版本Agent
+     */
+    public void onAck(String agentName, long commandId) {
+        DeliveryState state = states.get(agentName);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            PendingCommand acked = state.inFlight.remove(commandId);
+            if (acked != null) {
+                log.debug("Command acked by agent {}: commandId={}, attempts={}", agentName, commandId, acked.attempts);
+            }
+            pump(agentName, state);
+            removeIfIdle(agentName, state);
+        }
+    }
+
+    /**
+     * Agent(重新)连接后调用
+     * 旧连接上未确认的命令可能已经丢失，立即在新连接上重发
+     */
+    public void onAgentConnected(String agentName) {
+        DeliveryState state = states.get(agentName);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            for (PendingCommand pending : state.inFlight.values()) {
+                send(agentName, pending);
+            }
+            pump(agentName, state);
+        }
+    }
+
+    /**
+     * 定期检查ack超时的在途命令并重新投递
+     * 达到最大投递次数或等待过久的命令被放弃，锁外发布失败结果
+     */
+    @Scheduled(fixedDelayString = "${command.delivery.check-interval-ms:1000}", scheduler = SchedulingConfig.DELIVERY_SCHEDULER)
+    public void redeliverExpired() {
+        long now = nanoClock.getAsLong();
+        for (Map.Entry<String, DeliveryState> entry : states.entrySet()) {
+            String agentName = entry.getKey();
+            DeliveryState state = entry.getValue();
+            List<PendingCommand> expired = new ArrayList<>();
+            List<PendingCommand> failed = new ArrayList<>();
+            synchronized (state) {
+                dropStale(agentName, state, now, expired);
+                if (agentConnectionManager.isAgentOnline(agentName)) {
+                    redeliverUnacked(agentName, state, now, failed);
+                    pump(agentName, state);
+                }
+                removeIfIdle(agentName, state);
+            }
+            publishGivenUp(agentName, expired, CommandStatusConstant.TIMEOUT,
+                    "Command not delivered within " + TimeUnit.NANOSECONDS.toMillis(maxPendingNanos) + "ms");
+            publishGivenUp(agentName, failed, CommandStatusConstant.FAILED,
+                    "Command not acknowledged after " + maxAttempts + " delivery attempts");
+        }
+    }
+
+    /**
+     * 重新投递ack超时的在途命令，达到最大投递次数的放入failed，调用方需持有state的锁
+     */
+    private void redeliverUnacked(String agentName, DeliveryState state, long now, List<PendingCommand> failed) {
+        Iterator<PendingCommand> iterator = state.inFlight.values().iterator();
+        while (iterator.hasNext()) {
+            PendingCommand pending = iterator.next();
+            if (now - pending.lastSentAt < ackTimeoutNanos) {
+                continue;
+            }
+            if (pending.attempts >= maxAttempts) {
+                iterator.remove();
+                failed.add(pending);
+                log.warn("Command not acked after {} attempts, giving up: agent={}, commandId={}",
+                        pending.attempts, agentName, pending.commandId);
+                continue;
+            }
+            log.info("Redelivering unacked command: agent={}, commandId={}, attempt={}",
+                    agentName, pending.commandId, pending.attempts + 1);
+            send(agentName, pending);
+        }
+    }
+
+    /**
+     * 为被放弃的命令发布失败的command_result
+     */
+    private void publishGivenUp(String agentName, List<PendingCommand> commands, String status, String reason) {
+        for (PendingCommand pending : commands) {
+            deviceEventPublisher.publishCommandGivenUp(pending.deviceId, agentName, pending.commandId, status, reason);
+        }
+    }
+
+    /**
+     * 获取指定Agent在途（已发送未确认）的命令数
+     */
+    public int getInFlightCount(String agentName) {
+        DeliveryState state = states.get(agentName);
+        if (state == null) {
+            return 0;
+        }
+        synchronized (state) {
+            return state.inFlight.size();
+        }
+    }
+
+    /**
+     * 获取指定Agent等待投递的命令数
+     */
+    public int getWaitingCount(String agentName) {
+        DeliveryState state = states.get(agentName);
+        if (state == null) {
+            return 0;
+        }
+        synchronized (state) {
+            return state.waiting.size();
+        }
+    }
+
+    /**
+     * 窗口未满时从等待队列补充命令并发送
+     * Agent离线时命令留在等待队列中，重连后再发送
+     */
+    private void pump(String agentName, DeliveryState state) {
+        if (!agentConnectionManager.isAgentOnline(agentName)) {
+            return;
+        }
+        while (state.inFlight.size() < window && !state.waiting.isEmpty()) {
+            PendingCommand pending = state.pollWaiting();
+            state.inFlight.put(pending.commandId, pending);
+            send(agentName, pending);
+        }
+    }
+
+    private void send(String agentName, PendingCommand pending) {
+        pending.attempts++;
+        pending.lastSentAt = nanoClock.getAsLong();
+        if (!agentConnectionManager.sendMessageToAgent(agentName, new TextMessage(pending.payload))) {
+            log.debug("Command send failed, will retry: agent={}, commandId={}", agentName, pending.commandId);
+        }
+    }
+
+    /**
+     * 丢弃提交后等待过久仍未确认的命令（Agent长时间离线），放入dropped
+     */
+    private void dropStale(String agentName, DeliveryState state, long now, List<PendingCommand> dropped) {
+        state.inFlight.values().removeIf(p -> now - p.submittedAt > maxPendingNanos && dropped.add(p));
+        state.removeWaitingIf(p -> now - p.submittedAt > maxPendingNanos && dropped.add(p));
+        for (PendingCommand pending : dropped) {
+            log.warn("Command expired before delivery: agent={}, commandId={}", agentName, pending.commandId);
+        }
+    }
+
+    private void removeIfIdle(String agentName, DeliveryState state) {
+        if (state.inFlight.isEmpty() && state.waiting.isEmpty()) {
+            states.remove(agentName, state);
+        }
+    }
+
+    private long parseCommandId(Object commandIdObj) {
+        if (commandIdObj instanceof Number number) {
+            return number.longValue();
+        }
+        if (commandIdObj != null) {
+            try {
+                return Long.parseLong(commandIdObj.toString());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 单个Agent的投递状态，所有访问都在该对象的锁内进行
+     * waiting只通过enqueue、pollWaiting、removeWaitingIf修改，waitingIds始终与其中的commandId一致，去重检查为O(1)
+     */
+    private static class DeliveryState {
+        private final Deque<PendingCommand> waiting = new ArrayDeque<>();
+        private final Set<Long> waitingIds = new HashSet<>();
+        private final Map<Long, PendingCommand> inFlight = new LinkedHashMap<>();
+
+        private boolean containsWaiting(long commandId) {
+            return waitingIds.contains(commandId);
+        }
+
+        private void enqueue(PendingCommand pending) {
+            waiting.addLast(pending);
+            waitingIds.add(pending.commandId);
+        }
+
+        private PendingCommand pollWaiting() {
+            PendingCommand pending = waiting.pollFirst();
+            if (pending != null) {
+                waitingIds.remove(pending.commandId);
+            }
+            return pending;
+        }
+
+        private void removeWaitingIf(Predicate<PendingCommand> filter) {
+            waiting.removeIf(pending -> {
+                if (!filter.test(pending)) {
+                    return false;
+                }
+                waitingIds.remove(pending.commandId);
+                return true;
+            });
+        }
+    }
+
+    private static class PendingCommand {
+        private final long commandId;
+        private final Long deviceId;
+        private final String payload;
+        private final long submittedAt;
+        private long lastSentAt;
+        private int attempts;
+
+        private PendingCommand(long commandId, Long deviceId, String payload, long submittedAt) {
+            this.commandId = commandId;
+            this.deviceId = deviceId;
+            this.payload = payload;
+            this.submittedAt = submittedAt;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package org.example.socket.manager;
+
+import org.example.socket.domain.DeviceMetric;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 设备最新指标列式快照
+ * 每个指标一列double数组，按设备序号(DeviceOrdinalRegistry)下标存放最新值，另有一列记录更新时间
+ * 全量条件过滤和Top-N查询都是对单个基本类型数组的顺序扫描，不需要解析任何info JSON
+ *
+ * 并发约定：
+ * - 写入单个设备的指标和扫描都持有读锁，互不阻塞；同一设备的状态帧来自同一连接，不存在并发写
+ * - 只有数组扩容时持有写锁
+ * - 扫描可能读到正在更新中的设备（部分列为新值），对最新值快照而言可以接受
+ */
+@Component
+public class DeviceMetricsSnapshot {
+
+    private static final int METRIC_COUNT = DeviceMetric.values().length;
+
+    private final DeviceOrdinalRegistry ordinalRegistry;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private double[][] columns = new double[METRIC_COUNT][1024];
+    private long[] updatedAt = new long[1024];
+
+    public DeviceMetricsSnapshot(DeviceOrdinalRegistry ordinalRegistry) {
+        this.ordinalRegistry = ordinalRegistry;
+        for (double[] column : columns) {
+            Arrays.fill(column, Double.NaN);
+        }
+    }
+
+    /**
+     * 写入设备的最新指标
+     *
+     * @param deviceId 设备ID
+     * @param values 指标值，下标为DeviceMetric的ordinal
+     * @param timestamp 状态帧时间戳（毫秒）
+     * @return 设备序号
+     */
+    public int update(long deviceId, double[] values, long timestamp) {
+        int ordinal = ordinalRegistry.ordinalOf(deviceId);
+        ensureCapacity(ordinal + 1);
+        lock.readLock().lock();
+        try {
+            for (int m = 0; m < METRIC_COUNT; m++) {
+                columns[m][ordinal] = values[m];
+            }
+            updatedAt[ordinal] = timestamp;
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ordinal;
+    }
+
+    /**
+     * 获取设备的最新指标
+     *
+     * @return 指标名到值的映射，设备没有上报过状态时返回null
+     */
+    public Map<String, Object> getDeviceMetrics(long deviceId) {
+        int ordinal = ordinalRegistry.findOrdinal(deviceId);
+        if (ordinal < 0) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            if (ordinal >= updatedAt.length || updatedAt[ordinal] == 0) {
+                return null;
+            }
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            for (DeviceMetric metric : DeviceMetric.values()) {
+                double value = columns[metric.ordinal()][ordinal];
+                metrics.put(metric.getKey(), Double.isNaN(value) ? null : value);
+            }
+            metrics.put("updatedAt", updatedAt[ordinal]);
+            return metrics;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 范围过滤：返回指标值在[min, max]内的设备
+     *
+     * @param metric 指标
+     * @param min 下限（含）
+     * @param max 上限（含）
+     * @param notBefore 只包含该时间戳之后更新过的设备，0表示不限制
+     * @param limit 最多返回的设备数
+     */
+    public List<MetricValue> filter(DeviceMetric metric, double min, double max, long notBefore, int limit) {
+        List<MetricValue> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            double[] column = columns[metric.ordinal()];
+            long[] times = updatedAt;
+            int size = Math.min(ordinalRegistry.size(), times.length);
+            // NaN与任何值比较都为false，未上报该指标的设备自然被排除
+            for (int i = 0; i < size && result.size() < limit; i++) {
+                double value = column[i];
+                if (value >= min && value <= max && times[i] >= notBefore) {
+                    result.add(new MetricValue(ordinalRegistry.deviceIdAt(i), value, times[i]));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * 统计指标值在[min, max]内的设备数
+     */
+    public int count(DeviceMetric metric, double min, double max, long notBefore) {
+        int count = 0;
+        lock.readLock().lock();
+        try {
+            double[] column = columns[metric.ordinal()];
+            long[] times = updatedAt;
+            int size = Math.min(ordinalRegistry.size(), times.length);
+            for (int i = 0; i < size; i++) {
+                double value = column[i];
+                if (value >= min && value <= max && times[i] >= notBefore) {
+                    count++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return count;
+    }
+
+    /**
+     * Top-N：按指标值排序取前n个设备
+     * 扫描时维护大小为n的二叉堆（下标数组），复杂度O(设备数 * log n)
+     *
+     * @param descending true取最大的n个，false取最小的n个
+     */
+    public List<MetricValue> top(DeviceMetric metric, int n, boolean descending, long notBefore) {
+        if (n <= 0) {
+            return new ArrayList<>();
+        }
+        int[] heap = new int[n];
+        int heapSize = 0;
+        double[] column;
+        long[] times;
+
+        lock.readLock().lock();
+        try {
+            column = columns[metric.ordinal()];
+            times = updatedAt;
+            int size = Math.min(ordinalRegistry.size(), times.length);
+            // 堆顶是当前入选集合中"最差"的值：取最大时为最小堆，取最小时为最大堆
+            for (int i = 0; i < size; i++) {
+                double value = column[i];
+                if (Double.isNaN(value) || times[i] < notBefore) {
+                    continue;
+                }
+                if (heapSize < n) {
+                    heap[heapSize] = i;
+                    siftUp(heap, heapSize++, column, descending);
+                } else if (better(value, column[heap[0]], descending)) {
+                    heap[0] = i;
+                    siftDown(heap, heapSize, column, descending);
+                }
+            }
+
+            List<MetricValue> result = new ArrayList<>(heapSize);
+            for (int i = 0; i < heapSize; i++) {
+                int ordinal = heap[i];
+                result.add(new MetricValue(ordinalRegistry.deviceIdAt(ordinal), column[ordinal], times[ordinal]));
+            }
+            result.sort((a, b) -> descending ? Double.compare(b.value(), a.value()) : Double.compare(a.value(), b.value()));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean better(double a, double b, boolean descending) {
+        return descending ? a > b : a < b;
+    }
+
+    private static void siftUp(int[] heap, int index, double[] column, boolean descending) {
+        int node = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!better(column[heap[parent]], column[node], descending)) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = node;
+    }
+
+    private static void siftDown(int[] heap, int size, double[] column, boolean descending) {
+        int index = 0;
+        int node = heap[0];
+        while (true) {
+            int child = (index << 1) + 1;
+            if (child >= size) {
+                break;
+            }
+            int right = child + 1;
+            if (right < size && better(column[heap[child]], column[heap[right]], descending)) {
+                child = right;
+            }
+            if (!better(column[node], column[heap[child]], descending)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = node;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= updatedAt.length) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (required <= updatedAt.length) {
+                return;
+            }
+            int capacity = Math.max(required, updatedAt.length + (updatedAt.length >> 1));
+            double[][] grown = new double[METRIC_COUNT][];
+            for (int m = 0; m < METRIC_COUNT; m++) {
+                grown[m] = Arrays.copyOf(columns[m], capacity);
+                Arrays.fill(grown[m], columns[m].length, capacity, Double.NaN);
+            }
+            columns = grown;
+            updatedAt = Arrays.copyOf(updatedAt, capacity);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 单个设备的指标值
+     */
+    public record MetricValue(long deviceId, double value, long updatedAt) {
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.socket.manager;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 设备稠密序号注册表
+ * 为每个设备ID分配一个从0开始连续递增的序号(ordinal)，供按序号下标访问的列式数组使用
+ * 序号一经分配不再回收，设备数量以devices表为上限
+ */
+@Component
+public class DeviceOrdinalRegistry {
+
+    private final Map<Long, Integer> ordinals = new ConcurrentHashMap<>();
+    private volatile long[] deviceIds = new long[1024];
+    private volatile int size = 0;
+
+    /**
+     * 获取设备序号，首次出现的设备分配新序号
+     */
+    public int ordinalOf(long deviceId) {
+        Integer ordinal = ordinals.get(deviceId);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        synchronized (this) {
+            ordinal = ordinals.get(deviceId);
+            if (ordinal != null) {
+                return ordinal;
+            }
+            int next = size;
+            if (next == deviceIds.length) {
+                deviceIds = Arrays.copyOf(deviceIds, next + (next >> 1));
+            }
+            deviceIds[next] = deviceId;
+            // 先写入数组再发布size和映射，读者看到序号时对应的设备ID已可见
+            size = next + 1;
+            ordinals.put(deviceId, next);
+            return next;
+        }
+    }
+
+    /**
+     * 获取已分配的设备序号，不分配新序号
+     *
+     * @return 设备序号，未分配时返回-1
+     */
+    public int findOrdinal(long deviceId) {
+        Integer ordinal = ordinals.get(deviceId);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * 根据序号获取设备ID
+     */
+    public long deviceIdAt(int ordinal) {
+        return deviceIds[ordinal];
+    }
+
+    /**
+     * 已分配的序号数
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,301 @@
+package org.example.socket.manager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.socket.domain.AnomalyEvent;
+import org.example.socket.domain.DeviceMetric;
+import org.example.socket.handler.DeviceMonitorWebSocketHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 指标异常检测器
+ * 每个设备的每个指标维护指数加权移动均值(EWMA)和方差，新观测值偏离均值超过z-score阈值时判定为突变(spike)
+ * 均值和方差同时随观测值调整，线性漂移会被基线吸收(z约为1)，因此另设趋势检测：
+ * 同时维护一个慢速EWMA，线性漂移下两条均值的滞后不同，差值约为 斜率*(1/慢速系数-1/快速系数)；
+ * 噪声由相邻帧差值平方的EWMA估计（差值只含噪声和斜率，不受漂移累积影响），
+ * 快慢均值之差超过漂移阈值倍噪声时判定为漂移(drift)
+ * 状态全部存放在按设备序号下标的基本类型数组中，每个设备占用固定内存，与运行时长无关
+ * 设备进入异常时广播到/ws/monitor(type为anomaly)并记入最近异常环形缓冲；恢复正常前不重复广播
+ */
+@Component
+public class MetricAnomalyDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(MetricAnomalyDetector.class);
+    private static final int METRIC_COUNT = DeviceMetric.values().length;
+
+    private final DeviceOrdinalRegistry ordinalRegistry;
+    private final ObjectMapper objectMapper;
+    private final double alpha;
+    private final double zThreshold;
+    private final int warmupSamples;
+    private final double minStddev;
+    private final double driftAlpha;
+    private final double driftThreshold;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile int capacity = 1024;
+    private double[][] mean = new double[METRIC_COUNT][capacity];
+    private double[][] variance = new double[METRIC_COUNT][capacity];
+    private int[][] samples = new int[METRIC_COUNT][capacity];
+    private long[][] anomalousSince = new long[METRIC_COUNT][capacity];
+    private double[][] slowMean = new double[METRIC_COUNT][capacity];
+    private double[][] lastValue = new double[METRIC_COUNT][capacity];
+    private double[][] incrementSquare = new double[METRIC_COUNT][capacity];
+    private long[][] driftingSince = new long[METRIC_COUNT][capacity];
+
+    private final AnomalyEvent[] recent;
+    private long recentCount = 0;
+
+    public MetricAnomalyDetector(DeviceOrdinalRegistry ordinalRegistry,
+                                 ObjectMapper objectMapper,
+                                 @Value("${anomaly.alpha:0.05}") double alpha,
+                                 @Value("${anomaly.z-threshold:4.0}") double zThreshold,
+                                 @Value("${anomaly.warmup-samples:30}") int warmupSamples,
+                                 @Value("${anomaly.min-stddev:1.0}") double minStddev,
+                                 @Value("${anomaly.drift-alpha:0.01}") double driftAlpha,
+                                 @Value("${anomaly.drift-threshold:4.0}") double driftThreshold,
+                                 @Value("${anomaly.recent-capacity:1000}") int recentCapacity) {
+        this.ordinalRegistry = ordinalRegistry;
+        this.objectMapper = objectMapper;
+        this.alpha = Math.min(1.0, Math.max(0.001, alpha));
+        this.zThreshold = zThreshold;
+        this.warmupSamples = Math.max(2, warmupSamples);
+        this.minStddev = Math.max(0.0, minStddev);
+        this.driftAlpha = Math.min(this.alpha / 2, Math.max(0.0001, driftAlpha));
+        this.driftThreshold = driftThreshold;
+        this.recent = new AnomalyEvent[Math.max(1, recentCapacity)];
+        log.info("MetricAnomalyDetector initialized (alpha: {}, z-threshold: {}, drift alpha: {}, drift threshold: {}, warmup: {} samples)",
+                this.alpha, this.zThreshold, this.driftAlpha, this.driftThreshold, this.warmupSamples);
+    }
+
+    /**
+     * 用一帧状态更新基线并检测异常
+     * 先用更新前的均值和方差计算z-score，再把观测值并入基线；基线吸收的缓慢漂移由快慢均值之差检测
+     *
+     * @param ordinal 设备序号
+     * @param values 指标值，下标为DeviceMetric的ordinal
+     * @param timestamp 状态帧时间戳（毫秒）
+     */
+    public void observe(long deviceId, int ordinal, double[] values, long timestamp) {
+        ensureCapacity(ordinal + 1);
+
+        List<AnomalyEvent> detected = null;
+        lock.readLock().lock();
+        try {
+            for (int m = 0; m < METRIC_COUNT; m++) {
+                double x = values[m];
+                if (Double.isNaN(x)) {
+                    continue;
+                }
+                int n = samples[m][ordinal];
+                if (n == 0) {
+                    mean[m][ordinal] = x;
+                    variance[m][ordinal] = 0;
+                    slowMean[m][ordinal] = x;
+                    lastValue[m][ordinal] = x;
+                    incrementSquare[m][ordinal] = 0;
+                    samples[m][ordinal] = 1;
+                    continue;
+                }
+
+                double mu = mean[m][ordinal];
+                double var = variance[m][ordinal];
+                double stddev = Math.max(Math.sqrt(var), minStddev);
+                double z = stddev > 0 ? (x - mu) / stddev : 0;
+
+                double diff = x - mu;
+                double increment = alpha * diff;
+                mean[m][ordinal] = mu + increment;
+                variance[m][ordinal] = (1 - alpha) * (var + diff * increment);
+
+                double step = x - lastValue[m][ordinal];
+                lastValue[m][ordinal] = x;
+                incrementSquare[m][ordinal] += alpha * (step * step - incrementSquare[m][ordinal]);
+                slowMean[m][ordinal] += driftAlpha * (x - slowMean[m][ordinal]);
+                if (n < warmupSamples) {
+                    samples[m][ordinal] = n + 1;
+                    continue;
+                }
+
+                if (Math.abs(z) < zThreshold) {
+                    anomalousSince[m][ordinal] = 0;
+                } else if (anomalousSince[m][ordinal] == 0) {
+                    anomalousSince[m][ordinal] = timestamp;
+                    if (detected == null) {
+                        detected = new ArrayList<>(2);
+                    }
+                    detected.add(new AnomalyEvent(deviceId, DeviceMetric.values()[m].getKey(), AnomalyEvent.SPIKE,
+                            x, mu, stddev, z, timestamp));
+                }
+
+                // 相邻帧差值的方差为2倍噪声方差
+                double noise = Math.max(Math.sqrt(incrementSquare[m][ordinal] / 2), minStddev);
+                double gap = mean[m][ordinal] - slowMean[m][ordinal];
+                double driftScore = noise > 0 ? gap / noise : 0;
+                if (Math.abs(driftScore) < driftThreshold) {
+                    driftingSince[m][ordinal] = 0;
+                } else if (driftingSince[m][ordinal] == 0) {
+                    driftingSince[m][ordinal] = timestamp;
+                    if (detected == null) {
+                        detected = new ArrayList<>(2);
+                    }
+                    detected.add(new AnomalyEvent(deviceId, DeviceMetric.values()[m].getKey(), AnomalyEvent.DRIFT,
+                            x, slowMean[m][ordinal], noise, driftScore, timestamp));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (detected != null) {
+            for (AnomalyEvent event : detected) {
+                record(event);
+            }
+        }
+    }
+
+    /**
+     * 获取最近的异常事件，按时间倒序
+     *
+     * @param deviceId 设备ID，为null时返回所有设备
+     * @param limit 最多返回的条数
+     */
+    public List<AnomalyEvent> getRecentAnomalies(Long deviceId, int limit) {
+        List<AnomalyEvent> result = new ArrayList<>();
+        synchronized (recent) {
+            long start = Math.max(0, recentCount - recent.length);
+            for (long i = recentCount - 1; i >= start && result.size() < limit; i--) {
+                AnomalyEvent event = recent[(int) (i % recent.length)];
+                if (deviceId == null || event.deviceId() == deviceId) {
+                    result.add(event);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取当前处于异常状态的设备指标
+     */
+    public List<Map<String, Object>> getActiveAnomalies() {
+        List<Map<String, Object>> active = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            int size = Math.min(ordinalRegistry.size(), capacity);
+            for (DeviceMetric metric : DeviceMetric.values()) {
+                int m = metric.ordinal();
+                for (int i = 0; i < size; i++) {
+                    if (anomalousSince[m][i] != 0) {
+                        Map<String, Object> item = new HashMap<>();
+                        item.put("deviceId", ordinalRegistry.deviceIdAt(i));
+                        item.put("metric", metric.getKey());
+                        item.put("type", AnomalyEvent.SPIKE);
+                        item.put("since", anomalousSince[m][i]);
+                        item.put("mean", mean[m][i]);
+                        item.put("stddev", Math.sqrt(variance[m][i]));
+                        active.add(item);
+                    }
+                    if (driftingSince[m][i] != 0) {
+                        Map<String, Object> item = new HashMap<>();
+                        item.put("deviceId", ordinalRegistry.deviceIdAt(i));
+                        item.put("metric", metric.getKey());
+                        item.put("type", AnomalyEvent.DRIFT);
+                        item.put("since", driftingSince[m][i]);
+                        item.put("mean", mean[m][i]);
+                        item.put("slowMean", slowMean[m][i]);
+                        active.add(item);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return active;
+    }
+
+    /**
+     * 获取设备各指标的当前基线
+     *
+     * @return 指标名到均值、标准差、样本数的映射，设备没有上报过状态时返回null
+     */
+    public Map<String, Object> getBaseline(long deviceId) {
+        int ordinal = ordinalRegistry.findOrdinal(deviceId);
+        if (ordinal < 0 || ordinal >= capacity) {
+            return null;
+        }
+        Map<String, Object> baseline = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (DeviceMetric metric : DeviceMetric.values()) {
+                int m = metric.ordinal();
+                if (samples[m][ordinal] == 0) {
+                    continue;
+                }
+                Map<String, Object> item = new HashMap<>();
+                item.put("mean", mean[m][ordinal]);
+                item.put("stddev", Math.sqrt(variance[m][ordinal]));
+                item.put("slowMean", slowMean[m][ordinal]);
+                item.put("samples", samples[m][ordinal]);
+                item.put("anomalous", anomalousSince[m][ordinal] != 0);
+                item.put("drifting", driftingSince[m][ordinal] != 0);
+                baseline.put(metric.getKey(), item);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return baseline;
+    }
+
+    private void record(AnomalyEvent event) {
+        synchronized (recent) {
+            recent[(int) (recentCount % recent.length)] = event;
+            recentCount++;
+        }
+        log.info("Anomaly detected: device={}, metric={}, type={}, value={}, mean={}, z={}",
+                event.deviceId(), event.metric(), event.type(), event.value(),
+                String.format("%.2f", event.mean()), String.format("%.2f", event.zScore()));
+        try {
+            Map<String, Object> message = new HashMap<>();
+            message.put("type", "anomaly");
+            message.put("anomaly", event);
+            DeviceMonitorWebSocketHandler.broadcast(objectMapper.writeValueAsString(message));
+        } catch (Exception e) {
+            log.warn("Failed to broadcast anomaly for device {}: {}", event.deviceId(), e.getMessage());
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= capacity) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (required <= capacity) {
+                return;
+            }
+            int grown = Math.max(required, capacity + (capacity >> 1));
+            for (int m = 0; m < METRIC_COUNT; m++) {
+                mean[m] = Arrays.copyOf(mean[m], grown);
+                variance[m] = Arrays.copyOf(variance[m], grown);
+                samples[m] = Arrays.copyOf(samples[m], grown);
+                anomalousSince[m] = Arrays.copyOf(anomalousSince[m], grown);
+                slowMean[m] = Arrays.copyOf(slowMean[m], grown);
+                lastValue[m] = Arrays.copyOf(lastValue[m], grown);
+                incrementSquare[m] = Arrays.copyOf(incrementSquare[m], grown);
+                driftingSince[m] = Arrays.copyOf(driftingSince[m], grown);
+            }
+            capacity = grown;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
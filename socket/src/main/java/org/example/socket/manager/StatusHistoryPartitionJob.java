@@ -0,0 +1,57 @@
+package org.example.socket.manager;
+
+import org.example.common.partition.PartitionGranularity;
+import org.example.common.partition.RangePartitionMaintainer;
+import org.example.socket.mapper.DeviceStatusHistoryMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * 设备状态历史分区维护任务
+ * device_status_history按sampled_at日分区：启动时和每天定时补齐到未来几天的分区，
+ * 超过保留天数的整日分区直接DROP，删除旧数据不产生逐行DELETE
+ */
+@Component
+public class StatusHistoryPartitionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(StatusHistoryPartitionJob.class);
+
+    private final RangePartitionMaintainer partitionMaintainer;
+    private final int retentionDays;
+    private final int precreateDays;
+
+    public StatusHistoryPartitionJob(DeviceStatusHistoryMapper deviceStatusHistoryMapper,
+                                     @Value("${device.status-history.retention-days:30}") int retentionDays,
+                                     @Value("${device.status-history.precreate-days:3}") int precreateDays) {
+        this.partitionMaintainer = new RangePartitionMaintainer("device_status_history",
+                PartitionGranularity.DAILY, deviceStatusHistoryMapper);
+        this.retentionDays = Math.max(0, retentionDays);
+        this.precreateDays = Math.max(1, precreateDays);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintainPartitions();
+    }
+
+    /**
+     * 每天执行一次分区维护，默认凌晨2点
+     */
+    @Scheduled(cron = "${device.status-history.partition-cron:0 0 2 * * *}")
+    public synchronized void maintainPartitions() {
+        try {
+            LocalDate today = LocalDate.now();
+            partitionMaintainer.maintain(today, today.plusDays(precreateDays),
+                    retentionDays > 0 ? today.minusDays(retentionDays) : null);
+        } catch (Exception e) {
+            log.error("Device status history partition maintenance failed", e);
+        }
+    }
+}
@@ -2,8 +2,40 @@ package org.example.socket.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.example.socket.domain.Device;
+import org.example.socket.domain.DeviceStatusSample;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 @Mapper
 public interface DeviceMapper extends BaseMapper<Device> {
+
+    /**
+     * 批量注册设备：name不存在则插入，已存在则更新为在线
+     * 一条INSERT ... ON DUPLICATE KEY UPDATE语句完成整批设备
+     *
+     * @param devices 待注册的设备，name在批内不能重复
+     * @return 受影响行数（MySQL语义：插入计1，更新计2）
+     */
+    int upsertOnlineDevices(@Param("devices") List<Device> devices);
+
+    /**
+     * 按名称批量查询设备ID
+     * upsert的自增主键回填在更新行上不可靠，因此注册后统一回查ID
+     *
+     * @param names 设备名称集合
+     * @return 只包含id、name、syncFrequency的设备列表
+     */
+    List<Device> selectIdsByNames(@Param("names") Collection<String> names);
+
+    /**
+     * 批量刷新设备的最新状态：info、last_status_id、last_status_at
+     * 一条UPDATE ... JOIN语句完成整批设备
+     *
+     * @param samples 每台设备最新的一条样本，deviceId在批内不能重复，id为历史表主键
+     * @return 受影响行数
+     */
+    int updateLatestStatus(@Param("samples") List<DeviceStatusSample> samples);
 }
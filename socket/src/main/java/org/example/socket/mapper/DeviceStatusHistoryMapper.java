@@ -0,0 +1,24 @@
+package org.example.socket.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.example.common.partition.RangePartitionMapper;
+import org.example.socket.domain.DeviceStatusSample;
+
+import java.util.List;
+
+/**
+ * 设备状态历史Mapper
+ * 负责device_status_history的批量追加写入和分区维护
+ * 分区维护语句继承自RangePartitionMapper，历史表按日分区
+ */
+@Mapper
+public interface DeviceStatusHistoryMapper extends RangePartitionMapper {
+
+    /**
+     * 多行INSERT写入一批样本，自增主键按顺序回填到样本的id
+     *
+     * @param samples 样本列表，不能为空
+     * @return 插入行数
+     */
+    int insertBatch(List<DeviceStatusSample> samples);
+}
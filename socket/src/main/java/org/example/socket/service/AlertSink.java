@@ -0,0 +1,13 @@
+package org.example.socket.service;
+
+import org.example.socket.domain.AlertEvent;
+
+/**
+ * 告警输出
+ * 容器中所有实现该接口的Bean都会收到告警状态变化事件，可按需扩展邮件、Webhook等通知方式
+ * 调用发生在状态帧处理线程上，耗时操作应自行异步执行
+ */
+public interface AlertSink {
+
+    void onAlert(AlertEvent event);
+}
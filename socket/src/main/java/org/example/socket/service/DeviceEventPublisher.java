@@ -0,0 +1,100 @@
+package org.example.socket.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.common.eventlog.EventLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 设备事件发布服务
+ * 将设备上线、离线和命令执行结果追加到事件日志，Server按自己的进度消费
+ * 追加只是一次内存映射写入，在WebSocket处理线程上同步执行
+ * 命令结果只经此路径持久化，追加失败时记ERROR，对应命令在commands表中停留在pending/executing
+ */
+@Service
+public class DeviceEventPublisher {
+
+    public static final String DEVICE_CONNECTED = "device_connected";
+    public static final String DEVICE_DISCONNECTED = "device_disconnected";
+    public static final String COMMAND_RESULT = "command_result";
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceEventPublisher.class);
+    private final EventLog eventLog;
+    private final ObjectMapper objectMapper;
+
+    public DeviceEventPublisher(EventLog eventLog, ObjectMapper objectMapper) {
+        this.eventLog = eventLog;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 发布设备上线事件
+     */
+    public void publishDeviceConnected(Long deviceId, String agentName, String clientIpPort) {
+        Map<String, Object> event = newEvent(DEVICE_CONNECTED, deviceId, agentName);
+        event.put("clientIpPort", clientIpPort);
+        publish(event);
+    }
+
+    /**
+     * 发布设备离线事件
+     *
+     * @param reason 离线原因，如连接关闭状态
+     */
+    public void publishDeviceDisconnected(Long deviceId, String agentName, String reason) {
+        Map<String, Object> event = newEvent(DEVICE_DISCONNECTED, deviceId, agentName);
+        event.put("reason", reason);
+        publish(event);
+    }
+
+    /**
+     * 发布命令执行结果事件
+     *
+     * @param message Agent上报的command_result消息
+     */
+    public void publishCommandResult(Long deviceId, String agentName, JsonNode message) {
+        Map<String, Object> event = newEvent(COMMAND_RESULT, deviceId, agentName);
+        event.put("commandId", message.path("commandId").asLong());
+        event.put("success", message.path("success").asBoolean());
+        event.put("result", message.path("result").asText(null));
+        publish(event);
+    }
+
+    /**
+     * 发布Socket放弃投递的命令结果
+     * 与Agent上报的结果共用command_result类型，额外携带status，Server只更新仍处于pending/executing的命令
+     *
+     * @param status 命令最终状态，timeout或failed
+     * @param reason 放弃原因，写入命令结果
+     */
+    public void publishCommandGivenUp(Long deviceId, String agentName, long commandId, String status, String reason) {
+        Map<String, Object> event = newEvent(COMMAND_RESULT, deviceId, agentName);
+        event.put("commandId", commandId);
+        event.put("success", false);
+        event.put("status", status);
+        event.put("result", reason);
+        publish(event);
+    }
+
+    private Map<String, Object> newEvent(String type, Long deviceId, String agentName) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("type", type);
+        event.put("deviceId", deviceId);
+        event.put("agentName", agentName);
+        event.put("timestamp", System.currentTimeMillis());
+        return event;
+    }
+
+    private void publish(Map<String, Object> event) {
+        try {
+            eventLog.append(objectMapper.writeValueAsBytes(event));
+        } catch (Exception e) {
+            log.error("Failed to publish {} event for device {}", event.get("type"), event.get("deviceId"), e);
+        }
+    }
+}
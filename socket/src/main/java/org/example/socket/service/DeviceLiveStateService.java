@@ -0,0 +1,82 @@
+package org.example.socket.service;
+
+import org.example.socket.domain.DeviceLiveState;
+import org.example.socket.manager.AgentConnectionManager;
+import org.example.socket.manager.AgentLivenessTracker;
+import org.example.socket.manager.DeviceMetricsSnapshot;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 设备实时状态服务
+ * 在线状态和连接时间来自AgentConnectionManager，最近消息时间来自存活跟踪器，指标来自最新指标快照，
+ * Server的设备列表和详情合并这里的结果，看到的是实时状态而不是devices表中最后一次写入的状态
+ */
+@Service
+public class DeviceLiveStateService {
+
+    private final AgentConnectionManager agentConnectionManager;
+    private final AgentLivenessTracker agentLivenessTracker;
+    private final DeviceMetricsSnapshot deviceMetricsSnapshot;
+
+    public DeviceLiveStateService(AgentConnectionManager agentConnectionManager,
+                                  AgentLivenessTracker agentLivenessTracker,
+                                  DeviceMetricsSnapshot deviceMetricsSnapshot) {
+        this.agentConnectionManager = agentConnectionManager;
+        this.agentLivenessTracker = agentLivenessTracker;
+        this.deviceMetricsSnapshot = deviceMetricsSnapshot;
+    }
+
+    /**
+     * 获取所有在线设备的实时状态，未出现在结果中的设备均为离线
+     */
+    public List<DeviceLiveState> getOnlineStates() {
+        List<DeviceLiveState> states = new ArrayList<>();
+        for (AgentConnectionManager.AgentSession agentSession : agentConnectionManager.getAgentSessions()) {
+            Long deviceId = deviceIdOf(agentSession);
+            // 设备注册尚未完成的连接没有deviceId，暂不返回
+            if (deviceId != null && agentSession.isConnected()) {
+                states.add(onlineState(deviceId, agentSession));
+            }
+        }
+        return states;
+    }
+
+    /**
+     * 获取指定设备的实时状态，每个设备ID都有一条结果
+     */
+    public List<DeviceLiveState> getStates(Collection<Long> deviceIds) {
+        Map<Long, AgentConnectionManager.AgentSession> sessions = new HashMap<>();
+        for (AgentConnectionManager.AgentSession agentSession : agentConnectionManager.getAgentSessions()) {
+            Long deviceId = deviceIdOf(agentSession);
+            if (deviceId != null && agentSession.isConnected()) {
+                sessions.put(deviceId, agentSession);
+            }
+        }
+
+        List<DeviceLiveState> states = new ArrayList<>(deviceIds.size());
+        for (Long deviceId : deviceIds) {
+            AgentConnectionManager.AgentSession agentSession = sessions.get(deviceId);
+            states.add(agentSession != null
+                    ? onlineState(deviceId, agentSession)
+                    : new DeviceLiveState(deviceId, false, null, null, deviceMetricsSnapshot.getDeviceMetrics(deviceId)));
+        }
+        return states;
+    }
+
+    private DeviceLiveState onlineState(Long deviceId, AgentConnectionManager.AgentSession agentSession) {
+        long lastFrameAt = agentLivenessTracker.getLastFrameAt(deviceId);
+        return new DeviceLiveState(deviceId, true, agentSession.getCreatedAt(),
+                lastFrameAt > 0 ? lastFrameAt : null, deviceMetricsSnapshot.getDeviceMetrics(deviceId));
+    }
+
+    private Long deviceIdOf(AgentConnectionManager.AgentSession agentSession) {
+        Object deviceId = agentSession.getSession().getAttributes().get("deviceId");
+        return deviceId instanceof Long ? (Long) deviceId : null;
+    }
+}
@@ -1,16 +1,22 @@
 package org.example.socket.service;
 
 import org.example.socket.domain.Device;
+import org.example.socket.domain.DeviceStatusSample;
 import org.example.socket.mapper.DeviceMapper;
 import org.example.common.constant.DeviceStatusConstant;
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import org.example.common.util.InfoCodec;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import com.fasterxml.jackson.databind.JsonNode;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 设备管理服务
@@ -22,59 +28,54 @@ public class DeviceManagementService {
     private static final Logger log = LoggerFactory.getLogger(DeviceManagementService.class);
     private final DeviceMapper deviceMapper;
     private final Integer defaultSyncFrequency;
+    private final boolean compressInfo;
 
     public DeviceManagementService(DeviceMapper deviceMapper,
-                                   @Value("${device.default-sync-frequency:30}") Integer defaultSyncFrequency) {
+                                   @Value("${device.default-sync-frequency:30}") Integer defaultSyncFrequency,
+                                   @Value("${device.info.compress:true}") boolean compressInfo) {
         this.deviceMapper = deviceMapper;
         this.defaultSyncFrequency = defaultSyncFrequency;
+        this.compressInfo = compressInfo;
     }
 
     /**
-     * 注册或更新设备
-     * Agent连接时调用，按设备名称(name)查询是否已存在
-     * - 如果存在，更新状态为ONLINE并返回原ID
-     * - 如果不存在，创建新的设备记录
-     * 
-     * @param name 设备名称(Agent name)
-     * @param ipAddress 代理IP地址
-     * @return 设备ID（复用旧ID或新创建的ID）
+     * 批量注册或更新设备
+     * Agent连接时调用，整批设备使用一条INSERT ... ON DUPLICATE KEY UPDATE写入，再按name回查ID
+     * - 如果name已存在，更新状态为ONLINE并复用原ID
+     * - 如果name不存在，创建新的设备记录
+     * 依赖name上的唯一索引，同名设备并发注册也不会产生重复记录
+     *
+     * @param nameToIpAddress 设备名称(Agent name)到代理IP地址的映射
+     * @return 设备名称到设备ID的映射，注册失败时返回空映射
      */
-    public Long registerOrUpdateDevice(String name, String ipAddress) {
+    public Map<String, Long> registerOrUpdateDevices(Map<String, String> nameToIpAddress) {
+        if (nameToIpAddress == null || nameToIpAddress.isEmpty()) {
+            return Collections.emptyMap();
+        }
         try {
-            // 按name查询是否已存在该设备
-            QueryWrapper<Device> queryWrapper = new QueryWrapper<>();
-            queryWrapper.eq("name", name);
-            Device existingDevice = deviceMapper.selectOne(queryWrapper);
-            
-            if (existingDevice != null) {
-                // 设备已存在，更新状态为ONLINE
-                existingDevice.setStatusCode(DeviceStatusConstant.ONLINE);
-                existingDevice.setLastHeartbeatAt(LocalDateTime.now());
-                existingDevice.setUpdatedAt(LocalDateTime.now());
-                if (ipAddress != null) {
-                    existingDevice.setIpAddress(ipAddress);
-                }
-                deviceMapper.updateById(existingDevice);
-                log.info("Device updated (reused ID): id={}, name={}, ipAddress={}", existingDevice.getId(), name, ipAddress);
-                return existingDevice.getId();
-            } else {
-                // 设备不存在，创建新记录
-                Device newDevice = new Device();
-                newDevice.setName(name);
-                newDevice.setIpAddress(ipAddress);
-                newDevice.setStatusCode(DeviceStatusConstant.ONLINE);
-                newDevice.setSyncFrequency(defaultSyncFrequency);
-                newDevice.setCreatedAt(LocalDateTime.now());
-                newDevice.setUpdatedAt(LocalDateTime.now());
-                newDevice.setLastHeartbeatAt(LocalDateTime.now());
-                
-                deviceMapper.insert(newDevice);
-                log.info("Device created: id={}, name={}, ipAddress={}", newDevice.getId(), name, ipAddress);
-                return newDevice.getId();
+            LocalDateTime now = LocalDateTime.now();
+            List<Device> devices = new ArrayList<>(nameToIpAddress.size());
+            for (Map.Entry<String, String> entry : nameToIpAddress.entrySet()) {
+                Device device = new Device(entry.getKey(), entry.getValue() != null ? entry.getValue() : "unknown");
+                device.setStatusCode(DeviceStatusConstant.ONLINE);
+                device.setSyncFrequency(defaultSyncFrequency);
+                device.setCreatedAt(now);
+                device.setUpdatedAt(now);
+                device.setLastHeartbeatAt(now);
+                devices.add(device);
+            }
+
+            deviceMapper.upsertOnlineDevices(devices);
+
+            Map<String, Long> deviceIds = new HashMap<>(nameToIpAddress.size() * 2);
+            for (Device device : deviceMapper.selectIdsByNames(nameToIpAddress.keySet())) {
+                deviceIds.put(device.getName(), device.getId());
             }
+            log.info("Devices registered in batch: requested={}, resolved={}", nameToIpAddress.size(), deviceIds.size());
+            return deviceIds;
         } catch (Exception e) {
-            log.error("Error registering device: {}", name, e);
-            return null;
+            log.error("Error registering devices in batch: count={}", nameToIpAddress.size(), e);
+            return Collections.emptyMap();
         }
     }
 
@@ -86,12 +87,12 @@ public class DeviceManagementService {
      */
     public void markDeviceOffline(Long deviceId) {
         try {
-            Device device = deviceMapper.selectById(deviceId);
-            
-            if (device != null) {
-                device.setStatusCode(DeviceStatusConstant.OFFLINE);
-                device.setUpdatedAt(LocalDateTime.now());
-                deviceMapper.updateById(device);
+            // 只写状态列，不读取也不回写整行（info可能很大）
+            UpdateWrapper<Device> updateWrapper = new UpdateWrapper<>();
+            updateWrapper.set("status_code", DeviceStatusConstant.OFFLINE)
+                    .set("updated_at", LocalDateTime.now())
+                    .eq("id", deviceId);
+            if (deviceMapper.update(null, updateWrapper) > 0) {
                 log.info("Device marked offline: id={}", deviceId);
             } else {
                 log.warn("Device not found for offline marking: id={}", deviceId);
@@ -101,6 +102,30 @@ public class DeviceManagementService {
         }
     }
 
+    /**
+     * 批量更新设备状态
+     * 存活检查过期时调用，一条UPDATE处理一批设备
+     *
+     * @param deviceIds 设备ID列表
+     * @param statusCode 目标状态码
+     */
+    public void markDevicesStatus(List<Long> deviceIds, Integer statusCode) {
+        if (deviceIds == null || deviceIds.isEmpty()) {
+            return;
+        }
+        try {
+            UpdateWrapper<Device> updateWrapper = new UpdateWrapper<>();
+            updateWrapper.set("status_code", statusCode)
+                    .set("updated_at", LocalDateTime.now())
+                    .in("id", deviceIds);
+            int updated = deviceMapper.update(null, updateWrapper);
+            log.info("Devices status updated in batch: statusCode={}, requested={}, updated={}",
+                    statusCode, deviceIds.size(), updated);
+        } catch (Exception e) {
+            log.error("Error updating devices status in batch: statusCode={}, count={}", statusCode, deviceIds.size(), e);
+        }
+    }
+
     /**
      * 更新设备心跳时间
      * 
@@ -108,14 +133,14 @@ public class DeviceManagementService {
      */
     public void updateDeviceHeartbeat(Long deviceId) {
         try {
-            Device device = deviceMapper.selectById(deviceId);
-            
-            if (device != null) {
-                LocalDateTime now = LocalDateTime.now();
-                device.setLastHeartbeatAt(now);
-                device.setStatusCode(DeviceStatusConstant.ONLINE);
-                device.setUpdatedAt(now);
-                deviceMapper.updateById(device);
+            // 单条UPDATE只写心跳相关列，不先selectById再updateById回写整行
+            LocalDateTime now = LocalDateTime.now();
+            UpdateWrapper<Device> updateWrapper = new UpdateWrapper<>();
+            updateWrapper.set("last_heartbeat_at", now)
+                    .set("status_code", DeviceStatusConstant.ONLINE)
+                    .set("updated_at", now)
+                    .eq("id", deviceId);
+            if (deviceMapper.update(null, updateWrapper) > 0) {
                 log.debug("Device heartbeat updated: id={}, lastHeartbeatAt={}", deviceId, now);
             } else {
                 log.warn("Device not found for heartbeat update: id={}", deviceId);
@@ -126,25 +151,27 @@ public class DeviceManagementService {
     }
 
     /**
-     * 更新设备状态信息
-     * 
-     * @param deviceId 设备ID
-     * @param statusNode JSON状态数据
+     * 批量刷新设备的最新状态
+     * 由状态历史写入器在每批样本写入后调用，同一设备在批内只保留最新一条，每台设备的行在一批中只更新一次
+     * 开启device.info.compress时info以压缩格式写入
+     *
+     * @param latestSamples 每台设备最新的一条样本
      */
-    public void updateDeviceStatus(Long deviceId, JsonNode statusNode) {
+    public void updateLatestStatus(List<DeviceStatusSample> latestSamples) {
+        if (latestSamples == null || latestSamples.isEmpty()) {
+            return;
+        }
         try {
-            Device device = deviceMapper.selectById(deviceId);
-            
-            if (device != null && statusNode != null) {
-                device.setInfo(statusNode.toString());
-                device.setUpdatedAt(LocalDateTime.now());
-                deviceMapper.updateById(device);
-                log.debug("Device status updated: id={}", deviceId);
-            } else {
-                log.warn("Device not found for status update: id={}", deviceId);
+            if (compressInfo) {
+                // info以紧凑格式存储，读取方通过InfoCodec.decode透明解码
+                for (DeviceStatusSample sample : latestSamples) {
+                    sample.setInfo(InfoCodec.encode(sample.getInfo()));
+                }
             }
+            int updated = deviceMapper.updateLatestStatus(latestSamples);
+            log.debug("Devices latest status updated in batch: requested={}, updated={}", latestSamples.size(), updated);
         } catch (Exception e) {
-            log.error("Error updating device status: {}", deviceId, e);
+            log.error("Error updating latest status for {} devices", latestSamples.size(), e);
         }
     }
 
@@ -156,7 +183,11 @@ public class DeviceManagementService {
      */
     public Device getDeviceById(Long deviceId) {
         try {
-            return deviceMapper.selectById(deviceId);
+            Device device = deviceMapper.selectById(deviceId);
+            if (device != null) {
+                device.setInfo(InfoCodec.decode(device.getInfo()));
+            }
+            return device;
         } catch (Exception e) {
             log.error("Error getting device by id: {}", deviceId, e);
             return null;
@@ -0,0 +1,165 @@
+package org.example.socket.service;
+
+import org.example.socket.util.TokenBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * 设备注册队列
+ * Agent握手成功后的注册数据库操作统一进入有界队列，由固定数量的工作线程按限定速率处理
+ * 工作线程在一个短时间窗口内攒批，每批使用一条多行upsert完成注册，限速针对的是批次（SQL语句）数
+ * 连接风暴时数据库压力被平滑到可持续的速率，不会耗尽连接池
+ */
+@Service
+public class DeviceRegistrationQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceRegistrationQueue.class);
+
+    private final DeviceManagementService deviceManagementService;
+    private final BlockingQueue<RegistrationRequest> queue;
+    private final TokenBucket rateLimiter;
+    private final int workerCount;
+    private final int batchSize;
+    private final long batchWindowNanos;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    public DeviceRegistrationQueue(DeviceManagementService deviceManagementService,
+                                   @Value("${device.registration.queue-capacity:20000}") int queueCapacity,
+                                   @Value("${device.registration.workers:2}") int workerCount,
+                                   @Value("${device.registration.batch-size:500}") int batchSize,
+                                   @Value("${device.registration.batch-window-ms:50}") long batchWindowMs,
+                                   @Value("${device.registration.batch-rate-per-second:20}") double batchRatePerSecond) {
+        this.deviceManagementService = deviceManagementService;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.rateLimiter = new TokenBucket(batchRatePerSecond, Math.max(1, batchRatePerSecond / 10));
+        this.workerCount = Math.max(1, workerCount);
+        this.batchSize = Math.max(1, batchSize);
+        this.batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, batchWindowMs));
+    }
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::processLoop, "DeviceRegistrationWorker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        log.info("DeviceRegistrationQueue started with {} workers (batch size: {})", workerCount, batchSize);
+    }
+
+    /**
+     * 提交注册请求
+     *
+     * @param name 设备名称(Agent name)
+     * @param ipAddress 代理IP地址
+     * @param active 出队时检查连接是否仍然有效，连接已断开则跳过数据库操作
+     * @param callback 注册完成回调，参数为设备ID，注册失败时为null
+     * @return false表示队列已满，调用方应拒绝该连接
+     */
+    public boolean submit(String name, String ipAddress, BooleanSupplier active, Consumer<Long> callback) {
+        boolean accepted = queue.offer(new RegistrationRequest(name, ipAddress, active, callback));
+        if (!accepted) {
+            log.warn("Device registration queue full, rejecting agent: {}", name);
+        }
+        return accepted;
+    }
+
+    /**
+     * 获取当前排队中的注册请求数
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    private void processLoop() {
+        while (running) {
+            List<RegistrationRequest> batch;
+            try {
+                batch = nextBatch();
+                rateLimiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            // 限速等待期间断开的连接不再写库
+            List<RegistrationRequest> activeRequests = new ArrayList<>(batch.size());
+            for (RegistrationRequest request : batch) {
+                if (request.active().getAsBoolean()) {
+                    activeRequests.add(request);
+                } else {
+                    log.debug("Agent disconnected before registration, skipping: {}", request.name());
+                }
+            }
+            if (activeRequests.isEmpty()) {
+                continue;
+            }
+
+            // 同名Agent在批内重复出现时以最后一次连接的IP为准
+            Map<String, String> nameToIpAddress = new LinkedHashMap<>(activeRequests.size() * 2);
+            for (RegistrationRequest request : activeRequests) {
+                nameToIpAddress.put(request.name(), request.ipAddress());
+            }
+            Map<String, Long> deviceIds = deviceManagementService.registerOrUpdateDevices(nameToIpAddress);
+
+            for (RegistrationRequest request : activeRequests) {
+                try {
+                    request.callback().accept(deviceIds.get(request.name()));
+                } catch (Exception e) {
+                    log.error("Error in registration callback for agent: {}", request.name(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 阻塞等待第一个注册请求，随后在批次窗口内继续收集，直到达到批次大小或窗口结束
+     */
+    private List<RegistrationRequest> nextBatch() throws InterruptedException {
+        List<RegistrationRequest> batch = new ArrayList<>(Math.min(batchSize, 64));
+        batch.add(queue.take());
+        queue.drainTo(batch, batchSize - batch.size());
+
+        long deadline = System.nanoTime() + batchWindowNanos;
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            RegistrationRequest request = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (request == null) {
+                break;
+            }
+            batch.add(request);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+        return batch;
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        log.info("DeviceRegistrationQueue stopped, {} pending registrations dropped", queue.size());
+    }
+
+    private record RegistrationRequest(String name, String ipAddress, BooleanSupplier active, Consumer<Long> callback) {
+    }
+}
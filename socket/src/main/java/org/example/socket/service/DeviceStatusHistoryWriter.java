@@ -0,0 +1,178 @@
+package org.example.socket.service;
+
+import org.example.socket.domain.DeviceStatusSample;
+import org.example.socket.mapper.DeviceStatusHistoryMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 设备状态历史写入器
+ * 状态帧进入有界队列后立即返回，后台线程按条数或时间窗口攒批：
+ * 1. 整批样本用一条多行INSERT追加到device_status_history
+ * 2. 同一设备在批内只取最新一条，用一条多行UPDATE刷新devices的info和最新样本指针
+ * devices行的写入频率从每帧一次降为每批一次，队列满时丢弃样本（只影响历史精度，不影响实时快照）
+ */
+@Service
+public class DeviceStatusHistoryWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceStatusHistoryWriter.class);
+
+    private final DeviceStatusHistoryMapper deviceStatusHistoryMapper;
+    private final DeviceManagementService deviceManagementService;
+    private final BlockingQueue<DeviceStatusSample> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final AtomicLong dropped = new AtomicLong();
+    private Thread worker;
+    private volatile boolean running = true;
+
+    public DeviceStatusHistoryWriter(DeviceStatusHistoryMapper deviceStatusHistoryMapper,
+                                     DeviceManagementService deviceManagementService,
+                                     @Value("${device.status-history.queue-capacity:50000}") int queueCapacity,
+                                     @Value("${device.status-history.batch-size:1000}") int batchSize,
+                                     @Value("${device.status-history.flush-interval-ms:1000}") long flushIntervalMs) {
+        this.deviceStatusHistoryMapper = deviceStatusHistoryMapper;
+        this.deviceManagementService = deviceManagementService;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMs));
+    }
+
+    @PostConstruct
+    public void start() {
+        worker = new Thread(this::processLoop, "DeviceStatusHistoryWriter");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("DeviceStatusHistoryWriter started (batch size: {}, flush interval: {}ms)",
+                batchSize, TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos));
+    }
+
+    /**
+     * 提交一帧状态样本
+     *
+     * @param deviceId 设备ID
+     * @param values 按DeviceMetric的ordinal排列的指标值
+     * @param timestamp 采样时间（毫秒）
+     * @param info 原始状态JSON
+     */
+    public void submit(Long deviceId, double[] values, long timestamp, String info) {
+        LocalDateTime sampledAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
+        if (!queue.offer(new DeviceStatusSample(deviceId, sampledAt, values, info))) {
+            // 只在丢弃数为2的幂时记录日志，避免积压时刷屏
+            long count = dropped.incrementAndGet();
+            if (Long.bitCount(count) == 1) {
+                log.warn("Device status history queue full, {} samples dropped so far", count);
+            }
+        }
+    }
+
+    /**
+     * 获取当前排队中的样本数
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * 获取因队列已满而丢弃的样本总数
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // 停止前写出剩余样本
+        List<DeviceStatusSample> remaining = new ArrayList<>();
+        while (queue.drainTo(remaining, batchSize) > 0) {
+            flush(remaining);
+            remaining.clear();
+        }
+    }
+
+    private void processLoop() {
+        List<DeviceStatusSample> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                nextBatch(batch);
+            } catch (InterruptedException e) {
+                // 停止时写出已收集的部分批次，队列中剩余的样本由stop()写出
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+                return;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 阻塞等待第一条样本，之后在刷新窗口内继续收集，直到达到批大小或窗口结束
+     */
+    private void nextBatch(List<DeviceStatusSample> batch) throws InterruptedException {
+        batch.add(queue.take());
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            DeviceStatusSample sample = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (sample == null) {
+                break;
+            }
+            batch.add(sample);
+        }
+    }
+
+    private void flush(List<DeviceStatusSample> batch) {
+        long startNanos = System.nanoTime();
+        try {
+            deviceStatusHistoryMapper.insertBatch(batch);
+        } catch (Exception e) {
+            // 历史写入失败时样本没有id，devices仍然刷新info，最新样本指针保持不变
+            log.error("Error inserting {} device status samples", batch.size(), e);
+        }
+
+        // 队列按到达顺序排列，后出现的样本覆盖同一设备之前的样本
+        Map<Long, DeviceStatusSample> latest = new LinkedHashMap<>();
+        for (DeviceStatusSample sample : batch) {
+            latest.put(sample.getDeviceId(), sample);
+        }
+        deviceManagementService.updateLatestStatus(new ArrayList<>(latest.values()));
+        log.debug("Device status batch written: samples={}, devices={}, {}ms",
+                batch.size(), latest.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.socket.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.example.socket.domain.DeviceMetric;
+import org.example.socket.manager.AlertRuleEngine;
+import org.example.socket.manager.DeviceMetricsSnapshot;
+import org.example.socket.manager.MetricAnomalyDetector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * 设备状态接入服务
+ * Agent状态帧到达时解析一次数值指标，写入列式快照，供过滤和Top-N查询使用，并交给告警规则引擎增量评估、更新异常检测基线，
+ * 同时提交给状态历史写入器攒批落库
+ */
+@Service
+public class DeviceStatusIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceStatusIngestService.class);
+    private final DeviceMetricsSnapshot deviceMetricsSnapshot;
+    private final AlertRuleEngine alertRuleEngine;
+    private final MetricAnomalyDetector metricAnomalyDetector;
+    private final DeviceStatusHistoryWriter deviceStatusHistoryWriter;
+
+    public DeviceStatusIngestService(DeviceMetricsSnapshot deviceMetricsSnapshot,
+                                     AlertRuleEngine alertRuleEngine,
+                                     MetricAnomalyDetector metricAnomalyDetector,
+                                     DeviceStatusHistoryWriter deviceStatusHistoryWriter) {
+        this.deviceMetricsSnapshot = deviceMetricsSnapshot;
+        this.alertRuleEngine = alertRuleEngine;
+        this.metricAnomalyDetector = metricAnomalyDetector;
+        this.deviceStatusHistoryWriter = deviceStatusHistoryWriter;
+    }
+
+    /**
+     * 接入一帧状态
+     *
+     * @param deviceId 设备ID
+     * @param status 状态上报中的status节点
+     */
+    public void ingest(Long deviceId, JsonNode status) {
+        if (deviceId == null || status == null || status.isNull()) {
+            return;
+        }
+        try {
+            long timestamp = System.currentTimeMillis();
+            double[] values = DeviceMetric.readAll(status);
+            int ordinal = deviceMetricsSnapshot.update(deviceId, values, timestamp);
+            alertRuleEngine.evaluate(deviceId, ordinal, values, timestamp);
+            metricAnomalyDetector.observe(deviceId, ordinal, values, timestamp);
+            deviceStatusHistoryWriter.submit(deviceId, values, timestamp, status.toString());
+        } catch (Exception e) {
+            log.warn("Failed to ingest status metrics for device {}: {}", deviceId, e.getMessage());
+        }
+    }
+
+    /**
+     * 设备断开后不再有状态帧，结束其触发中的告警并清空规则状态
+     *
+     * @param deviceId 设备ID
+     * @param reason 断开原因，仅用于日志
+     */
+    public void onDeviceDisconnected(Long deviceId, String reason) {
+        if (deviceId == null) {
+            return;
+        }
+        alertRuleEngine.clearDevice(deviceId, reason);
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.socket.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.socket.domain.AlertEvent;
+import org.example.socket.handler.DeviceMonitorWebSocketHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 将告警状态变化广播到前端监控连接(/ws/monitor)
+ */
+@Component
+public class MonitorAlertSink implements AlertSink {
+
+    private static final Logger log = LoggerFactory.getLogger(MonitorAlertSink.class);
+    private final ObjectMapper objectMapper;
+
+    public MonitorAlertSink(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void onAlert(AlertEvent event) {
+        try {
+            Map<String, Object> message = new HashMap<>();
+            message.put("type", "alert");
+            message.put("alert", event);
+            DeviceMonitorWebSocketHandler.broadcast(objectMapper.writeValueAsString(message));
+        } catch (Exception e) {
+            log.warn("Failed to broadcast alert {} for device {}: {}", event.rule(), event.deviceId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.socket.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import org.example.socket.domain.Device;
+import org.example.socket.domain.DeviceMetric;
+import org.example.socket.manager.DeviceMetricsSnapshot;
+import org.example.socket.mapper.DeviceMapper;
+import org.springframework.stereotype.Service;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 监控快照服务
+ * 为新连接的前端监控客户端生成全量设备快照，格式为列名数组加行数组，避免每行重复字段名：
+ * <pre>
+ * {"columns":["id","name",...,"cpu",...],"rows":[[1,"agent-1",...,12.5,...],...]}
+ * </pre>
+ * 设备基础信息来自devices表(不读取info列)，数值指标来自内存中的最新指标快照
+ */
+@Service
+public class MonitorSnapshotService {
+
+    private static final List<String> BASE_COLUMNS =
+            List.of("id", "name", "remarkName", "ipAddress", "statusCode", "lastHeartbeatAt");
+
+    private final DeviceMapper deviceMapper;
+    private final DeviceMetricsSnapshot deviceMetricsSnapshot;
+
+    public MonitorSnapshotService(DeviceMapper deviceMapper, DeviceMetricsSnapshot deviceMetricsSnapshot) {
+        this.deviceMapper = deviceMapper;
+        this.deviceMetricsSnapshot = deviceMetricsSnapshot;
+    }
+
+    /**
+     * 生成全量设备快照
+     */
+    public Map<String, Object> buildSnapshot() {
+        QueryWrapper<Device> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "name", "remark_name", "ip_address", "status_code", "last_heartbeat_at");
+        List<Device> devices = deviceMapper.selectList(queryWrapper);
+
+        DeviceMetric[] metrics = DeviceMetric.values();
+        List<String> columns = new ArrayList<>(BASE_COLUMNS);
+        for (DeviceMetric metric : metrics) {
+            columns.add(metric.getKey());
+        }
+        columns.add("metricsUpdatedAt");
+
+        List<Object[]> rows = new ArrayList<>(devices.size());
+        for (Device device : devices) {
+            Object[] row = new Object[columns.size()];
+            row[0] = device.getId();
+            row[1] = device.getName();
+            row[2] = device.getRemarkName();
+            row[3] = device.getIpAddress();
+            row[4] = device.getStatusCode();
+            row[5] = device.getLastHeartbeatAt() != null
+                    ? device.getLastHeartbeatAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    : null;
+            Map<String, Object> latest = deviceMetricsSnapshot.getDeviceMetrics(device.getId());
+            if (latest != null) {
+                int offset = BASE_COLUMNS.size();
+                for (DeviceMetric metric : metrics) {
+                    row[offset + metric.ordinal()] = latest.get(metric.getKey());
+                }
+                row[row.length - 1] = latest.get("updatedAt");
+            }
+            rows.add(row);
+        }
+
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("columns", columns);
+        snapshot.put("rows", rows);
+        return snapshot;
+    }
+}
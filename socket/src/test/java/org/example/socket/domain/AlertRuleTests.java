@@ -0,0 +1,66 @@
+package org.example.socket.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlertRuleTests {
+
+    @Test
+    void parsesThresholdRateAndDuration() {
+        List<AlertRule> rules = AlertRule.parseAll(
+                "cpu-high: cpu > 90 for 5m; disk-full: disk >= 95;; memory-leak: rate(memory) > 2.5 for 30s");
+
+        assertEquals(3, rules.size());
+
+        AlertRule cpu = rules.get(0);
+        assertEquals(0, cpu.getIndex());
+        assertEquals("cpu-high", cpu.getName());
+        assertEquals(DeviceMetric.CPU_USAGE, cpu.getMetric());
+        assertFalse(cpu.isRate());
+        assertEquals(">", cpu.getOperator());
+        assertEquals(90, cpu.getThreshold());
+        assertEquals(300_000, cpu.getForMs());
+
+        AlertRule disk = rules.get(1);
+        assertEquals(1, disk.getIndex());
+        assertEquals(">=", disk.getOperator());
+        assertEquals(0, disk.getForMs());
+
+        AlertRule memory = rules.get(2);
+        // 空规则被跳过，下标保持连续
+        assertEquals(2, memory.getIndex());
+        assertEquals(DeviceMetric.MEMORY_USAGE, memory.getMetric());
+        assertTrue(memory.isRate());
+        assertEquals(2.5, memory.getThreshold());
+        assertEquals(30_000, memory.getForMs());
+    }
+
+    @Test
+    void blankSpecHasNoRules() {
+        assertTrue(AlertRule.parseAll(null).isEmpty());
+        assertTrue(AlertRule.parseAll("  ").isEmpty());
+    }
+
+    @Test
+    void malformedRuleIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> AlertRule.parseAll("cpu > 90"));
+        assertThrows(IllegalArgumentException.class, () -> AlertRule.parseAll("cpu-high: cpu > 90 for 5d"));
+        assertThrows(IllegalArgumentException.class, () -> AlertRule.parseAll("gpu-high: gpu > 90"));
+    }
+
+    @Test
+    void comparisonHonoursOperatorAndNaN() {
+        List<AlertRule> rules = AlertRule.parseAll("a: cpu > 90; b: cpu <= 10");
+        assertTrue(rules.get(0).test(90.1));
+        assertFalse(rules.get(0).test(90));
+        assertTrue(rules.get(1).test(10));
+        assertFalse(rules.get(0).test(Double.NaN));
+        assertFalse(rules.get(1).test(Double.NaN));
+    }
+}
@@ -0,0 +1,211 @@
+package org.example.socket.manager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.common.constant.CommandStatusConstant;
+import org.example.socket.service.DeviceEventPublisher;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandDeliveryManagerTests {
+
+    private static final String AGENT = "agent-1";
+    private static final long DEVICE_ID = 1L;
+    private static final long ACK_TIMEOUT_MS = 1000;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long MAX_PENDING_MS = 60_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StubConnections connections = new StubConnections(objectMapper);
+    private final StubPublisher publisher = new StubPublisher(objectMapper);
+    private final CommandDeliveryManager manager = new CommandDeliveryManager(connections, objectMapper, publisher,
+            2, ACK_TIMEOUT_MS, MAX_ATTEMPTS, 100, MAX_PENDING_MS);
+    private long nanos = 0;
+
+    CommandDeliveryManagerTests() {
+        manager.setNanoClock(() -> nanos);
+    }
+
+    @Test
+    void windowFillsAndRefillsOnAck() {
+        for (long id = 1; id <= 4; id++) {
+            assertTrue(submit(id));
+        }
+        // 窗口为2，其余命令等待
+        assertEquals(List.of(1L, 2L), connections.sent);
+        assertEquals(2, manager.getInFlightCount(AGENT));
+        assertEquals(2, manager.getWaitingCount(AGENT));
+
+        manager.onAck(AGENT, 1);
+        assertEquals(List.of(1L, 2L, 3L), connections.sent);
+
+        manager.onAck(AGENT, 2);
+        manager.onAck(AGENT, 3);
+        manager.onAck(AGENT, 4);
+        assertEquals(List.of(1L, 2L, 3L, 4L), connections.sent);
+        assertEquals(0, manager.getInFlightCount(AGENT));
+        assertEquals(0, manager.getWaitingCount(AGENT));
+    }
+
+    @Test
+    void resubmittedCommandIdIsDeduplicated() {
+        submit(1);
+        submit(2);
+        submit(3);
+
+        // 在途和等待中的命令再次提交都视为已接受，不重复入队或发送
+        assertTrue(submit(1));
+        assertTrue(submit(3));
+        boolean[] accepted = manager.submitAll(AGENT, List.of(DEVICE_ID, DEVICE_ID), List.of(command(2), command(3)));
+
+        assertArrayEquals(new boolean[]{true, true}, accepted);
+        assertEquals(List.of(1L, 2L), connections.sent);
+        assertEquals(2, manager.getInFlightCount(AGENT));
+        assertEquals(1, manager.getWaitingCount(AGENT));
+    }
+
+    @Test
+    void unackedCommandIsRedeliveredAfterAckTimeout() {
+        submit(1);
+
+        advanceMillis(ACK_TIMEOUT_MS - 1);
+        manager.redeliverExpired();
+        assertEquals(List.of(1L), connections.sent);
+
+        advanceMillis(1);
+        manager.redeliverExpired();
+        assertEquals(List.of(1L, 1L), connections.sent);
+
+        // 确认后不再重投
+        manager.onAck(AGENT, 1);
+        advanceMillis(ACK_TIMEOUT_MS);
+        manager.redeliverExpired();
+        assertEquals(List.of(1L, 1L), connections.sent);
+        assertTrue(publisher.givenUp.isEmpty());
+    }
+
+    @Test
+    void commandFailsAfterMaxAttempts() {
+        submit(1);
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            advanceMillis(ACK_TIMEOUT_MS);
+            manager.redeliverExpired();
+        }
+
+        // 首次发送加两次重投，第三次超时后放弃
+        assertEquals(List.of(1L, 1L, 1L), connections.sent);
+        assertEquals(List.of("1:" + CommandStatusConstant.FAILED), publisher.givenUp);
+        assertEquals(0, manager.getInFlightCount(AGENT));
+    }
+
+    @Test
+    void commandTimesOutAfterMaxPending() {
+        connections.online = false;
+        submit(1);
+        // Agent离线，命令留在等待队列中
+        assertTrue(connections.sent.isEmpty());
+        assertEquals(1, manager.getWaitingCount(AGENT));
+
+        advanceMillis(MAX_PENDING_MS);
+        manager.redeliverExpired();
+        assertTrue(publisher.givenUp.isEmpty());
+
+        advanceMillis(1);
+        manager.redeliverExpired();
+        assertEquals(List.of("1:" + CommandStatusConstant.TIMEOUT), publisher.givenUp);
+        assertEquals(0, manager.getWaitingCount(AGENT));
+    }
+
+    @Test
+    void inFlightCommandsAreResentOnReconnect() {
+        submit(1);
+        submit(2);
+        submit(3);
+        assertEquals(List.of(1L, 2L), connections.sent);
+
+        // 断线期间不重投
+        connections.online = false;
+        advanceMillis(ACK_TIMEOUT_MS);
+        manager.redeliverExpired();
+        assertEquals(List.of(1L, 2L), connections.sent);
+
+        // 重连后在途命令立即重发，窗口仍满，等待中的命令不发送
+        connections.online = true;
+        manager.onAgentConnected(AGENT);
+
+        assertEquals(List.of(1L, 2L, 1L, 2L), connections.sent);
+        assertEquals(1, manager.getWaitingCount(AGENT));
+    }
+
+    private boolean submit(long commandId) {
+        return manager.submit(AGENT, DEVICE_ID, command(commandId));
+    }
+
+    private static Map<String, Object> command(long commandId) {
+        return Map.of("type", "command", "commandId", commandId, "commandType", "config", "commandContent", "{}");
+    }
+
+    private void advanceMillis(long millis) {
+        nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * 记录发送的commandId，在线状态由测试控制
+     */
+    private static final class StubConnections extends AgentConnectionManager {
+
+        private final ObjectMapper objectMapper;
+        private final List<Long> sent = new ArrayList<>();
+        private boolean online = true;
+
+        StubConnections(ObjectMapper objectMapper) {
+            super(objectMapper, 0, 0, AgentSession.OverflowStrategy.TERMINATE);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public boolean isAgentOnline(String name) {
+            return online;
+        }
+
+        @Override
+        public boolean sendMessageToAgent(String name, WebSocketMessage<?> message) {
+            if (!online) {
+                return false;
+            }
+            try {
+                sent.add(objectMapper.readTree(((TextMessage) message).getPayload()).path("commandId").asLong());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 记录被放弃的命令，格式为 commandId:status
+     */
+    private static final class StubPublisher extends DeviceEventPublisher {
+
+        private final List<String> givenUp = new ArrayList<>();
+
+        StubPublisher(ObjectMapper objectMapper) {
+            super(null, objectMapper);
+        }
+
+        @Override
+        public void publishCommandGivenUp(Long deviceId, String agentName, long commandId, String status, String reason) {
+            givenUp.add(commandId + ":" + status);
+        }
+    }
+}
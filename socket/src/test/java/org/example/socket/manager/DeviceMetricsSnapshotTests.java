@@ -0,0 +1,55 @@
+package org.example.socket.manager;
+
+import org.example.socket.domain.DeviceMetric;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeviceMetricsSnapshotTests {
+
+    private final DeviceMetricsSnapshot snapshot = new DeviceMetricsSnapshot(new DeviceOrdinalRegistry());
+
+    @Test
+    void topReturnsLargestValuesInOrder() {
+        // 超过初始容量1024，覆盖扩容后的扫描
+        for (long deviceId = 1; deviceId <= 2000; deviceId++) {
+            updateCpu(deviceId, (deviceId * 7919) % 2000, 100);
+        }
+
+        List<DeviceMetricsSnapshot.MetricValue> top = snapshot.top(DeviceMetric.CPU_USAGE, 5, true, 0);
+
+        assertEquals(List.of(1999.0, 1998.0, 1997.0, 1996.0, 1995.0),
+                top.stream().map(DeviceMetricsSnapshot.MetricValue::value).toList());
+    }
+
+    @Test
+    void topAscendingSkipsMissingAndStaleValues() {
+        updateCpu(1, 50, 100);
+        updateCpu(2, 10, 100);
+        updateCpu(3, 5, 10);
+        updateCpu(4, Double.NaN, 100);
+        updateCpu(5, 30, 100);
+
+        List<DeviceMetricsSnapshot.MetricValue> bottom = snapshot.top(DeviceMetric.CPU_USAGE, 10, false, 50);
+
+        // 设备3的更新时间早于notBefore，设备4没有cpu值
+        assertEquals(List.of(2L, 5L, 1L), bottom.stream().map(DeviceMetricsSnapshot.MetricValue::deviceId).toList());
+    }
+
+    @Test
+    void topWithNonPositiveLimitIsEmpty() {
+        updateCpu(1, 50, 100);
+        assertTrue(snapshot.top(DeviceMetric.CPU_USAGE, 0, true, 0).isEmpty());
+    }
+
+    private void updateCpu(long deviceId, double cpu, long timestamp) {
+        double[] values = new double[DeviceMetric.values().length];
+        Arrays.fill(values, Double.NaN);
+        values[DeviceMetric.CPU_USAGE.ordinal()] = cpu;
+        snapshot.update(deviceId, values, timestamp);
+    }
+}
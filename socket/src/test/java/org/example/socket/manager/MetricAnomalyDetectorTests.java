@@ -0,0 +1,75 @@
+package org.example.socket.manager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.socket.domain.AnomalyEvent;
+import org.example.socket.domain.DeviceMetric;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricAnomalyDetectorTests {
+
+    private static final long DEVICE_ID = 1L;
+
+    private final DeviceOrdinalRegistry registry = new DeviceOrdinalRegistry();
+    private final MetricAnomalyDetector detector =
+            new MetricAnomalyDetector(registry, new ObjectMapper(), 0.05, 4.0, 30, 1.0, 0.01, 4.0, 100);
+
+    @Test
+    void linearRampIsReportedAsDrift() {
+        Random random = new Random(42);
+        int ordinal = registry.ordinalOf(DEVICE_ID);
+        // 先积累平稳基线，再让cpu每帧线性上涨0.5
+        for (int t = 0; t < 200; t++) {
+            observeCpu(ordinal, 20 + random.nextGaussian(), t);
+        }
+        assertTrue(detector.getRecentAnomalies(DEVICE_ID, 10).isEmpty());
+
+        for (int t = 0; t < 200; t++) {
+            observeCpu(ordinal, 20 + 0.5 * t + random.nextGaussian(), 200 + t);
+        }
+
+        List<AnomalyEvent> anomalies = detector.getRecentAnomalies(DEVICE_ID, 10);
+        assertTrue(anomalies.stream().anyMatch(e -> AnomalyEvent.DRIFT.equals(e.type())
+                && DeviceMetric.CPU_USAGE.getKey().equals(e.metric())));
+        // 均值和方差随漂移一起调整，单帧z-score检测不会把线性漂移判为突变
+        assertFalse(anomalies.stream().anyMatch(e -> AnomalyEvent.SPIKE.equals(e.type())));
+    }
+
+    @Test
+    void stationaryNoiseIsNotReported() {
+        Random random = new Random(7);
+        int ordinal = registry.ordinalOf(DEVICE_ID);
+        for (int t = 0; t < 5000; t++) {
+            observeCpu(ordinal, 50 + random.nextGaussian(), t);
+        }
+        assertTrue(detector.getRecentAnomalies(DEVICE_ID, 10).isEmpty());
+    }
+
+    @Test
+    void singleSpikeIsReportedAsSpike() {
+        Random random = new Random(3);
+        int ordinal = registry.ordinalOf(DEVICE_ID);
+        for (int t = 0; t < 200; t++) {
+            observeCpu(ordinal, 30 + random.nextGaussian(), t);
+        }
+        observeCpu(ordinal, 90, 200);
+
+        List<AnomalyEvent> anomalies = detector.getRecentAnomalies(DEVICE_ID, 10);
+        assertEquals(1, anomalies.size());
+        assertEquals(AnomalyEvent.SPIKE, anomalies.get(0).type());
+    }
+
+    private void observeCpu(int ordinal, double cpu, long timestamp) {
+        double[] values = new double[DeviceMetric.values().length];
+        Arrays.fill(values, Double.NaN);
+        values[DeviceMetric.CPU_USAGE.ordinal()] = cpu;
+        detector.observe(DEVICE_ID, ordinal, values, timestamp);
+    }
+}